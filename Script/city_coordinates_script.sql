@@ -0,0 +1,31 @@
+-- Coordinates of the cities of address_script.sql, used by the search of offers by distance.
+-- Loads the IBGE municipality seats from the CSV files of the public dataset
+-- https://github.com/kelvins/Municipios-Brasileiros (csv/municipios.csv and csv/estados.csv)
+-- and matches them with the cities by name and state abbreviation. Run with psql from the
+-- directory of the CSV files, after address_script.sql. Cities without a match keep null
+-- coordinates and are left out of the search by distance.
+
+ALTER TABLE city ADD COLUMN IF NOT EXISTS latitude double precision;
+ALTER TABLE city ADD COLUMN IF NOT EXISTS longitude double precision;
+
+CREATE TEMP TABLE ibge_state (codigo_uf integer, uf varchar(2), nome text, latitude double precision,
+	longitude double precision, regiao text);
+
+CREATE TEMP TABLE ibge_city (codigo_ibge integer, nome text, latitude double precision, longitude double precision,
+	capital integer, codigo_uf integer, siafi_id text, ddd integer, fuso_horario text);
+
+\copy ibge_state FROM 'estados.csv' WITH (FORMAT csv, HEADER true)
+\copy ibge_city FROM 'municipios.csv' WITH (FORMAT csv, HEADER true)
+
+UPDATE city c SET latitude = i.latitude, longitude = i.longitude
+FROM ibge_city i
+JOIN ibge_state s ON s.codigo_uf = i.codigo_uf
+JOIN address_state a ON a.abbreviation = s.uf
+WHERE c.state_id = a.state_id AND lower(trim(c.name)) = lower(trim(i.nome));
+
+-- The projection of the offer search copies the coordinates of the city of each user
+UPDATE offer_search o SET latitude = c.latitude, longitude = c.longitude
+FROM city c
+WHERE o.city_id = c.city_id;
+
+Select count(*) From city where latitude is null;
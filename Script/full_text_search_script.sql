@@ -0,0 +1,77 @@
+-- Full text search of species, offers and posts.
+-- Each table gets a search_vector column kept up to date by a trigger and a GIN index on it.
+-- The greenshare_pt configuration is the Portuguese one with the accents removed before the
+-- stemming, so "maracuja" finds "maracujá". Run once on the database after the tables exist,
+-- the unaccent extension needs a role allowed to create extensions.
+
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+DO $$
+BEGIN
+	IF NOT EXISTS (SELECT 1 FROM pg_ts_config WHERE cfgname = 'greenshare_pt') THEN
+		CREATE TEXT SEARCH CONFIGURATION greenshare_pt (COPY = portuguese);
+		ALTER TEXT SEARCH CONFIGURATION greenshare_pt
+			ALTER MAPPING FOR hword, hword_part, word WITH unaccent, portuguese_stem;
+	END IF;
+END $$;
+
+-- Species, names weigh more than the description and the cultivation guide
+
+ALTER TABLE species ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION species_search_vector_update() RETURNS trigger AS $$
+BEGIN
+	NEW.search_vector :=
+		setweight(to_tsvector('greenshare_pt', coalesce(NEW.common_name, '')), 'A') ||
+		setweight(to_tsvector('greenshare_pt', coalesce(NEW.scientific_name, '')), 'A') ||
+		setweight(to_tsvector('greenshare_pt', coalesce(NEW.description, '')), 'B') ||
+		setweight(to_tsvector('greenshare_pt', coalesce(NEW.cultivation_guide, '')), 'C');
+	RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS species_search_vector_trg ON species;
+CREATE TRIGGER species_search_vector_trg BEFORE INSERT OR UPDATE OF common_name, scientific_name, description,
+	cultivation_guide ON species FOR EACH ROW EXECUTE PROCEDURE species_search_vector_update();
+
+UPDATE species SET common_name = common_name;
+
+CREATE INDEX IF NOT EXISTS species_search_vector_idx ON species USING gin (search_vector);
+
+-- Offers
+
+ALTER TABLE offer ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION offer_search_vector_update() RETURNS trigger AS $$
+BEGIN
+	NEW.search_vector := to_tsvector('greenshare_pt', coalesce(NEW.description, ''));
+	RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS offer_search_vector_trg ON offer;
+CREATE TRIGGER offer_search_vector_trg BEFORE INSERT OR UPDATE OF description ON offer
+	FOR EACH ROW EXECUTE PROCEDURE offer_search_vector_update();
+
+UPDATE offer SET description = description;
+
+CREATE INDEX IF NOT EXISTS offer_search_vector_idx ON offer USING gin (search_vector);
+
+-- Posts
+
+ALTER TABLE post ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION post_search_vector_update() RETURNS trigger AS $$
+BEGIN
+	NEW.search_vector := to_tsvector('greenshare_pt', coalesce(NEW.text, ''));
+	RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS post_search_vector_trg ON post;
+CREATE TRIGGER post_search_vector_trg BEFORE INSERT OR UPDATE OF text ON post
+	FOR EACH ROW EXECUTE PROCEDURE post_search_vector_update();
+
+UPDATE post SET text = text;
+
+CREATE INDEX IF NOT EXISTS post_search_vector_idx ON post USING gin (search_vector);
@@ -0,0 +1,13 @@
+package com.greenshare.controller.auth;
+
+import java.io.Serializable;
+/**
+ * Entity for send the email and password of {@link com.greenshare.entity.user.User} on login
+ * 
+ * @author joao.silva
+ */
+public class Credentials implements Serializable{
+	private static final long serialVersionUID = 1L;
+	public String email;
+	public String password;
+}
@@ -10,5 +10,9 @@ import org.springframework.http.ResponseEntity;
 public interface LoginController {
 
 	ResponseEntity<?> getUserDetails();
+
+	ResponseEntity<?> createToken(Credentials credentials);
+
+	ResponseEntity<?> refreshToken(RefreshToken refreshToken);
 	
 }
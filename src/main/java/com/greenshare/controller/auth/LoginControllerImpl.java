@@ -10,9 +10,12 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.greenshare.service.auth.LoginServiceImpl;
 import com.greenshare.service.user.UserServiceImpl;
 
 /**
@@ -26,6 +29,9 @@ public class LoginControllerImpl implements LoginController{
 
     @Autowired
     UserServiceImpl userService;
+
+    @Autowired
+    LoginServiceImpl loginService;
     
     @Override
     @GetMapping("login")
@@ -38,4 +44,16 @@ public class LoginControllerImpl implements LoginController{
                 .map(userService::findOneByEmail)
                 .orElse(null);
     }
+
+    @Override
+    @PostMapping("token/")
+    public ResponseEntity<?> createToken(@RequestBody Credentials credentials) {
+        return loginService.createToken(credentials.email, credentials.password);
+    }
+
+    @Override
+    @PostMapping("refresh/")
+    public ResponseEntity<?> refreshToken(@RequestBody RefreshToken refreshToken) {
+        return loginService.refreshToken(refreshToken.refreshToken);
+    }
 }       
\ No newline at end of file
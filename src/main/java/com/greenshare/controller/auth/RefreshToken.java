@@ -0,0 +1,12 @@
+package com.greenshare.controller.auth;
+
+import java.io.Serializable;
+/**
+ * Entity for send the refresh token of {@link com.greenshare.entity.user.AuthToken}
+ * 
+ * @author joao.silva
+ */
+public class RefreshToken implements Serializable{
+	private static final long serialVersionUID = 1L;
+	public String refreshToken;
+}
@@ -0,0 +1,23 @@
+package com.greenshare.controller.image;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Controller interface for bulk import of the catalog images using
+ * {@link com.greenshare.service.image.ImageImportService}
+ * 
+ * @author joao.silva
+ */
+public interface ImageImportController {
+
+	ResponseEntity<?> importDirectory(String path);
+
+	ResponseEntity<?> importZip(HttpServletRequest request);
+
+	ResponseEntity<?> getImportJob(String jobId);
+
+	ResponseEntity<?> getImportJobs();
+
+}
@@ -0,0 +1,101 @@
+package com.greenshare.controller.image;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.greenshare.exception.DirectoryException;
+import com.greenshare.exception.UploadTooLargeException;
+import com.greenshare.helpers.IsHelper;
+import com.greenshare.service.image.ImageImportJob;
+import com.greenshare.service.image.ImageImportServiceImpl;
+
+/**
+ * Controller implementation of {@link com.greenshare.controller.image.ImageImportController}
+ * 
+ * The imports are only for the users of greenshare.image.import.admins. The
+ * zip is the raw body of the request, streamed to disk with its own limit, so
+ * the multipart limits of the uploads stay small.
+ * 
+ * @author joao.silva
+ */
+@RestController
+public class ImageImportControllerImpl extends IsHelper implements ImageImportController {
+
+	@Autowired
+	ImageImportServiceImpl imageImportService;
+
+	@Override
+	@PostMapping("/image/import/directory")
+	public ResponseEntity<?> importDirectory(@RequestParam(value = "path", required = false) String path) {
+		if (!imageImportService.canImport()) {
+			return forbidden();
+		}
+		try {
+			return new ResponseEntity<ImageImportJob>(imageImportService.importDirectory(path), HttpStatus.ACCEPTED);
+		} catch (DirectoryException e) {
+			return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
+		} catch (RejectedExecutionException e) {
+			return new ResponseEntity<String>("Fila de importação cheia.", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+	@Override
+	@PostMapping(value = "/image/import/zip", consumes = { "application/zip", "application/octet-stream" })
+	public ResponseEntity<?> importZip(HttpServletRequest request) {
+		if (!imageImportService.canImport()) {
+			return forbidden();
+		}
+		if (request.getContentLengthLong() == 0) {
+			return new ResponseEntity<String>("Arquivo zip não pode ser nulo.", HttpStatus.BAD_REQUEST);
+		}
+		try {
+			return new ResponseEntity<ImageImportJob>(imageImportService.importZip(request.getInputStream()),
+					HttpStatus.ACCEPTED);
+		} catch (UploadTooLargeException e) {
+			return new ResponseEntity<String>(e.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE);
+		} catch (IOException e) {
+			return new ResponseEntity<String>("Erro ao ler arquivo zip.", HttpStatus.INTERNAL_SERVER_ERROR);
+		} catch (RejectedExecutionException e) {
+			return new ResponseEntity<String>("Fila de importação cheia.", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+	@Override
+	@GetMapping("/image/import/{jobId}")
+	public ResponseEntity<?> getImportJob(@PathVariable("jobId") String jobId) {
+		if (!imageImportService.canImport()) {
+			return forbidden();
+		}
+		ImageImportJob job = imageImportService.findJob(jobId);
+		if (isNull(job)) {
+			return new ResponseEntity<String>("Importação não encontrada.", HttpStatus.NOT_FOUND);
+		}
+		return new ResponseEntity<ImageImportJob>(job, HttpStatus.OK);
+	}
+
+	@Override
+	@GetMapping("/image/import/")
+	public ResponseEntity<?> getImportJobs() {
+		if (!imageImportService.canImport()) {
+			return forbidden();
+		}
+		return new ResponseEntity<List<ImageImportJob>>(imageImportService.findJobs(), HttpStatus.OK);
+	}
+
+	private ResponseEntity<String> forbidden() {
+		return new ResponseEntity<String>("Importação de imagens restrita aos administradores.", HttpStatus.FORBIDDEN);
+	}
+
+}
@@ -1,8 +1,12 @@
 package com.greenshare.controller.image;
 
+import java.util.List;
+
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.greenshare.entity.image.ImageReference;
+
 /**
  * Controller implementation for upload images using {@link com.greenshare.service.image.ImageService}
  * 
@@ -12,7 +16,7 @@ public interface ImageUploadController{
 			
     ResponseEntity<String> uploadPostImage(MultipartFile multipartFile, Long postId);
 	
-	ResponseEntity<?> getPostImage(Long idPost);
+	ResponseEntity<?> getPostImage(Long idPost, Integer size);
 
 	ResponseEntity<String> uploadFlowerShopImage(MultipartFile multipartFile);
 
@@ -20,11 +24,11 @@ public interface ImageUploadController{
 
 	ResponseEntity<String> uploadSpeciesImage(MultipartFile multipartFile, Long speciesId);
 
-	ResponseEntity<?> getSpeciesImage(Long speciesId);
+	ResponseEntity<?> getSpeciesImage(Long speciesId, Integer size);
 
-	ResponseEntity<?> getFlowerShopImage();
+	ResponseEntity<?> getFlowerShopImage(Integer size);
 
-	ResponseEntity<?> getUserImage();
+	ResponseEntity<?> getUserImage(Integer size);
 
 	ResponseEntity<String> uploadFruitImage(MultipartFile multipartFile, Long speciesId);
 
@@ -34,11 +38,15 @@ public interface ImageUploadController{
 
 	ResponseEntity<String> uploadOfferImage(MultipartFile multipartFile, Long speciesId);
 
-	ResponseEntity<?> getAchievementImage(Long achievementId);
+	ResponseEntity<?> getAchievementImage(Long achievementId, Integer size);
+
+	ResponseEntity<?> getFlowerImage(Long flowerId, Integer size);
+
+	ResponseEntity<?> getFruitImage(Long fruitId, Integer size);
 
-	ResponseEntity<?> getFlowerImage(Long flowerId);
+	ResponseEntity<?> getOfferImage(Long offerId, Integer size);
 
-	ResponseEntity<?> getFruitImage(Long fruitId);
+	ResponseEntity<?> getImage(String photoType, Long id, Integer size);
 
-	ResponseEntity<?> getOfferImage(Long offerId);
+	ResponseEntity<?> getImagesMetadata(List<ImageReference> imageReferences);
 }
@@ -1,22 +1,26 @@
 package com.greenshare.controller.image;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Base64;
+import java.util.List;
 
-import org.json.JSONException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.greenshare.entity.FlowerShop;
 import com.greenshare.entity.achievement.Achievement;
+import com.greenshare.entity.image.ImageMetadata;
+import com.greenshare.entity.image.ImageReference;
 import com.greenshare.entity.interfaces.PhotogenicEntity;
 import com.greenshare.entity.offer.Offer;
 import com.greenshare.entity.post.Post;
@@ -24,8 +28,10 @@ import com.greenshare.entity.user.User;
 import com.greenshare.entity.vegetable.Flower;
 import com.greenshare.entity.vegetable.Fruit;
 import com.greenshare.entity.vegetable.Species;
+import com.greenshare.enumeration.PhotoType;
 import com.greenshare.exception.DirectoryException;
-import com.greenshare.helpers.ImageHelper;
+import com.greenshare.exception.InvalidImageException;
+import com.greenshare.exception.SaveOnDatabaseException;
 import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.AchievementRepository;
 import com.greenshare.repository.FlowerRepository;
@@ -35,7 +41,9 @@ import com.greenshare.repository.OfferRepository;
 import com.greenshare.repository.PostRepository;
 import com.greenshare.repository.SpeciesRepository;
 import com.greenshare.repository.UserRepository;
+import com.greenshare.service.image.ImageDerivativeService;
 import com.greenshare.service.image.ImageServiceImpl;
+import com.greenshare.service.image.StoredImage;
 
 /**
  * Controller implementation of {@link com.greenshare.controller.image.ImageUploadController}
@@ -45,9 +53,14 @@ import com.greenshare.service.image.ImageServiceImpl;
 @RestController
 public class ImageUploadControllerImpl extends IsHelper implements ImageUploadController{
 
+	private static final int MAX_METADATA_REFERENCES = 200;
+
 	@Autowired
 	ImageServiceImpl imageService;
 	
+	@Autowired
+	ImageDerivativeService imageDerivativeService;
+	
 	@Autowired
     PostRepository postRepository;
 	
@@ -188,28 +201,64 @@ public class ImageUploadControllerImpl extends IsHelper implements ImageUploadCo
     }
     
     
+    @Override
+    @GetMapping("/image/{photoType}/{id}")
+	public ResponseEntity<?> getImage(@PathVariable String photoType, @PathVariable Long id, @RequestParam(value="size", required=false) Integer size) {
+    	PhotoType type = PhotoType.fromDirectoryName(photoType);
+    	if(isNotNull(type)) {
+    		return getImage(type, id, size);
+    	}
+		return new ResponseEntity<String>("Tipo de imagem inválido.", HttpStatus.BAD_REQUEST);
+	}
+    
+    @Override
+    @PostMapping("/image/metadata")
+	public ResponseEntity<?> getImagesMetadata(@RequestBody List<ImageReference> imageReferences) {
+    	if(isNull(imageReferences) || imageReferences.isEmpty()) {
+    		return new ResponseEntity<String>("Lista de imagens não pode ser nula.", HttpStatus.BAD_REQUEST);
+    	}
+    	if(imageReferences.size() > MAX_METADATA_REFERENCES) {
+    		return new ResponseEntity<String>("Máximo de " + MAX_METADATA_REFERENCES + " imagens por requisição.", HttpStatus.BAD_REQUEST);
+    	}
+    	for(ImageReference imageReference : imageReferences) {
+    		if(isNull(imageReference) || isNull(imageReference.id) || isNull(PhotoType.fromDirectoryName(imageReference.type))) {
+    			return new ResponseEntity<String>("Tipo de imagem ou ID inválido.", HttpStatus.BAD_REQUEST);
+    		}
+    	}
+		return new ResponseEntity<List<ImageMetadata>>(imageService.findMetadata(imageReferences), HttpStatus.OK);
+	}
+    
     @Override
     @GetMapping("/user/image/")
-	public ResponseEntity<?> getUserImage() {
+	public ResponseEntity<?> getUserImage(@RequestParam(value="size", required=false) Integer size) {
     	User currentUser = getCurrentUser();
-    	return getImage(currentUser);
+    	if(isNotNull(currentUser)) {
+        	return getImage(currentUser, size);
+    	}
+    	return new ResponseEntity<String>("Usuário inválido.", HttpStatus.UNAUTHORIZED);
 	}
     
     @Override
     @GetMapping("/post/image/{postId}")
-	public ResponseEntity<?> getPostImage(@PathVariable Long postId) {
-    	Post post = postRepository.findOne(postId);
-		return getImage(post);
+	public ResponseEntity<?> getPostImage(@PathVariable Long postId, @RequestParam(value="size", required=false) Integer size) {
+    	if(isNotNull(postId)) {
+        	Post post = postRepository.findOne(postId);
+        	if(isNotNull(post)) {
+        		return getImage(post, size);
+        	}
+        	return new ResponseEntity<String>("Postagem não encontrada.", HttpStatus.NOT_FOUND);
+    	}
+		return new ResponseEntity<String>("ID não pode ser nulo.", HttpStatus.BAD_REQUEST);
 	}
     
     @Override
     @GetMapping("/flower_shop/")
-	public ResponseEntity<?> getFlowerShopImage() {
+	public ResponseEntity<?> getFlowerShopImage(@RequestParam(value="size", required=false) Integer size) {
     	User currentUser = getCurrentUser();
     	if(isNotNull(currentUser)) {
         	FlowerShop flowerShop = currentUser.getFlowerShop();
         	if(isNotNull(flowerShop) && flowerShop.getEnabled()) {
-            	return getImage(flowerShop);
+            	return getImage(flowerShop, size);
         	}
         	return new ResponseEntity<String>("Usuário atual não possui floricultura ou ela esta inativa.", HttpStatus.NOT_FOUND);
     	}
@@ -218,11 +267,11 @@ public class ImageUploadControllerImpl extends IsHelper implements ImageUploadCo
     
     @Override
     @GetMapping("/species/image/{speciesId}")
-	public ResponseEntity<?> getSpeciesImage(@PathVariable Long speciesId) {
+	public ResponseEntity<?> getSpeciesImage(@PathVariable Long speciesId, @RequestParam(value="size", required=false) Integer size) {
     	if(isNotNull(speciesId)) {
         	Species species = speciesRepository.findOne(speciesId);
         	if(isNotNull(species)) {
-        		return getImage(species);
+        		return getImage(species, size);
         	}
         	return new ResponseEntity<String>("Espécie não encontrada.", HttpStatus.NOT_FOUND);
     	}
@@ -231,11 +280,11 @@ public class ImageUploadControllerImpl extends IsHelper implements ImageUploadCo
     
     @Override
     @GetMapping("/achievement/image/{achievementId}")
-	public ResponseEntity<?> getAchievementImage(@PathVariable Long achievementId) {
+	public ResponseEntity<?> getAchievementImage(@PathVariable Long achievementId, @RequestParam(value="size", required=false) Integer size) {
     	if(isNotNull(achievementId)) {
     		Achievement achievementDB = achievementRepository.findOne(achievementId);
         	if(isNotNull(achievementDB)) {
-        		return getImage(achievementDB);
+        		return getImage(achievementDB, size);
         	}
         	return new ResponseEntity<String>("Conquista não encontrada.", HttpStatus.NOT_FOUND);
     	}
@@ -244,11 +293,11 @@ public class ImageUploadControllerImpl extends IsHelper implements ImageUploadCo
     
     @Override
     @GetMapping("/flower/image/{flowerId}")
-	public ResponseEntity<?> getFlowerImage(@PathVariable Long flowerId) {
+	public ResponseEntity<?> getFlowerImage(@PathVariable Long flowerId, @RequestParam(value="size", required=false) Integer size) {
     	if(isNotNull(flowerId)) {
     		Flower flowerDB = flowerRepository.findOne(flowerId);
         	if(isNotNull(flowerDB)) {
-        		return getImage(flowerDB);
+        		return getImage(flowerDB, size);
         	}
         	return new ResponseEntity<String>("Flor não encontrada.", HttpStatus.NOT_FOUND);
     	}
@@ -256,12 +305,12 @@ public class ImageUploadControllerImpl extends IsHelper implements ImageUploadCo
 	}
     
     @Override
-    @GetMapping("/fruit/image/{flowerId}")
-	public ResponseEntity<?> getFruitImage(@PathVariable Long fruitId) {
+    @GetMapping("/fruit/image/{fruitId}")
+	public ResponseEntity<?> getFruitImage(@PathVariable Long fruitId, @RequestParam(value="size", required=false) Integer size) {
     	if(isNotNull(fruitId)) {
     		Fruit fruitDB = fruitRepository.findOne(fruitId);
         	if(isNotNull(fruitDB)) {
-        		return getImage(fruitDB);
+        		return getImage(fruitDB, size);
         	}
         	return new ResponseEntity<String>("Fruto não encontrado.", HttpStatus.NOT_FOUND);
     	}
@@ -269,12 +318,12 @@ public class ImageUploadControllerImpl extends IsHelper implements ImageUploadCo
 	}
     
     @Override
-    @GetMapping("/offer/image/{flowerId}")
-	public ResponseEntity<?> getOfferImage(@PathVariable Long offerId) {
+    @GetMapping("/offer/image/{offerId}")
+	public ResponseEntity<?> getOfferImage(@PathVariable Long offerId, @RequestParam(value="size", required=false) Integer size) {
     	if(isNotNull(offerId)) {
     		Offer offerDB = offerRepository.findOne(offerId);
         	if(isNotNull(offerDB)) {
-        		return getImage(offerDB);
+        		return getImage(offerDB, size);
         	}
         	return new ResponseEntity<String>("Oferta não encontrada.", HttpStatus.NOT_FOUND);
     	}
@@ -283,53 +332,59 @@ public class ImageUploadControllerImpl extends IsHelper implements ImageUploadCo
      
     private ResponseEntity<String> saveImage(MultipartFile multiPartFile, PhotogenicEntity photogenicEntity){
     	try {
-    		ImageHelper imageHelper = new ImageHelper(photogenicEntity);
-    		if(imageHelper.save(multiPartFile)) {
-    			if(!photogenicEntity.getHasImage()){
-        			photogenicEntity.setHasImage(true);
-        			if(isNull(imageService.save(photogenicEntity))) {
-        				return new ResponseEntity<String>("Erro ao salvar dados no banco.", HttpStatus.INTERNAL_SERVER_ERROR);
-        			}
-        		}
+    		if(imageService.saveImage(photogenicEntity, multiPartFile)) {
     			return new ResponseEntity<String>("Imagem salva com sucesso", HttpStatus.CREATED);
     		}
     		return new ResponseEntity<String>("Formato de imagem inválido ou arquivo muito grande", HttpStatus.NOT_ACCEPTABLE);
 		} catch (DirectoryException e) {
 	    	return new ResponseEntity<String>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+		} catch (SaveOnDatabaseException e) {
+	    	return new ResponseEntity<String>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+		} catch (InvalidImageException e) {
+	    	return new ResponseEntity<String>(e.getMessage(), HttpStatus.NOT_ACCEPTABLE);
 		} catch (IOException e) {
 	    	return new ResponseEntity<String>("Erro ao ler imagem.", HttpStatus.INTERNAL_SERVER_ERROR);
 		}
     }
     
-    private ResponseEntity<?> getImage(PhotogenicEntity photogenicEntity){
-		try {
-			ImageHelper imageHelper = new ImageHelper(photogenicEntity);
-			try {
-				String base64String = imageHelper.getImage();
-				User currentUser = 	getCurrentUser();
-				currentUser.setImage(base64String);
-				if(isNotNull(base64String)) {
-					byte[] imageByteArray = Base64.getDecoder().decode(currentUser.getImage());
-
-					// Write a image byte array into file system
-					FileOutputStream imageOutFile = new FileOutputStream(
-							"dois.jpg");
-
-					imageOutFile.write(imageByteArray);
-
-					imageOutFile.close();
-					return new ResponseEntity<User>(currentUser, HttpStatus.OK);
-				}else {
-					return new ResponseEntity<String>("Imagem não encontrada", HttpStatus.NOT_FOUND);
-				}
-			} catch (IOException e) {
-		    	return new ResponseEntity<String>("Erro ao ler imagem.", HttpStatus.INTERNAL_SERVER_ERROR);
-			} catch (JSONException e) {
-		    	return new ResponseEntity<String>("Erro ao converter imagem.", HttpStatus.INTERNAL_SERVER_ERROR);
-			}
-		} catch (DirectoryException e) {
-	    	return new ResponseEntity<String>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
-		}
+    private ResponseEntity<?> getImage(PhotogenicEntity photogenicEntity, Integer size){
+    	return getImage(photogenicEntity.getPhotoType(), photogenicEntity.getId(), size);
+    }
+    
+    /**
+     * Streams the stored image as binary, conditional requests (If-None-Match and
+     * If-Modified-Since) are answered with 304 using the ETag and Last-Modified
+     * headers set here. When a size is requested the smallest derivative covering
+     * it is served, if it was not generated yet the original is served and the
+     * generation is queued
+     */
+    private ResponseEntity<?> getImage(PhotoType photoType, Long id, Integer size){
+    	if(isNull(id)) {
+    		return new ResponseEntity<String>("ID não pode ser nulo.", HttpStatus.BAD_REQUEST);
+    	}
+    	StoredImage image = imageService.findImage(photoType, id, null);
+    	if(isNull(image)) {
+    		return new ResponseEntity<String>("Imagem não encontrada", HttpStatus.NOT_FOUND);
+    	}
+    	if(isNotNull(size)) {
+    		if(size <= 0) {
+    			return new ResponseEntity<String>("Tamanho de imagem inválido.", HttpStatus.BAD_REQUEST);
+    		}
+    		StoredImage derivative = imageService.findImage(photoType, id, photoType.getImageSize(size));
+    		if(isNotNull(derivative)) {
+    			image = derivative;
+    		} else {
+    			imageDerivativeService.generate(photoType, id);
+    		}
+    	}
+    	MediaType mediaType = image.getFormat().equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+		return ResponseEntity.ok()
+				.contentType(mediaType)
+				.contentLength(image.getLength())
+				.cacheControl(CacheControl.noCache().cachePrivate())
+				.eTag("\"" + image.getVersion() + "\"")
+				.lastModified(image.getLastModified())
+				.body(new FileSystemResource(image.getFile()));
     }
     
 }
@@ -13,22 +13,32 @@ import com.greenshare.entity.vegetable.SearchClass;
  */
 public interface OfferController extends BasicController<Offer, Long>{
 	
-	ResponseEntity<?> findAllByFlowerShop(Long id);
+	ResponseEntity<?> findAllByFlowerShop(Long id, Integer page, Integer size);
 
 	ResponseEntity<?> delete(Long id);
 
-	ResponseEntity<?> findAllByUser(Long id);
+	ResponseEntity<?> findAllByUser(Long id, Integer page, Integer size);
 
-	ResponseEntity<?> findAllBySpecies(Long id);
+	ResponseEntity<?> findAllBySpecies(Long id, Integer page, Integer size);
 
-	ResponseEntity<?> findAllByState(Long id);
+	ResponseEntity<?> findAllByState(Long id, Integer page, Integer size);
 
-	ResponseEntity<?> findAllByCity(Long id);
+	ResponseEntity<?> findAllByCity(Long id, Integer page, Integer size);
 	
-	ResponseEntity<?> findAllByCurrentUser();
+	ResponseEntity<?> findAllByCurrentUser(Integer page, Integer size);
 
-	ResponseEntity<?> findAll();
+	ResponseEntity<?> findAll(Integer page, Integer size);
 
-	ResponseEntity<?> search(Integer page, Integer size, SearchClass searchClass);
+	ResponseEntity<?> export();
+
+	ResponseEntity<?> search(Integer page, Integer size, SearchClass searchClass, String embed);
+
+	ResponseEntity<?> searchFeed(String cursor, Integer size, SearchClass searchClass, String embed);
+
+	ResponseEntity<?> searchNearby(Integer page, Integer size, Integer distance, SearchClass searchClass, String embed);
+
+	ResponseEntity<?> searchText(String text, Integer page, Integer size);
+
+	ResponseEntity<?> findFacets(SearchClass searchClass);
 	
 }
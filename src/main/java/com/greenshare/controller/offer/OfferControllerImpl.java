@@ -1,6 +1,7 @@
 package com.greenshare.controller.offer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,10 +10,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.greenshare.entity.offer.Offer;
 import com.greenshare.entity.vegetable.SearchClass;
+import com.greenshare.service.offer.OfferExportService;
 import com.greenshare.service.offer.OfferServiceImpl;
 
 /**
@@ -24,9 +28,16 @@ import com.greenshare.service.offer.OfferServiceImpl;
 @RequestMapping("/offer/")
 public class OfferControllerImpl implements OfferController {
 
+	private static final String EMBED_THUMBNAILS = "thumbnails";
+
+	private static final String NDJSON = "application/x-ndjson";
+
 	@Autowired
 	OfferServiceImpl offerService;
 
+	@Autowired
+	OfferExportService offerExportService;
+
 	@Override
 	@PostMapping("")
 	public ResponseEntity<?> save(@RequestBody Offer offer) {
@@ -47,26 +58,60 @@ public class OfferControllerImpl implements OfferController {
 
 	@Override
 	@GetMapping("user/{id}")
-	public ResponseEntity<?> findAllByUser(@PathVariable Long id) {
-		return offerService.findAllByUser(id);
+	public ResponseEntity<?> findAllByUser(@PathVariable Long id, @RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return offerService.findAllByUser(id, page, size);
 	}
 	
 	@Override
 	@PutMapping("search/{page}/{size}")
-	public ResponseEntity<?> search(@PathVariable Integer page, @PathVariable Integer size, @RequestBody SearchClass searchClass) {
-		return offerService.search(page, size, searchClass);
+	public ResponseEntity<?> search(@PathVariable Integer page, @PathVariable Integer size, @RequestBody SearchClass searchClass,
+			@RequestParam(value = "embed", required = false) String embed) {
+		return offerService.search(page, size, searchClass, EMBED_THUMBNAILS.equals(embed));
+	}
+
+	@Override
+	@PutMapping("search/feed")
+	public ResponseEntity<?> searchFeed(@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", defaultValue = "20") Integer size, @RequestBody SearchClass searchClass,
+			@RequestParam(value = "embed", required = false) String embed) {
+		return offerService.searchFeed(cursor, size, searchClass, EMBED_THUMBNAILS.equals(embed));
+	}
+
+	@Override
+	@PutMapping("search/nearby/{page}/{size}")
+	public ResponseEntity<?> searchNearby(@PathVariable Integer page, @PathVariable Integer size,
+			@RequestParam(value = "distance", defaultValue = "50") Integer distance, @RequestBody SearchClass searchClass,
+			@RequestParam(value = "embed", required = false) String embed) {
+		return offerService.searchNearby(page, size, distance, searchClass, EMBED_THUMBNAILS.equals(embed));
+	}
+
+	@Override
+	@GetMapping("search/text")
+	public ResponseEntity<?> searchText(@RequestParam(value = "text") String text,
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return offerService.searchText(text, page, size);
+	}
+
+	@Override
+	@PutMapping("search/facets")
+	public ResponseEntity<?> findFacets(@RequestBody SearchClass searchClass) {
+		return offerService.findFacets(searchClass);
 	}
 
 	@Override
 	@GetMapping("flower_shop/{id}")
-	public ResponseEntity<?> findAllByFlowerShop(@PathVariable Long id) {
-		return offerService.findAllByFlowerShop(id);
+	public ResponseEntity<?> findAllByFlowerShop(@PathVariable Long id, @RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return offerService.findAllByFlowerShop(id, page, size);
 	}
 	
 	@Override
 	@GetMapping("species/{id}")
-	public ResponseEntity<?> findAllBySpecies(@PathVariable Long id) {
-		return offerService.findAllBySpecies(id);
+	public ResponseEntity<?> findAllBySpecies(@PathVariable Long id, @RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return offerService.findAllBySpecies(id, page, size);
 	}
 
 	@Override
@@ -77,25 +122,40 @@ public class OfferControllerImpl implements OfferController {
 
 	@Override
 	@GetMapping("state/{id}")
-	public ResponseEntity<?> findAllByState(@PathVariable Long id) {
-		return offerService.findAllByState(id);
+	public ResponseEntity<?> findAllByState(@PathVariable Long id, @RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return offerService.findAllByState(id, page, size);
 	}
 
 	@Override
 	@GetMapping("city/{id}")
-	public ResponseEntity<?> findAllByCity(@PathVariable Long id) {
-		return offerService.findAllByCity(id);
+	public ResponseEntity<?> findAllByCity(@PathVariable Long id, @RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return offerService.findAllByCity(id, page, size);
 	}
 	
 	@Override
 	@GetMapping("")
-	public ResponseEntity<?> findAll() {
-		return offerService.findAll();
+	public ResponseEntity<?> findAll(@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return offerService.findAll(page, size);
+	}
+
+	@Override
+	@GetMapping(value = "export", produces = NDJSON)
+	public ResponseEntity<?> export() {
+		StreamingResponseBody body = offerExportService.export();
+		if (body == null) {
+			return new ResponseEntity<String>("Exportação em andamento, tente novamente mais tarde.",
+					HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		return new ResponseEntity<StreamingResponseBody>(body, HttpStatus.OK);
 	}
 
 	@Override
 	@GetMapping("current_user/")
-	public ResponseEntity<?> findAllByCurrentUser() {
-		return offerService.findAllByCurrentUser();
+	public ResponseEntity<?> findAllByCurrentUser(@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return offerService.findAllByCurrentUser(page, size);
 	}
 }
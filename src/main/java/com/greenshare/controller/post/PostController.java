@@ -12,7 +12,7 @@ import com.greenshare.entity.post.Post;
  */
 public interface PostController extends BasicController<Post, Long>{
 
-	ResponseEntity<?> findAllByPage(Integer page, Integer size);
+	ResponseEntity<?> findAllByPage(Integer page, Integer size, String embed);
 
 	ResponseEntity<?> findAllByUser(Long id, Integer page, Integer size);
 
@@ -22,4 +22,16 @@ public interface PostController extends BasicController<Post, Long>{
 	
 	ResponseEntity<?> findAllByCity(Long id, Integer page, Integer size);
 
+	ResponseEntity<?> findFeed(String cursor, Integer size, String embed);
+
+	ResponseEntity<?> findFeedByUser(Long id, String cursor, Integer size);
+
+	ResponseEntity<?> findFeedBySpecies(Long id, String cursor, Integer size);
+
+	ResponseEntity<?> findFeedByState(Long id, String cursor, Integer size);
+
+	ResponseEntity<?> findFeedByCity(Long id, String cursor, Integer size);
+
+	ResponseEntity<?> search(String text, Integer page, Integer size);
+
 }
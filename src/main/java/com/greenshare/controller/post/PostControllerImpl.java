@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.greenshare.entity.post.Post;
@@ -23,6 +24,8 @@ import com.greenshare.service.post.PostServiceImpl;
 @RequestMapping("/post/")
 public class PostControllerImpl implements PostController {
 
+	private static final String EMBED_THUMBNAILS = "thumbnails";
+
 	@Autowired
 	PostServiceImpl postService;
 
@@ -52,8 +55,9 @@ public class PostControllerImpl implements PostController {
 
 	@Override
 	@GetMapping("page/{page}/size/{size}")
-	public ResponseEntity<?> findAllByPage(@PathVariable Integer page, @PathVariable Integer size) {
-		return postService.findAllByPage(page, size);
+	public ResponseEntity<?> findAllByPage(@PathVariable Integer page, @PathVariable Integer size,
+			@RequestParam(value = "embed", required = false) String embed) {
+		return postService.findAllByPage(page, size, EMBED_THUMBNAILS.equals(embed));
 	}
 
 	@Override
@@ -84,4 +88,52 @@ public class PostControllerImpl implements PostController {
 		return postService.findAllByCity(id, page, size);
 	}
 
+	@Override
+	@GetMapping("feed")
+	public ResponseEntity<?> findFeed(@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", defaultValue = "20") Integer size,
+			@RequestParam(value = "embed", required = false) String embed) {
+		return postService.findFeed(cursor, size, EMBED_THUMBNAILS.equals(embed));
+	}
+
+	@Override
+	@GetMapping("user/{id}/feed")
+	public ResponseEntity<?> findFeedByUser(@PathVariable Long id,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return postService.findFeedByUser(id, cursor, size);
+	}
+
+	@Override
+	@GetMapping("species/{id}/feed")
+	public ResponseEntity<?> findFeedBySpecies(@PathVariable Long id,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return postService.findFeedBySpecies(id, cursor, size);
+	}
+
+	@Override
+	@GetMapping("state/{id}/feed")
+	public ResponseEntity<?> findFeedByState(@PathVariable Long id,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return postService.findFeedByState(id, cursor, size);
+	}
+
+	@Override
+	@GetMapping("city/{id}/feed")
+	public ResponseEntity<?> findFeedByCity(@PathVariable Long id,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return postService.findFeedByCity(id, cursor, size);
+	}
+
+	@Override
+	@GetMapping("search")
+	public ResponseEntity<?> search(@RequestParam(value = "text") String text,
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return postService.search(text, page, size);
+	}
+
 }
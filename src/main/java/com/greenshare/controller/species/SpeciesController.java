@@ -25,5 +25,10 @@ public interface SpeciesController {
 	
 	ResponseEntity<?> delete(Long id);
 
-	ResponseEntity<?> findAll();	
+	ResponseEntity<?> findAll();
+
+	ResponseEntity<?> search(String text, Integer page, Integer size);
+
+	ResponseEntity<?> autocomplete(String text, Integer limit);
+	
 }
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.greenshare.entity.vegetable.Species;
@@ -50,6 +51,21 @@ public class SpeciesControllerImpl implements SpeciesController{
 		return speciesService.findAll();
 	}
 
+	@Override
+	@GetMapping("search")
+	public ResponseEntity<?> search(@RequestParam(value = "text") String text,
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "size", defaultValue = "20") Integer size) {
+		return speciesService.search(text, page, size);
+	}
+
+	@Override
+	@GetMapping("autocomplete")
+	public ResponseEntity<?> autocomplete(@RequestParam(value = "text", required = false) String text,
+			@RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+		return speciesService.autocomplete(text, limit);
+	}
+
 	@Override
 	@PutMapping("enable/{id}")
 	public ResponseEntity<?> enable(@PathVariable Long id) {
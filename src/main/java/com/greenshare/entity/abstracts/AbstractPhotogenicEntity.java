@@ -10,6 +10,7 @@ import org.springframework.data.annotation.Transient;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.greenshare.entity.interfaces.PhotogenicEntity;
 import com.greenshare.enumeration.PhotoType;
+import com.greenshare.helpers.ImageHelper;
 
 /**
  * Abstract class for entities with images to upload
@@ -48,4 +49,11 @@ public abstract class AbstractPhotogenicEntity<Entity> extends AbstractEntity<En
 	public PhotoType getPhotoType() {
 		return this.photoType;
 	}
+
+	public String getImageUrl() {
+		if (Boolean.TRUE.equals(this.hasImage) && isNotNull(getId())) {
+			return ImageHelper.getImageUrl(this.photoType, getId());
+		}
+		return null;
+	}
 }
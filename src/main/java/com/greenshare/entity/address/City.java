@@ -23,7 +23,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.greenshare.entity.abstracts.AbstractEntity;
 
 /**
- * Persistence class for the table city
+ * Persistence class for the table city, latitude and longitude are the
+ * coordinates of the city seat and may be null on cities not geocoded yet
  * 
  * @author joao.silva
  */
@@ -55,6 +56,12 @@ public class City extends AbstractEntity<City> implements Serializable {
 	@JoinColumn(name = "state_id")
 	private State state;
 	
+	@Column(name = "latitude")
+	private Double latitude;
+
+	@Column(name = "longitude")
+	private Double longitude;
+
 	@JsonIgnore
 	@Valid
 	@OneToMany(mappedBy = "city")
@@ -70,6 +77,12 @@ public class City extends AbstractEntity<City> implements Serializable {
 		this.state = state;
 	}
 
+	public City(String name, State state, Double latitude, Double longitude) {
+		this(name, state);
+		this.latitude = latitude;
+		this.longitude = longitude;
+	}
+
 	@Override
 	public boolean isValid() {
 		this.validationErrors.clear();
@@ -84,6 +97,14 @@ public class City extends AbstractEntity<City> implements Serializable {
 			this.validationErrors.addAll(this.state.getValidationErrors());
 		}
 
+		if (isNotNull(this.latitude) && (this.latitude < -90 || this.latitude > 90)) {
+			this.validationErrors.add("Latitude inválida.");
+		}
+
+		if (isNotNull(this.longitude) && (this.longitude < -180 || this.longitude > 180)) {
+			this.validationErrors.add("Longitude inválida.");
+		}
+
 		return this.validationErrors.isEmpty();
 	}
 
@@ -100,6 +121,18 @@ public class City extends AbstractEntity<City> implements Serializable {
 		return state;
 	}
 	
+	public Double getLatitude() {
+		return latitude;
+	}
+
+	public Double getLongitude() {
+		return longitude;
+	}
+
+	public boolean hasCoordinates() {
+		return isNotNull(this.latitude) && isNotNull(this.longitude);
+	}
+
 	public List<Address> getAddresses() {
 		return addresses;
 	}
@@ -107,5 +140,7 @@ public class City extends AbstractEntity<City> implements Serializable {
 	public void update(City city) {
 		this.name = city.getName();
 		this.state = city.getState();
+		this.latitude = city.getLatitude();
+		this.longitude = city.getLongitude();
 	}
 }
@@ -0,0 +1,133 @@
+package com.greenshare.entity.image;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+
+import java.io.Serializable;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+import com.greenshare.entity.abstracts.AbstractEntity;
+
+/**
+ * Persistence class for the table image_blob, an image file stored once by
+ * the SHA-256 of its content and shared by every {@link ImageLink} to it
+ * 
+ * @author joao.silva
+ */
+@Entity
+@Table(name = "image_blob")
+public class ImageBlob extends AbstractEntity<ImageBlob> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String SEQUENCE_NAME = "image_blob_seq";
+
+	@Id
+	@GeneratedValue(strategy = SEQUENCE, generator = SEQUENCE_NAME)
+	@SequenceGenerator(name = SEQUENCE_NAME, sequenceName = SEQUENCE_NAME)
+	@Basic(optional = false)
+	@Column(name = "image_blob_id")
+	private Long id;
+
+	@Basic(optional = false)
+	@NotNull
+	@Size(min = 64, max = 64)
+	@Column(name = "hash", length = 64, unique = true)
+	private String hash;
+
+	@Basic(optional = false)
+	@NotNull
+	@Column(name = "format", length = 4)
+	private String format;
+
+	@Basic(optional = false)
+	@NotNull
+	@Column(name = "length")
+	private Long length;
+
+	@Basic(optional = true)
+	@Column(name = "width")
+	private Integer width;
+
+	@Basic(optional = true)
+	@Column(name = "height")
+	private Integer height;
+
+	@Basic(optional = false)
+	@NotNull
+	@Column(name = "reference_count")
+	private Integer referenceCount;
+
+	protected ImageBlob() {
+		super(false);
+	}
+
+	public ImageBlob(String hash, String format, Long length, Integer width, Integer height) {
+		super(true);
+		this.hash = hash;
+		this.format = format;
+		this.length = length;
+		this.width = width;
+		this.height = height;
+		this.referenceCount = 0;
+	}
+
+	@Override
+	public Long getId() {
+		return this.id;
+	}
+
+	@Override
+	public boolean isValid() {
+		this.validationErrors.clear();
+
+		if (isNull(this.hash) || this.hash.length() != 64) {
+			this.validationErrors.add("Hash da imagem inválido.");
+		}
+		if (isNull(this.format)) {
+			this.validationErrors.add("Formato da imagem não pode ser nulo.");
+		}
+		if (isNull(this.length) || this.length < 0) {
+			this.validationErrors.add("Tamanho da imagem inválido.");
+		}
+
+		return this.validationErrors.isEmpty();
+	}
+
+	@Override
+	public void update(ImageBlob e) {
+		this.referenceCount = e.getReferenceCount();
+	}
+
+	public String getHash() {
+		return this.hash;
+	}
+
+	public String getFormat() {
+		return this.format;
+	}
+
+	public Long getLength() {
+		return this.length;
+	}
+
+	public Integer getWidth() {
+		return this.width;
+	}
+
+	public Integer getHeight() {
+		return this.height;
+	}
+
+	public Integer getReferenceCount() {
+		return this.referenceCount;
+	}
+}
@@ -0,0 +1,139 @@
+package com.greenshare.entity.image;
+
+import static javax.persistence.GenerationType.SEQUENCE;
+
+import java.io.Serializable;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotNull;
+
+import com.greenshare.entity.abstracts.AbstractEntity;
+import com.greenshare.enumeration.ImageSize;
+import com.greenshare.enumeration.PhotoType;
+
+/**
+ * Persistence class for the table image_link, points an image (original or
+ * derivative) of a photogenic entity to its {@link ImageBlob}
+ * 
+ * @author joao.silva
+ */
+@Entity
+@Table(name = "image_link", uniqueConstraints = @UniqueConstraint(columnNames = { "photo_type", "entity_id",
+		"image_size" }))
+public class ImageLink extends AbstractEntity<ImageLink> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String SEQUENCE_NAME = "image_link_seq";
+
+	/* Value of the image_size column for the original image */
+	public static final Integer ORIGINAL = 0;
+
+	@Id
+	@GeneratedValue(strategy = SEQUENCE, generator = SEQUENCE_NAME)
+	@SequenceGenerator(name = SEQUENCE_NAME, sequenceName = SEQUENCE_NAME)
+	@Basic(optional = false)
+	@Column(name = "image_link_id")
+	private Long id;
+
+	@Basic(optional = false)
+	@NotNull
+	@Column(name = "photo_type")
+	private Integer photoType;
+
+	@Basic(optional = false)
+	@NotNull
+	@Column(name = "entity_id")
+	private Long entityId;
+
+	@Basic(optional = false)
+	@NotNull
+	@Column(name = "image_size")
+	private Integer imageSize;
+
+	@NotNull
+	@ManyToOne
+	@JoinColumn(name = "image_blob_id")
+	private ImageBlob imageBlob;
+
+	protected ImageLink() {
+		super(false);
+	}
+
+	public ImageLink(PhotoType photoType, Long entityId, ImageSize imageSize, ImageBlob imageBlob) {
+		super(true);
+		this.photoType = photoType.getNumberType();
+		this.entityId = entityId;
+		this.imageSize = toImageSize(imageSize);
+		this.imageBlob = imageBlob;
+	}
+
+	/**
+	 * @return the image_size value, {@link #ORIGINAL} for a null size
+	 */
+	public static Integer toImageSize(ImageSize imageSize) {
+		return imageSize == null ? ORIGINAL : imageSize.getPixels();
+	}
+
+	@Override
+	public Long getId() {
+		return this.id;
+	}
+
+	@Override
+	public boolean isValid() {
+		this.validationErrors.clear();
+
+		if (isNull(this.photoType) || !PhotoType.exists(this.photoType)) {
+			this.validationErrors.add("Tipo de imagem inexistente.");
+		}
+		if (isNull(this.entityId)) {
+			this.validationErrors.add("ID não pode ser nulo.");
+		}
+		if (isNull(this.imageBlob)) {
+			this.validationErrors.add("Imagem não pode ser nula.");
+		}
+
+		return this.validationErrors.isEmpty();
+	}
+
+	@Override
+	public void update(ImageLink e) {
+		this.imageBlob = e.getImageBlob();
+		this.insertionDate = e.getInsertionDate();
+	}
+
+	public Integer getPhotoType() {
+		return this.photoType;
+	}
+
+	public Long getEntityId() {
+		return this.entityId;
+	}
+
+	public Integer getImageSize() {
+		return this.imageSize;
+	}
+
+	public boolean isOriginal() {
+		return ORIGINAL.equals(this.imageSize);
+	}
+
+	public ImageBlob getImageBlob() {
+		return this.imageBlob;
+	}
+
+	public void setImageBlob(ImageBlob imageBlob) {
+		this.imageBlob = imageBlob;
+		setInsertionDate();
+	}
+}
@@ -0,0 +1,63 @@
+package com.greenshare.entity.image;
+
+import java.io.Serializable;
+
+/**
+ * Helper class with the image data of a photogenic entity that the clients
+ * need to render it, the hash and dimensions are null for images saved before
+ * the content-addressed store
+ * 
+ * @author joao.silva
+ */
+public class ImageMetadata implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String type;
+	private Long id;
+	private Boolean hasImage;
+	private String url;
+	private String hash;
+	private Integer width;
+	private Integer height;
+
+	public ImageMetadata(String type, Long id, Boolean hasImage, String url, ImageBlob imageBlob) {
+		this.type = type;
+		this.id = id;
+		this.hasImage = hasImage;
+		this.url = url;
+		if (imageBlob != null) {
+			this.hash = imageBlob.getHash();
+			this.width = imageBlob.getWidth();
+			this.height = imageBlob.getHeight();
+		}
+	}
+
+	public String getType() {
+		return this.type;
+	}
+
+	public Long getId() {
+		return this.id;
+	}
+
+	public Boolean getHasImage() {
+		return this.hasImage;
+	}
+
+	public String getUrl() {
+		return this.url;
+	}
+
+	public String getHash() {
+		return this.hash;
+	}
+
+	public Integer getWidth() {
+		return this.width;
+	}
+
+	public Integer getHeight() {
+		return this.height;
+	}
+}
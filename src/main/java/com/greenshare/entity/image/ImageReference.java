@@ -0,0 +1,25 @@
+package com.greenshare.entity.image;
+
+import java.io.Serializable;
+
+/**
+ * Helper class to ask for the image of a photogenic entity, the type is the
+ * directory name of its {@link com.greenshare.enumeration.PhotoType}
+ * 
+ * @author joao.silva
+ */
+public class ImageReference implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public String type;
+	public Long id;
+
+	public ImageReference(String type, Long id) {
+		this.type = type;
+		this.id = id;
+	}
+
+	public ImageReference() {
+	}
+}
@@ -27,7 +27,8 @@ import java.util.List;
  * @author joao.silva
  */
 @Entity
-@Table(name = "offer")
+@Table(name = "offer", indexes = { @Index(name = "offer_species_idx", columnList = "species_id"),
+		@Index(name = "offer_insertion_date_idx", columnList = "insertion_date") })
 public class Offer extends AbstractPhotogenicEntity<Offer> implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -64,6 +65,10 @@ public class Offer extends AbstractPhotogenicEntity<Offer> implements Serializab
 	@Transient
 	private String image;
 
+	/* Km from the city of the current user, only set by the search by distance */
+	@Transient
+	private Double distance;
+
 	@Basic(optional = false)
 	@Column(name = "offer_status", columnDefinition = "TEXT")
 	private Integer offerStatus;
@@ -227,6 +232,14 @@ public class Offer extends AbstractPhotogenicEntity<Offer> implements Serializab
 		this.image = image;
 	}
 
+	public Double getDistance() {
+		return distance;
+	}
+
+	public void setDistance(Double distance) {
+		this.distance = distance;
+	}
+
 	@Override
 	public void update(Offer e) {
 		this.description = e.getDescription();
@@ -0,0 +1,98 @@
+package com.greenshare.entity.offer;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Helper class with the number of active offers of a search for each filter
+ * value. The count of a value is taken with the other filters of the search
+ * and without the filter of its own group, so it is the number of offers the
+ * search would have after selecting it. The maps are keyed by the ids of
+ * growth, soil and climate.
+ *
+ * @author joao.silva
+ */
+public class OfferFacets implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private long total;
+	private Map<Long, Long> growth = new HashMap<Long, Long>();
+	private Map<Long, Long> soil = new HashMap<Long, Long>();
+	private Map<Long, Long> climate = new HashMap<Long, Long>();
+	private long isMedicinal;
+	private long attractBirds;
+	private long attractBees;
+	private long isOrnamental;
+	private long withoutFlower;
+	private long withoutFruit;
+
+	public long getTotal() {
+		return this.total;
+	}
+
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	public Map<Long, Long> getGrowth() {
+		return this.growth;
+	}
+
+	public Map<Long, Long> getSoil() {
+		return this.soil;
+	}
+
+	public Map<Long, Long> getClimate() {
+		return this.climate;
+	}
+
+	public long getIsMedicinal() {
+		return this.isMedicinal;
+	}
+
+	public void setIsMedicinal(long isMedicinal) {
+		this.isMedicinal = isMedicinal;
+	}
+
+	public long getAttractBirds() {
+		return this.attractBirds;
+	}
+
+	public void setAttractBirds(long attractBirds) {
+		this.attractBirds = attractBirds;
+	}
+
+	public long getAttractBees() {
+		return this.attractBees;
+	}
+
+	public void setAttractBees(long attractBees) {
+		this.attractBees = attractBees;
+	}
+
+	public long getIsOrnamental() {
+		return this.isOrnamental;
+	}
+
+	public void setIsOrnamental(long isOrnamental) {
+		this.isOrnamental = isOrnamental;
+	}
+
+	public long getWithoutFlower() {
+		return this.withoutFlower;
+	}
+
+	public void setWithoutFlower(long withoutFlower) {
+		this.withoutFlower = withoutFlower;
+	}
+
+	public long getWithoutFruit() {
+		return this.withoutFruit;
+	}
+
+	public void setWithoutFruit(long withoutFruit) {
+		this.withoutFruit = withoutFruit;
+	}
+}
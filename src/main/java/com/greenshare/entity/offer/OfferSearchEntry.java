@@ -0,0 +1,230 @@
+package com.greenshare.entity.offer;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Date;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import com.greenshare.entity.address.Address;
+import com.greenshare.entity.address.City;
+import com.greenshare.entity.interfaces.BasicEntity;
+import com.greenshare.entity.user.User;
+import com.greenshare.entity.vegetable.Species;
+
+/**
+ * Persistence class for the table offer_search, a denormalized projection of
+ * an {@link Offer} with the filtered attributes of its species and the
+ * location of its user, so the search reads one table. Soils and climates are
+ * bitmasks where the bit of an item is its id minus one, booleans are flags.
+ * Latitude and longitude are the coordinates of the city of the user.
+ *
+ * @author joao.silva
+ */
+@Entity
+@Table(name = "offer_search", indexes = {
+		@Index(name = "offer_search_status_date_idx", columnList = "offer_status, insertion_date"),
+		@Index(name = "offer_search_species_idx", columnList = "species_id"),
+		@Index(name = "offer_search_user_idx", columnList = "user_id"),
+		@Index(name = "offer_search_state_idx", columnList = "state_id"),
+		@Index(name = "offer_search_city_idx", columnList = "city_id"),
+		@Index(name = "offer_search_geo_idx", columnList = "latitude, longitude") })
+public class OfferSearchEntry implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/* Flags of the species_flags column */
+	public static final int MEDICINAL = 1;
+	public static final int ATTRACT_BIRDS = 1 << 1;
+	public static final int ATTRACT_BEES = 1 << 2;
+	public static final int ORNAMENTAL = 1 << 3;
+	public static final int HAS_FLOWER = 1 << 4;
+	public static final int HAS_FRUIT = 1 << 5;
+
+	/* Ids of soils and climates that fit on the masks */
+	public static final long MAX_MASK_ID = Long.SIZE;
+
+	@Id
+	@Basic(optional = false)
+	@Column(name = "offer_id")
+	private Long offerId;
+
+	@Column(name = "offer_status")
+	private Integer offerStatus;
+
+	@Column(name = "insertion_date")
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date insertionDate;
+
+	@Column(name = "user_id")
+	private Long userId;
+
+	@Column(name = "city_id")
+	private Long cityId;
+
+	@Column(name = "state_id")
+	private Long stateId;
+
+	@Column(name = "latitude")
+	private Double latitude;
+
+	@Column(name = "longitude")
+	private Double longitude;
+
+	@Column(name = "species_id")
+	private Long speciesId;
+
+	@Column(name = "growth_id")
+	private Long growthId;
+
+	@Column(name = "soil_mask")
+	private Long soilMask;
+
+	@Column(name = "climate_mask")
+	private Long climateMask;
+
+	@Column(name = "species_flags")
+	private Integer speciesFlags;
+
+	@Column(name = "root_depth")
+	private Integer rootDepth;
+
+	@Column(name = "average_height")
+	private Integer averageHeight;
+
+	protected OfferSearchEntry() {
+	}
+
+	public OfferSearchEntry(Offer offer) {
+		this.offerId = offer.getId();
+		this.offerStatus = offer.getOfferStatus();
+		this.insertionDate = offer.getInsertionDate();
+		User user = offer.getUser();
+		if (user != null) {
+			this.userId = user.getId();
+			setLocation(user.getAddress());
+		}
+		setSpecies(offer.getSpecies());
+	}
+
+	public void setLocation(Address address) {
+		City city = address == null ? null : address.getCity();
+		this.cityId = city == null ? null : city.getId();
+		this.stateId = city == null || city.getState() == null ? null : city.getState().getId();
+		this.latitude = city == null ? null : city.getLatitude();
+		this.longitude = city == null ? null : city.getLongitude();
+	}
+
+	public void setSpecies(Species species) {
+		if (species == null) {
+			return;
+		}
+		this.speciesId = species.getId();
+		this.growthId = species.getGrowth() == null ? null : species.getGrowth().getId();
+		this.soilMask = toMask(species.getSoils());
+		this.climateMask = toMask(species.getClimates());
+		this.speciesFlags = toFlags(species);
+		this.rootDepth = species.getRootDepth();
+		this.averageHeight = species.getAverageHeight();
+	}
+
+	/**
+	 * @return the flags of the species booleans and of its flower and fruit
+	 */
+	public static int toFlags(Species species) {
+		int flags = 0;
+		flags |= Boolean.TRUE.equals(species.getIsMedicinal()) ? MEDICINAL : 0;
+		flags |= Boolean.TRUE.equals(species.getAttractBirds()) ? ATTRACT_BIRDS : 0;
+		flags |= Boolean.TRUE.equals(species.getAttractBees()) ? ATTRACT_BEES : 0;
+		flags |= Boolean.TRUE.equals(species.getIsOrnamental()) ? ORNAMENTAL : 0;
+		flags |= species.getFlower() != null ? HAS_FLOWER : 0;
+		flags |= species.getFruit() != null ? HAS_FRUIT : 0;
+		return flags;
+	}
+
+	/**
+	 * @return the mask of the items, ids that don't fit on it are left out
+	 */
+	public static long toMask(Collection<? extends BasicEntity<?>> items) {
+		long mask = 0L;
+		if (items != null) {
+			for (BasicEntity<?> item : items) {
+				if (isMaskId(item.getId())) {
+					mask |= 1L << (item.getId() - 1);
+				}
+			}
+		}
+		return mask;
+	}
+
+	public static boolean isMaskId(Long id) {
+		return id != null && id > 0 && id <= MAX_MASK_ID;
+	}
+
+	public Long getOfferId() {
+		return this.offerId;
+	}
+
+	public Integer getOfferStatus() {
+		return this.offerStatus;
+	}
+
+	public Date getInsertionDate() {
+		return this.insertionDate;
+	}
+
+	public Long getUserId() {
+		return this.userId;
+	}
+
+	public Long getCityId() {
+		return this.cityId;
+	}
+
+	public Long getStateId() {
+		return this.stateId;
+	}
+
+	public Double getLatitude() {
+		return this.latitude;
+	}
+
+	public Double getLongitude() {
+		return this.longitude;
+	}
+
+	public Long getSpeciesId() {
+		return this.speciesId;
+	}
+
+	public Long getGrowthId() {
+		return this.growthId;
+	}
+
+	public Long getSoilMask() {
+		return this.soilMask;
+	}
+
+	public Long getClimateMask() {
+		return this.climateMask;
+	}
+
+	public Integer getSpeciesFlags() {
+		return this.speciesFlags;
+	}
+
+	public Integer getRootDepth() {
+		return this.rootDepth;
+	}
+
+	public Integer getAverageHeight() {
+		return this.averageHeight;
+	}
+}
@@ -11,6 +11,7 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -32,7 +33,7 @@ import com.greenshare.enumeration.PhotoType;
  * @author joao.silva
  */
 @Entity
-@Table(name = "post")
+@Table(name = "post", indexes = @Index(name = "post_feed_idx", columnList = "insertion_date, post_id"))
 public class Post extends AbstractPhotogenicEntity<Post> implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -0,0 +1,44 @@
+package com.greenshare.entity.user;
+
+import java.io.Serializable;
+
+/**
+ * Helper class with the tokens given on login, the access token is sent as
+ * "Authorization: Bearer" and the refresh token gets new tokens when it
+ * expires
+ *
+ * @author joao.silva
+ */
+public class AuthToken implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String accessToken;
+
+	private final String refreshToken;
+
+	/* Seconds until the access token expires */
+	private final Long expiresIn;
+
+	public AuthToken(String accessToken, String refreshToken, Long expiresIn) {
+		this.accessToken = accessToken;
+		this.refreshToken = refreshToken;
+		this.expiresIn = expiresIn;
+	}
+
+	public String getAccessToken() {
+		return this.accessToken;
+	}
+
+	public String getRefreshToken() {
+		return this.refreshToken;
+	}
+
+	public String getTokenType() {
+		return "Bearer";
+	}
+
+	public Long getExpiresIn() {
+		return this.expiresIn;
+	}
+}
@@ -0,0 +1,53 @@
+package com.greenshare.entity.vegetable;
+
+import java.io.Serializable;
+
+/**
+ * Helper class with the few attributes of a {@link Species} the species picker
+ * shows, returned by the autocomplete instead of the whole species
+ *
+ * @author joao.silva
+ */
+public class SpeciesSuggestion implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Long id;
+
+	private final String commonName;
+
+	private final String scientificName;
+
+	private final Boolean hasImage;
+
+	public SpeciesSuggestion(Species species) {
+		this(species.getId(), species.getCommonName(), species.getScientificName(), species.getHasImage());
+	}
+
+	public SpeciesSuggestion(Long id, String commonName, String scientificName, Boolean hasImage) {
+		this.id = id;
+		this.commonName = commonName;
+		this.scientificName = scientificName;
+		this.hasImage = hasImage;
+	}
+
+	public SpeciesSuggestion withImage() {
+		return new SpeciesSuggestion(this.id, this.commonName, this.scientificName, true);
+	}
+
+	public Long getId() {
+		return this.id;
+	}
+
+	public String getCommonName() {
+		return this.commonName;
+	}
+
+	public String getScientificName() {
+		return this.scientificName;
+	}
+
+	public Boolean getHasImage() {
+		return this.hasImage;
+	}
+}
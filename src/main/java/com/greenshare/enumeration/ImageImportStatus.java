@@ -0,0 +1,13 @@
+package com.greenshare.enumeration;
+
+/**
+ * Enum for status of an image import job
+ *
+ * @author joao.silva
+ */
+public enum ImageImportStatus {
+	QUEUED,
+	RUNNING,
+	DONE,
+	FAILED;
+}
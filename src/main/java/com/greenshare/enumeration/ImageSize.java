@@ -0,0 +1,20 @@
+package com.greenshare.enumeration;
+
+/**
+ * Enum for the fixed sizes (longest side in pixels) of the image derivatives
+ * 
+ * @author joao.silva
+ */
+public enum ImageSize {
+	THUMBNAIL(64), AVATAR(128), FEED(480), FULL(1080);
+
+	private int pixels;
+
+	ImageSize(int pixels) {
+		this.pixels = pixels;
+	}
+
+	public int getPixels() {
+		return this.pixels;
+	}
+}
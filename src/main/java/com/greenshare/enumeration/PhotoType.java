@@ -6,15 +6,23 @@ package com.greenshare.enumeration;
  * @author joao.silva
  */
 public enum PhotoType {
-	USER(0, "User"), POST(1, "Post"), FLOWER_SHOP(2, "FlowerShop"), SPECIES(3, "Species"), ACHIEVEMENT(4,
-			"Achievement"), FLOWER(5, "Flower"), FRUIT(6, "Fruit"), OFFER(7, "Offer");
+	USER(0, "User", ImageSize.THUMBNAIL, ImageSize.AVATAR, ImageSize.FULL),
+	POST(1, "Post", ImageSize.THUMBNAIL, ImageSize.FEED, ImageSize.FULL),
+	FLOWER_SHOP(2, "FlowerShop", ImageSize.THUMBNAIL, ImageSize.AVATAR, ImageSize.FULL),
+	SPECIES(3, "Species", ImageSize.THUMBNAIL, ImageSize.FEED, ImageSize.FULL),
+	ACHIEVEMENT(4, "Achievement", ImageSize.THUMBNAIL, ImageSize.AVATAR, ImageSize.FULL),
+	FLOWER(5, "Flower", ImageSize.THUMBNAIL, ImageSize.FEED, ImageSize.FULL),
+	FRUIT(6, "Fruit", ImageSize.THUMBNAIL, ImageSize.FEED, ImageSize.FULL),
+	OFFER(7, "Offer", ImageSize.THUMBNAIL, ImageSize.FEED, ImageSize.FULL);
 
 	private String directoryName;
 	private int numberType;
+	private ImageSize[] imageSizes;
 
-	PhotoType(int numberType, String directoryName) {
+	PhotoType(int numberType, String directoryName, ImageSize... imageSizes) {
 		this.numberType = numberType;
 		this.directoryName = directoryName;
+		this.imageSizes = imageSizes;
 	}
 
 	public int getNumberType() {
@@ -25,6 +33,27 @@ public enum PhotoType {
 		return this.directoryName;
 	}
 
+	/**
+	 * Sizes generated for this type, ordered from the smallest to the largest
+	 */
+	public ImageSize[] getImageSizes() {
+		return this.imageSizes.clone();
+	}
+
+	/**
+	 * Finds the smallest generated size that covers the requested pixels
+	 * 
+	 * @return the size or the largest one if none covers it
+	 */
+	public ImageSize getImageSize(int pixels) {
+		for (ImageSize imageSize : this.imageSizes) {
+			if (imageSize.getPixels() >= pixels) {
+				return imageSize;
+			}
+		}
+		return this.imageSizes[this.imageSizes.length - 1];
+	}
+
 	public static boolean exists(int numberType) {
 		for (PhotoType e : values()) {
 			if (e.getNumberType() == numberType) {
@@ -33,4 +62,13 @@ public enum PhotoType {
 		}
 		return false;
 	}
+
+	public static PhotoType fromDirectoryName(String directoryName) {
+		for (PhotoType e : values()) {
+			if (e.getDirectoryName().equalsIgnoreCase(directoryName)) {
+				return e;
+			}
+		}
+		return null;
+	}
 }
@@ -0,0 +1,18 @@
+package com.greenshare.exception;
+
+import java.io.IOException;
+
+/**
+ * Exception class for uploaded content that is not an acceptable image, thrown
+ * while the upload is streamed
+ * 
+ * @author joao.silva
+ */
+public class InvalidImageException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public InvalidImageException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,18 @@
+package com.greenshare.exception;
+
+import java.io.IOException;
+
+/**
+ * Exception class for an upload over its size limit, thrown while the upload
+ * is streamed
+ * 
+ * @author joao.silva
+ */
+public class UploadTooLargeException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public UploadTooLargeException(String message) {
+		super(message);
+	}
+}
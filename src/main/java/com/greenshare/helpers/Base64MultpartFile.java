@@ -1,18 +1,28 @@
 package com.greenshare.helpers;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
 
+import org.springframework.util.StreamUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+/**
+ * MultipartFile of an image sent as Base64 on a JSON field. The content is
+ * decoded while it is read, so the decoded image is never held in memory.
+ */
 public class Base64MultpartFile implements MultipartFile {
-	private final byte[] imgContent;
+	/* Base64 of the PNG signature and of the JPEG start of image */
+	private static final String PNG_PREFIX = "iVBORw0KGgo";
+	private static final String JPEG_PREFIX = "/9j/";
 
-	public Base64MultpartFile(byte[] imgContent) {
-		this.imgContent = imgContent;
+	private final String encodedContent;
+
+	public Base64MultpartFile(String encodedContent) {
+		this.encodedContent = encodedContent;
 	}
 
 	@Override
@@ -25,34 +35,92 @@ public class Base64MultpartFile implements MultipartFile {
 		return "PostImage";
 	}
 
+	/**
+	 * Content type sniffed from the Base64 of the magic bytes
+	 */
 	@Override
 	public String getContentType() {
-		return "png";
+		if (isEmpty()) {
+			return null;
+		}
+		if (encodedContent.startsWith(PNG_PREFIX)) {
+			return "image/png";
+		}
+		if (encodedContent.startsWith(JPEG_PREFIX)) {
+			return "image/jpeg";
+		}
+		return "application/octet-stream";
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return imgContent == null || imgContent.length == 0;
+		return encodedContent == null || encodedContent.isEmpty();
 	}
 
+	/**
+	 * Decoded length computed from the encoded length and padding
+	 */
 	@Override
 	public long getSize() {
-		return imgContent.length;
+		if (isEmpty()) {
+			return 0;
+		}
+		int length = encodedContent.length();
+		int padding = 0;
+		if (encodedContent.charAt(length - 1) == '=') {
+			padding++;
+			if (length > 1 && encodedContent.charAt(length - 2) == '=') {
+				padding++;
+			}
+		}
+		return (long) length / 4 * 3 - padding;
 	}
 
 	@Override
 	public byte[] getBytes() throws IOException {
-		return imgContent;
+		return Base64.getDecoder().decode(encodedContent);
 	}
 
 	@Override
 	public InputStream getInputStream() throws IOException {
-		return new ByteArrayInputStream(imgContent);
+		return Base64.getDecoder().wrap(new EncodedInputStream(encodedContent));
 	}
 
-	@SuppressWarnings("resource")
 	@Override
 	public void transferTo(File dest) throws IOException, IllegalStateException {
-		new FileOutputStream(dest).write(imgContent);
+		try (InputStream input = getInputStream(); OutputStream output = new FileOutputStream(dest)) {
+			StreamUtils.copy(input, output);
+		}
+	}
+
+	/**
+	 * Reads the Base64 characters as bytes without copying the string
+	 */
+	private static class EncodedInputStream extends InputStream {
+
+		private final String content;
+
+		private int position;
+
+		EncodedInputStream(String content) {
+			this.content = content;
+		}
+
+		@Override
+		public int read() {
+			return position < content.length() ? content.charAt(position++) & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (position >= content.length()) {
+				return -1;
+			}
+			int read = Math.min(len, content.length() - position);
+			for (int i = 0; i < read; i++) {
+				b[off + i] = (byte) content.charAt(position++);
+			}
+			return read;
+		}
 	}
 }
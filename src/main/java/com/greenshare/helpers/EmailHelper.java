@@ -0,0 +1,126 @@
+package com.greenshare.helpers;
+
+/**
+ * Validation of email addresses as local-part@domain, read once from left to
+ * right without allocating, so the cost only grows with the length of the
+ * text. The local part is a dot-atom or a quoted string, the domain a
+ * dot-atom or a literal in brackets, as accepted by the RFC 822 regex used
+ * before, and spaces or tabs around the address are ignored like the regex
+ * did. Display names ("Name <a@b.com>"), groups and white space inside the
+ * address, also accepted by the regex, are not addresses a user types on
+ * registration and are rejected.
+ *
+ * @author joao.silva
+ */
+public class EmailHelper {
+
+	/* Characters that can't be in an atom, besides space and control characters */
+	private static final String SPECIALS = "()<>@,;:\\\".[]";
+
+	public static boolean isEmail(CharSequence email) {
+		if (email == null) {
+			return false;
+		}
+		int start = 0;
+		int end = email.length();
+		while (start < end && isBlank(email.charAt(start))) {
+			start++;
+		}
+		while (end > start && isBlank(email.charAt(end - 1))) {
+			end--;
+		}
+		int at = start < end && email.charAt(start) == '"' ? quotedString(email, start, end)
+				: dotAtom(email, start, end);
+		if (at < 0 || at >= end || email.charAt(at) != '@') {
+			return false;
+		}
+		if (at + 1 < end && email.charAt(at + 1) == '[') {
+			return domainLiteral(email, at + 1, end) == end;
+		}
+		return dotAtom(email, at + 1, end) == end;
+	}
+
+	public static boolean isNotEmail(CharSequence email) {
+		return !isEmail(email);
+	}
+
+	/**
+	 * @return the index after the atoms separated by single dots starting at
+	 *         the index, or -1 if there is none or it ends with a dot
+	 */
+	private static int dotAtom(CharSequence text, int index, int end) {
+		boolean afterDot = true;
+		for (; index < end; index++) {
+			char c = text.charAt(index);
+			if (c == '.') {
+				if (afterDot) {
+					return -1;
+				}
+				afterDot = true;
+			} else if (isAtomChar(c)) {
+				afterDot = false;
+			} else {
+				break;
+			}
+		}
+		return afterDot ? -1 : index;
+	}
+
+	/**
+	 * @return the index after the closing quote of the string starting at the
+	 *         index, or -1 if it is not closed
+	 */
+	private static int quotedString(CharSequence text, int index, int end) {
+		for (index++; index < end; index++) {
+			char c = text.charAt(index);
+			if (c == '"') {
+				return index + 1;
+			}
+			if (c == '\\') {
+				index++;
+				if (index == end) {
+					return -1;
+				}
+				c = text.charAt(index);
+			}
+			if (c == '\r' || c == '\n') {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the index after the closing bracket of the literal starting at
+	 *         the index, or -1 if it is not closed
+	 */
+	private static int domainLiteral(CharSequence text, int index, int end) {
+		for (index++; index < end; index++) {
+			char c = text.charAt(index);
+			if (c == ']') {
+				return index + 1;
+			}
+			if (c == '\\') {
+				index++;
+				if (index == end) {
+					return -1;
+				}
+				c = text.charAt(index);
+			} else if (c == '[') {
+				return -1;
+			}
+			if (c == '\r' || c == '\n') {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isBlank(char c) {
+		return c == ' ' || c == '\t';
+	}
+
+	private static boolean isAtomChar(char c) {
+		return c > ' ' && c != 127 && SPECIALS.indexOf(c) < 0;
+	}
+}
@@ -0,0 +1,62 @@
+package com.greenshare.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position on a feed ordered by insertion date and id, both descending. The
+ * next page is read with {@code (insertion_date, id) < (cursor)} instead of an
+ * offset, so every page costs the same regardless of the scroll depth. The
+ * token given to the clients is opaque, the Base64 of "millis:id".
+ *
+ * @author joao.silva
+ */
+public class FeedCursor {
+
+	/* Position before the first item, 9999-12-31 fits on any database timestamp */
+	private static final FeedCursor FIRST = new FeedCursor(new Date(253402300799000L), Long.MAX_VALUE);
+
+	private final Date insertionDate;
+
+	private final Long id;
+
+	public FeedCursor(Date insertionDate, Long id) {
+		this.insertionDate = insertionDate;
+		this.id = id;
+	}
+
+	/**
+	 * @return the cursor of the token, the first position for an empty token or
+	 *         null if the token is invalid
+	 */
+	public static FeedCursor decode(String token) {
+		if (token == null || token.isEmpty()) {
+			return FIRST;
+		}
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+			int separator = value.indexOf(':');
+			if (separator < 1) {
+				return null;
+			}
+			return new FeedCursor(new Date(Long.parseLong(value.substring(0, separator))),
+					Long.valueOf(value.substring(separator + 1)));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	public String encode() {
+		String value = Long.toString(this.insertionDate.getTime()).concat(":").concat(this.id.toString());
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	public Date getInsertionDate() {
+		return this.insertionDate;
+	}
+
+	public Long getId() {
+		return this.id;
+	}
+}
@@ -0,0 +1,48 @@
+package com.greenshare.helpers;
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.greenshare.entity.abstracts.AbstractEntity;
+
+/**
+ * Page of a feed read by {@link FeedCursor}, next is the token of the
+ * following page and null on the last one. There is no total, so no count
+ * query is needed.
+ *
+ * @author joao.silva
+ */
+public class FeedPage<T> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<T> content;
+
+	private final String next;
+
+	public FeedPage(List<T> content, String next) {
+		this.content = content;
+		this.next = next;
+	}
+
+	/**
+	 * Builds the page from the rows read with one row more than the size, the
+	 * extra row only tells there is a next page
+	 */
+	public static <T extends AbstractEntity<?>> FeedPage<T> of(List<T> rows, int size) {
+		if (rows.size() <= size) {
+			return new FeedPage<T>(rows, null);
+		}
+		List<T> content = rows.subList(0, size);
+		T last = content.get(size - 1);
+		return new FeedPage<T>(content, new FeedCursor(last.getInsertionDate(), last.getId()).encode());
+	}
+
+	public List<T> getContent() {
+		return this.content;
+	}
+
+	public String getNext() {
+		return this.next;
+	}
+}
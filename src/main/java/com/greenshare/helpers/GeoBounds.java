@@ -0,0 +1,69 @@
+package com.greenshare.helpers;
+
+/**
+ * Latitude and longitude box around a point, used to prefilter the rows with
+ * plain range conditions on indexed columns before the exact distance is
+ * computed. The box contains the circle of the distance, so no row inside the
+ * circle is left out.
+ *
+ * @author joao.silva
+ */
+public class GeoBounds {
+
+	public static final double EARTH_RADIUS_KM = 6371.0;
+
+	private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+	private final double minLatitude;
+
+	private final double maxLatitude;
+
+	private final double minLongitude;
+
+	private final double maxLongitude;
+
+	private GeoBounds(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+		this.minLatitude = minLatitude;
+		this.maxLatitude = maxLatitude;
+		this.minLongitude = minLongitude;
+		this.maxLongitude = maxLongitude;
+	}
+
+	/**
+	 * @return the box of the circle of distanceKm around the point, the
+	 *         longitude range is the whole globe when the circle reaches a pole or
+	 *         crosses the 180th meridian
+	 */
+	public static GeoBounds around(double latitude, double longitude, double distanceKm) {
+		double latitudeDelta = distanceKm / KM_PER_DEGREE;
+		double minLatitude = Math.max(-90.0, latitude - latitudeDelta);
+		double maxLatitude = Math.min(90.0, latitude + latitudeDelta);
+		if (minLatitude <= -90.0 || maxLatitude >= 90.0) {
+			return new GeoBounds(minLatitude, maxLatitude, -180.0, 180.0);
+		}
+		double longitudeDelta = Math.toDegrees(Math.asin(
+				Math.min(1.0, Math.sin(distanceKm / EARTH_RADIUS_KM) / Math.cos(Math.toRadians(latitude)))));
+		double minLongitude = longitude - longitudeDelta;
+		double maxLongitude = longitude + longitudeDelta;
+		if (minLongitude < -180.0 || maxLongitude > 180.0) {
+			return new GeoBounds(minLatitude, maxLatitude, -180.0, 180.0);
+		}
+		return new GeoBounds(minLatitude, maxLatitude, minLongitude, maxLongitude);
+	}
+
+	public double getMinLatitude() {
+		return this.minLatitude;
+	}
+
+	public double getMaxLatitude() {
+		return this.maxLatitude;
+	}
+
+	public double getMinLongitude() {
+		return this.minLongitude;
+	}
+
+	public double getMaxLongitude() {
+		return this.maxLongitude;
+	}
+}
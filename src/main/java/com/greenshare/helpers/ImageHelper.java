@@ -1,20 +1,12 @@
 package com.greenshare.helpers;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.util.Base64;
-import javax.imageio.ImageIO;
+import java.io.InputStream;
 
-import org.json.JSONException;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.greenshare.entity.interfaces.PhotogenicEntity;
+import com.greenshare.enumeration.ImageSize;
 import com.greenshare.enumeration.PhotoType;
-import com.greenshare.exception.DirectoryException;
 
 /**
  * @author joao.silva
@@ -25,105 +17,141 @@ public class ImageHelper {
 	 * To use ImageHelper
 	 *
 	 * - Create a new value in Enum PhotoType Where the 'directoryName' will be used
-	 * to name the folder where the images are saved. - Set a static final attribute
-	 * called PHOTO_TYPE that references the Enum of your Entity Class on the Enum
+	 * to name the images of the type. - Set a static final attribute called
+	 * PHOTO_TYPE that references the Enum of your Entity Class on the Enum
 	 * PhotoType. - Extends Class AbstractPhotogenicClass on your Entity giving his
 	 * type and set the super(PHOTO_TYPE) contructor with the PHOTO_TYPE - The
 	 * constructor of a newer entity is super(PHOTO_TYPE, true) and the constructor
 	 * of a existing entity is super(PHOTO_TYPE) - Create the routes on
 	 * ImageUploadController and implement they on ImageUploadControllerImpl, on
-	 * route method you can call the methods saveImage and getImage. - On
-	 * PhotogenicServiceImpl you will need to add a conditional to save the hasImage
-	 * attribute using your entity's repository. - The image will be saved based on
-	 * the entity id and only one image per entity can be saved. - On save a new
-	 * image the old is deleted.
-	 * 
+	 * route method you can call the methods saveImage and getImage. - Make the
+	 * repository of your entity extend PhotogenicRepository and register it for
+	 * the PhotoType on PhotogenicRepositoryRegistry, the hasImage attribute is
+	 * saved through it. - The images are saved by the
+	 * ImageStore, only one image per entity can be saved and on save a new image
+	 * the old one is released with its derivatives. - The derivatives of each
+	 * ImageSize of the PhotoType are saved by ImageDerivativeService.
+	 *
+	 * The ImageHelper instances only read the images saved before the ImageStore,
+	 * on the legacy directory tree with one directory per digit of the id.
+	 *
 	 */
 	private final static String IMAGES_DIRECTORY = "images/";
 
 	private final static int MAX_FILE_SIZE = 5000000;
 
-	private MultipartFile multiPartFile;
+	private final static int MAX_IMAGE_SIDE = 8192;
+
+	private final static int MAX_THUMBNAIL_SIZE = 20000;
 
-	private PhotogenicEntity entity;
+	private final static String IMAGES_URL = "/image/";
+
+	private final static String[] IMAGE_FORMATS = { "png", "jpg", "jpeg" };
 
 	private PhotoType photoType;
 
 	private File imageDirectory;
 
-	private File image;
-
 	private String imageFormat;
 
 	private Long id;
 
-	public ImageHelper(PhotogenicEntity entity) throws DirectoryException {
-		this.entity = entity;
-		this.id = this.entity.getId();
-		this.photoType = this.entity.getPhotoType();
-		this.imageDirectory = getOrTryCreateImageDirectory();
+	/**
+	 * Read-only helper of the legacy directory tree
+	 */
+	public ImageHelper(PhotoType photoType, Long id) {
+		this.id = id;
+		this.photoType = photoType;
+		this.imageDirectory = getImageDirectory();
 	}
 
-	public boolean save(MultipartFile multiPartFile) throws IOException {
-		this.multiPartFile = multiPartFile;
-		this.imageFormat = this.multiPartFile.getContentType()
-				.substring(this.multiPartFile.getContentType().indexOf('/') + 1);
-		if (isValidImage() && cleanDirectory()) {
-			this.image = getImageFile();
-			FileOutputStream imageOutput = new FileOutputStream(this.image);
-			imageOutput.write(multiPartFile.getBytes());
-			imageOutput.close();
-			return true;
-		}
-		return false;
+	/**
+	 * The format is not taken from the declared content type, it is read from the
+	 * content by {@link #getValidatingStream(InputStream, long)}
+	 */
+	public static Boolean isValidImage(MultipartFile multipartFile) {
+		return multipartFile != null && !multipartFile.isEmpty() && multipartFile.getSize() <= MAX_FILE_SIZE;
+	}
+
+	/**
+	 * Wraps the upload content to be validated while it is streamed
+	 *
+	 * @param maxPixels
+	 *            ceiling of width times height, checked from the header before
+	 *            anything decodes the image
+	 */
+	public static ValidatingImageInputStream getValidatingStream(InputStream content, long maxPixels) {
+		return new ValidatingImageInputStream(content, MAX_FILE_SIZE, MAX_IMAGE_SIDE, maxPixels);
 	}
-	
-	public boolean save(byte[] file) throws IOException {
-		ByteArrayInputStream bais = new ByteArrayInputStream(file);
-		BufferedImage image = ImageIO.read(bais);
-		File directory = getDirectoryFile();
-		ImageIO.write(image, "jpg", directory);
-		return true;
+
+	/**
+	 * @return true when the image is small enough to be inlined on a feed response
+	 */
+	public static Boolean isThumbnailLength(long length) {
+		return length <= MAX_THUMBNAIL_SIZE;
 	}
 
-	public String getImage() throws IOException, JSONException {
-		File[] files = this.imageDirectory.listFiles();
-		this.imageFormat = files[0].getName().substring(files[0].getName().indexOf(".") + 1);
-		File imageFile = getImageFile();
-		if (imageFile != null && imageFile.isFile()) {
-			FileInputStream imageInFile = new FileInputStream(imageFile);
-            byte imageData[] = new byte[(int) imageFile.length()];
-            imageInFile.read(imageData);
-            imageInFile.close();
-            return Base64.getEncoder().encodeToString(imageData);
+	/**
+	 * Stable URL of the binary image served by
+	 * {@link com.greenshare.controller.image.ImageUploadController}
+	 */
+	public static String getImageUrl(PhotoType photoType, Long id) {
+		return IMAGES_URL.concat(photoType.getDirectoryName()).concat("/").concat(id.toString());
+	}
+
+	/**
+	 * Finds the stored image probing the known formats, avoiding a directory
+	 * listing
+	 *
+	 * @return the image file or null if the entity has no image
+	 */
+	public File findImage() {
+		for (String format : IMAGE_FORMATS) {
+			this.imageFormat = format;
+			File imageFile = getImageFile();
+			if (imageFile.isFile()) {
+				return imageFile;
+			}
+		}
+		this.imageFormat = null;
+		return null;
+	}
+
+	/**
+	 * Finds a stored derivative of the image
+	 *
+	 * @return the derivative file or null if it was not generated
+	 */
+	public File findImage(ImageSize imageSize) {
+		for (String format : IMAGE_FORMATS) {
+			File imageFile = getDerivativeFile(imageSize, format);
+			if (imageFile.isFile()) {
+				this.imageFormat = format;
+				return imageFile;
+			}
 		}
 		return null;
 	}
 
-	private Boolean isValidImage() {
-		return this.multiPartFile != null && this.multiPartFile.getSize() <= MAX_FILE_SIZE
-				&& (this.imageFormat.equalsIgnoreCase("png") || this.imageFormat.equalsIgnoreCase("jpg")
-						|| this.imageFormat.equals("jpeg"));
+	public String getImageFormat() {
+		return this.imageFormat;
+	}
+
+	private File getDerivativeFile(ImageSize imageSize, String imageFormat) {
+		return new File(imageDirectory.getPath().concat("/").concat(this.photoType.getDirectoryName()).concat("_")
+				.concat(String.valueOf(imageSize.getPixels())).concat(".").concat(imageFormat));
 	}
 
 	private File getImageFile() {
 		return new File(imageDirectory.getPath().concat("/").concat(this.photoType.getDirectoryName()).concat(".")
 				.concat(this.imageFormat));
 	}
-	
-	private File getDirectoryFile() {
-		return new File(imageDirectory.getPath().concat("/").concat(this.photoType.getDirectoryName()));
-	}
 
-	private File getOrTryCreateImageDirectory() throws DirectoryException {
+	private File getImageDirectory() {
 		char[] idInCharArray = this.id.toString().toCharArray();
 		String idDirectory = getIdDirectory(idInCharArray);
-		File file = new File(
+		return new File(
 				IMAGES_DIRECTORY.concat("/").concat(this.photoType.getDirectoryName()).concat("/").concat(idDirectory));
-		if (!file.exists() && !file.mkdirs()) {
-			throw new DirectoryException("Falha ao encontrar diretório da imagem.");
-		}
-		return file;
 	}
 
 	private String getIdDirectory(char[] idInCharArray) {
@@ -135,18 +163,4 @@ public class ImageHelper {
 
 		return idDirectory.toString();
 	}
-
-	private Boolean cleanDirectory() {
-		if (this.imageDirectory.isDirectory()) {
-			File[] files = this.imageDirectory.listFiles();
-			for (File file : files) {
-				Boolean fileIsDeleted = file.delete();
-				if (!fileIsDeleted) {
-					return false;
-				}
-			}
-			return true;
-		}
-		return false;
-	}
 }
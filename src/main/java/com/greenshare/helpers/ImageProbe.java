@@ -0,0 +1,245 @@
+package com.greenshare.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.greenshare.exception.InvalidImageException;
+
+/**
+ * Reads the format and the dimensions of a PNG or JPEG from the first bytes of
+ * the content, without decoding the image. The bytes are given one by one to
+ * {@link #update(int)}, so the probe can run on a stream as it is written.
+ *
+ * @author joao.silva
+ */
+public class ImageProbe {
+
+	private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	private static final int PNG_HEADER_LENGTH = 24;
+
+	/* JPEG parser states */
+	private static final int MARKER_PREFIX = 0;
+	private static final int MARKER = 1;
+	private static final int SEGMENT_LENGTH_HIGH = 2;
+	private static final int SEGMENT_LENGTH_LOW = 3;
+	private static final int SEGMENT = 4;
+	private static final int FRAME = 5;
+
+	private final byte[] header = new byte[PNG_HEADER_LENGTH];
+
+	private long length;
+
+	private String format;
+
+	private int width;
+
+	private int height;
+
+	private int jpegState = MARKER_PREFIX;
+
+	private int marker;
+
+	private int remaining;
+
+	private int position;
+
+	private int frameWidth;
+
+	private int frameHeight;
+
+	/**
+	 * Probes the start of the content, reading only up to the header
+	 *
+	 * @return the probe with the dimensions read
+	 * @throws InvalidImageException
+	 *             if the content is not a PNG or JPEG with a valid header
+	 */
+	public static ImageProbe probe(InputStream content) throws IOException {
+		ImageProbe imageProbe = new ImageProbe();
+		byte[] buffer = new byte[512];
+		while (!imageProbe.isComplete()) {
+			int read = content.read(buffer);
+			if (read == -1) {
+				imageProbe.finish();
+			}
+			for (int i = 0; i < read && !imageProbe.isComplete(); i++) {
+				imageProbe.update(buffer[i] & 0xFF);
+			}
+		}
+		return imageProbe;
+	}
+
+	/**
+	 * Reads the next byte of the content, bytes after the header are ignored
+	 */
+	public void update(int b) throws InvalidImageException {
+		if (isComplete()) {
+			return;
+		}
+		this.length++;
+		if (this.length <= PNG_HEADER_LENGTH) {
+			this.header[(int) this.length - 1] = (byte) b;
+		}
+		if (this.length == 3) {
+			sniffFormat();
+		}
+		if (this.length < 3) {
+			return;
+		}
+		if (this.format.equals("png")) {
+			if (this.length == PNG_HEADER_LENGTH) {
+				readPngHeader();
+			}
+		} else {
+			readJpeg(b);
+		}
+	}
+
+	/**
+	 * Must be called at the end of the content
+	 *
+	 * @throws InvalidImageException
+	 *             if the header was not fully read
+	 */
+	public void finish() throws InvalidImageException {
+		if (!isComplete()) {
+			throw new InvalidImageException("Formato de imagem inválido.");
+		}
+	}
+
+	public boolean isComplete() {
+		return this.width > 0 && this.height > 0;
+	}
+
+	/**
+	 * @return "png" or "jpg" once the magic bytes were read
+	 */
+	public String getFormat() {
+		return this.format;
+	}
+
+	public int getWidth() {
+		return this.width;
+	}
+
+	public int getHeight() {
+		return this.height;
+	}
+
+	public long getPixels() {
+		return (long) this.width * this.height;
+	}
+
+	private void sniffFormat() throws InvalidImageException {
+		if (this.header[0] == (byte) 0xFF && this.header[1] == (byte) 0xD8 && this.header[2] == (byte) 0xFF) {
+			this.format = "jpg";
+			/* The third byte is the prefix of the first marker */
+			this.jpegState = MARKER;
+		} else if (this.header[0] == PNG_SIGNATURE[0] && this.header[1] == PNG_SIGNATURE[1]
+				&& this.header[2] == PNG_SIGNATURE[2]) {
+			this.format = "png";
+		} else {
+			throw new InvalidImageException("Formato de imagem inválido.");
+		}
+	}
+
+	private void readPngHeader() throws InvalidImageException {
+		for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+			if (this.header[i] != PNG_SIGNATURE[i]) {
+				throw new InvalidImageException("Formato de imagem inválido.");
+			}
+		}
+		if (this.header[12] != 'I' || this.header[13] != 'H' || this.header[14] != 'D' || this.header[15] != 'R') {
+			throw new InvalidImageException("Formato de imagem inválido.");
+		}
+		setDimensions(readInt(16), readInt(20));
+	}
+
+	/**
+	 * Walks the JPEG markers skipping the segments until the start of frame,
+	 * where the dimensions are
+	 */
+	private void readJpeg(int b) throws InvalidImageException {
+		switch (this.jpegState) {
+		case MARKER_PREFIX:
+			if (b != 0xFF) {
+				throw new InvalidImageException("Formato de imagem inválido.");
+			}
+			this.jpegState = MARKER;
+			break;
+		case MARKER:
+			if (b == 0xFF) {
+				/* Fill byte */
+				break;
+			}
+			this.marker = b;
+			if (b == 0x01 || (b >= 0xD0 && b <= 0xD8)) {
+				/* Markers without segment */
+				this.jpegState = MARKER_PREFIX;
+			} else if (b == 0xDA || b == 0xD9) {
+				/* Image data or end reached without a frame */
+				throw new InvalidImageException("Formato de imagem inválido.");
+			} else {
+				this.jpegState = SEGMENT_LENGTH_HIGH;
+			}
+			break;
+		case SEGMENT_LENGTH_HIGH:
+			this.remaining = b << 8;
+			this.jpegState = SEGMENT_LENGTH_LOW;
+			break;
+		case SEGMENT_LENGTH_LOW:
+			this.remaining = (this.remaining | b) - 2;
+			if (this.remaining < 0) {
+				throw new InvalidImageException("Formato de imagem inválido.");
+			}
+			if (isStartOfFrame(this.marker)) {
+				if (this.remaining < 5) {
+					throw new InvalidImageException("Formato de imagem inválido.");
+				}
+				this.position = 0;
+				this.jpegState = FRAME;
+			} else {
+				this.jpegState = this.remaining == 0 ? MARKER_PREFIX : SEGMENT;
+			}
+			break;
+		case SEGMENT:
+			if (--this.remaining == 0) {
+				this.jpegState = MARKER_PREFIX;
+			}
+			break;
+		case FRAME:
+			/* Precision, height (2 bytes) and width (2 bytes) */
+			if (this.position == 1) {
+				this.frameHeight = b << 8;
+			} else if (this.position == 2) {
+				this.frameHeight |= b;
+			} else if (this.position == 3) {
+				this.frameWidth = b << 8;
+			} else if (this.position == 4) {
+				setDimensions(this.frameWidth | b, this.frameHeight);
+			}
+			this.position++;
+			break;
+		default:
+			break;
+		}
+	}
+
+	private boolean isStartOfFrame(int marker) {
+		return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+	}
+
+	private void setDimensions(long width, long height) throws InvalidImageException {
+		if (width <= 0 || height <= 0 || width > Integer.MAX_VALUE || height > Integer.MAX_VALUE) {
+			throw new InvalidImageException("Dimensões de imagem inválidas.");
+		}
+		this.width = (int) width;
+		this.height = (int) height;
+	}
+
+	private long readInt(int offset) {
+		return ((this.header[offset] & 0xFFL) << 24) | ((this.header[offset + 1] & 0xFF) << 16)
+				| ((this.header[offset + 2] & 0xFF) << 8) | (this.header[offset + 3] & 0xFF);
+	}
+}
@@ -3,30 +3,94 @@ package com.greenshare.helpers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import com.greenshare.entity.user.User;
+import com.greenshare.service.user.CurrentUserCache;
 import com.greenshare.service.user.UserServiceImpl;
 
 /**
+* The current user is queried once per request and kept as a request
+* attribute, its id is also kept by {@link CurrentUserCache} between requests.
+*
 * @author joao.silva
 */
 public abstract class UserUtils {
-	
+
+	private static final String CURRENT_USER_ATTRIBUTE = UserUtils.class.getName() + ".currentUser:";
+
 	@Autowired
 	UserServiceImpl userService;
-	
+
+	@Autowired
+	CurrentUserCache currentUserCache;
+
 	protected User getCurrentUser() {
+		String email = getCurrentEmail();
+		User user = getRequestUser(email);
+		if (user != null) {
+			currentUserCache.requestHit();
+			return user;
+		}
+		user = userService.findOneUserByEmail(email);
+		if (user != null) {
+			currentUserCache.put(email, user.getId());
+			RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+			if (attributes != null) {
+				attributes.setAttribute(CURRENT_USER_ATTRIBUTE + email, user, RequestAttributes.SCOPE_REQUEST);
+			}
+		}
+		return user;
+	}
+
+	protected Long getCurrentUserId() {
+		String email = getCurrentEmail();
+		User user = getRequestUser(email);
+		if (user != null) {
+			currentUserCache.requestHit();
+			return user.getId();
+		}
+		Long id = currentUserCache.getId(email);
+		if (id != null) {
+			return id;
+		}
+		user = getCurrentUser();
+		return user == null ? null : user.getId();
+	}
+
+	/**
+	 * Must be called when the current user is changed or deleted
+	 */
+	protected void evictCurrentUser() {
+		String email = getCurrentEmail();
+		currentUserCache.invalidate(email);
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			attributes.removeAttribute(CURRENT_USER_ATTRIBUTE + email, RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+
+	/**
+	 * Must be called when a user other than the current is deleted
+	 */
+	protected void evictUser(Long id) {
+		currentUserCache.invalidate(id);
+	}
+
+	private String getCurrentEmail() {
     	Object currentUser = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-    	String email;
     	if (currentUser instanceof UserDetails ) {
-    		email = ( (UserDetails)currentUser).getUsername();
-    	} else {
-    		email = currentUser.toString();
+    		return ( (UserDetails)currentUser).getUsername();
     	}
-    	return userService.findOneUserByEmail(email);
-    }
-	
-	protected Long getCurrentUserId() {
-		return getCurrentUser().getId();
+    	return currentUser.toString();
+	}
+
+	private User getRequestUser(String email) {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes == null) {
+			return null;
+		}
+		return (User) attributes.getAttribute(CURRENT_USER_ATTRIBUTE + email, RequestAttributes.SCOPE_REQUEST);
 	}
 }
@@ -0,0 +1,105 @@
+package com.greenshare.helpers;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.greenshare.exception.InvalidImageException;
+
+/**
+ * Validates an uploaded image while it is streamed, without holding it in
+ * memory: the magic bytes must be of a PNG or JPEG, the content can't pass the
+ * maximum length and the dimensions read by an {@link ImageProbe} from the
+ * image header can't pass the maximum side nor the maximum pixel count. An
+ * {@link InvalidImageException} is thrown as soon as a check fails, so the
+ * caller stops writing the upload.
+ *
+ * @author joao.silva
+ */
+public class ValidatingImageInputStream extends FilterInputStream {
+
+	private final long maxLength;
+
+	private final int maxSide;
+
+	private final long maxPixels;
+
+	private final ImageProbe imageProbe = new ImageProbe();
+
+	private long length;
+
+	public ValidatingImageInputStream(InputStream in, long maxLength, int maxSide, long maxPixels) {
+		super(in);
+		this.maxLength = maxLength;
+		this.maxSide = maxSide;
+		this.maxPixels = maxPixels;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b == -1) {
+			this.imageProbe.finish();
+		} else {
+			inspect(b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int read = super.read(b, off, len);
+		if (read == -1) {
+			this.imageProbe.finish();
+		} else {
+			for (int i = off; i < off + read; i++) {
+				inspect(b[i] & 0xFF);
+			}
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		throw new IOException("Não é possível ignorar bytes de uma imagem em validação.");
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/**
+	 * @return "png" or "jpg" once the magic bytes were read
+	 */
+	public String getFormat() {
+		return this.imageProbe.getFormat();
+	}
+
+	public int getWidth() {
+		return this.imageProbe.getWidth();
+	}
+
+	public int getHeight() {
+		return this.imageProbe.getHeight();
+	}
+
+	private void inspect(int b) throws InvalidImageException {
+		if (++this.length > this.maxLength) {
+			throw new InvalidImageException("Arquivo muito grande.");
+		}
+		if (!this.imageProbe.isComplete()) {
+			this.imageProbe.update(b);
+			if (this.imageProbe.isComplete()) {
+				checkDimensions();
+			}
+		}
+	}
+
+	private void checkDimensions() throws InvalidImageException {
+		if (this.imageProbe.getWidth() > this.maxSide || this.imageProbe.getHeight() > this.maxSide
+				|| this.imageProbe.getPixels() > this.maxPixels) {
+			throw new InvalidImageException("Dimensões de imagem inválidas.");
+		}
+	}
+}
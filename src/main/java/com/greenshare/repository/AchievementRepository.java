@@ -11,7 +11,7 @@ import com.greenshare.entity.achievement.Achievement;
  * @author joao.silva
  */
 @Repository
-public interface AchievementRepository extends PagingAndSortingRepository<Achievement, Long> {
+public interface AchievementRepository extends PagingAndSortingRepository<Achievement, Long>, PhotogenicRepository<Achievement> {
 
 	Iterable<Achievement> findAllByCategoryOrderByRequiredScoreAsc(Short category);
 
@@ -11,7 +11,7 @@ import com.greenshare.entity.vegetable.Flower;
  * @author joao.silva
  */
 @Repository
-public interface FlowerRepository extends PagingAndSortingRepository<Flower, Long> {
+public interface FlowerRepository extends PagingAndSortingRepository<Flower, Long>, PhotogenicRepository<Flower> {
 
 	Flower findOneBySpecies(Long id);
 
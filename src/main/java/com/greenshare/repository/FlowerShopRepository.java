@@ -12,7 +12,7 @@ import com.greenshare.entity.user.User;
  * @author joao.silva
  */
 @Repository
-public interface FlowerShopRepository extends PagingAndSortingRepository<FlowerShop, Long> {
+public interface FlowerShopRepository extends PagingAndSortingRepository<FlowerShop, Long>, PhotogenicRepository<FlowerShop> {
 
 	FlowerShop findOneByUser(User user);
 
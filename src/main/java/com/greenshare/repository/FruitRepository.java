@@ -11,7 +11,7 @@ import com.greenshare.entity.vegetable.Fruit;
  * @author joao.silva
  */
 @Repository
-public interface FruitRepository extends PagingAndSortingRepository<Fruit, Long> {
+public interface FruitRepository extends PagingAndSortingRepository<Fruit, Long>, PhotogenicRepository<Fruit> {
 
 	Fruit findOneBySpecies(Long id);
 
@@ -0,0 +1,28 @@
+package com.greenshare.repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.greenshare.entity.image.ImageBlob;
+
+/**
+ * Repository Interface of {@link com.greenshare.entity.image.ImageBlob}
+ * 
+ * @author joao.silva
+ */
+@Repository
+public interface ImageBlobRepository extends CrudRepository<ImageBlob, Long> {
+
+	ImageBlob findOneByHash(String hash);
+
+	@Modifying
+	@Query("update ImageBlob b set b.referenceCount = b.referenceCount - 1 where b.id = ?1")
+	int removeReference(Long id);
+
+	@Modifying
+	@Query("delete from ImageBlob b where b.id = ?1 and b.referenceCount <= 0")
+	int deleteIfUnreferenced(Long id);
+
+}
@@ -0,0 +1,27 @@
+package com.greenshare.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.greenshare.entity.image.ImageLink;
+
+/**
+ * Repository Interface of {@link com.greenshare.entity.image.ImageLink}
+ * 
+ * @author joao.silva
+ */
+@Repository
+public interface ImageLinkRepository extends CrudRepository<ImageLink, Long> {
+
+	ImageLink findOneByPhotoTypeAndEntityIdAndImageSize(Integer photoType, Long entityId, Integer imageSize);
+
+	List<ImageLink> findAllByPhotoTypeAndEntityId(Integer photoType, Long entityId);
+
+	@Query("select l from ImageLink l join fetch l.imageBlob where l.photoType = ?1 and l.entityId in ?2 and l.imageSize = ?3")
+	List<ImageLink> findAllWithBlob(Integer photoType, Collection<Long> entityIds, Integer imageSize);
+
+}
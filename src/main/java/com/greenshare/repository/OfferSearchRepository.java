@@ -0,0 +1,72 @@
+package com.greenshare.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.greenshare.entity.offer.OfferSearchEntry;
+
+/**
+ * Repository Interface of {@link com.greenshare.entity.offer.OfferSearchEntry}
+ * 
+ * @author joao.silva
+ */
+@Repository
+public interface OfferSearchRepository extends CrudRepository<OfferSearchEntry, Long>, OfferSearchRepositoryCustom {
+
+	@Transactional
+	@Modifying
+	@Query("update OfferSearchEntry e set e.growthId = ?2, e.soilMask = ?3, e.climateMask = ?4, e.speciesFlags = ?5, "
+			+ "e.rootDepth = ?6, e.averageHeight = ?7 where e.speciesId = ?1")
+	int updateSpecies(Long speciesId, Long growthId, Long soilMask, Long climateMask, Integer speciesFlags,
+			Integer rootDepth, Integer averageHeight);
+
+	@Modifying
+	@Query("delete from OfferSearchEntry e")
+	int deleteAllEntries();
+
+	/**
+	 * Rows of offer_search that differ from what the offers, their users'
+	 * cities and their species give now, plus the offers without a row. The
+	 * masks and flags are computed as {@link OfferSearchEntry#toMask} and
+	 * {@link OfferSearchEntry#toFlags} do.
+	 */
+	@Query(nativeQuery = true, value = "select (select count(*) from ("
+			+ "select o.offer_id, cast(o.offer_status as text) as offer_status, o.insertion_date, o.user_id,"
+			+ " o.species_id, c.city_id, c.state_id, c.latitude, c.longitude, s.growth_id, s.root_depth,"
+			+ " s.average_height,"
+			+ " case when s.species_id is null then null else coalesce((select bit_or(cast(1 as bigint) << (x.soil_id - 1))"
+			+ " from species_soil x where x.species_id = s.species_id and x.soil_id between 1 and 64), 0) end,"
+			+ " case when s.species_id is null then null else coalesce((select bit_or(cast(1 as bigint) << (x.climate_id - 1))"
+			+ " from species_climate x where x.species_id = s.species_id and x.climate_id between 1 and 64), 0) end,"
+			+ " case when s.species_id is null then null else (case when s.medicinal then 1 else 0 end)"
+			+ " | (case when s.attract_birds then 2 else 0 end) | (case when s.attract_bees then 4 else 0 end)"
+			+ " | (case when s.ornamental then 8 else 0 end) | (case when s.flower_id is not null then 16 else 0 end)"
+			+ " | (case when s.fruit_id is not null then 32 else 0 end) end"
+			+ " from offer o left join greenshare_user u on u.user_id = o.user_id"
+			+ " left join address a on a.address_id = u.address_id left join city c on c.city_id = a.city_id"
+			+ " left join species s on s.species_id = o.species_id"
+			+ " except select e.offer_id, cast(e.offer_status as text), e.insertion_date, e.user_id, e.species_id,"
+			+ " e.city_id, e.state_id, e.latitude, e.longitude, e.growth_id, e.root_depth, e.average_height,"
+			+ " e.soil_mask, e.climate_mask, e.species_flags from offer_search e) missing) + (select count(*) from ("
+			+ "select e.offer_id from offer_search e except select o.offer_id from offer o) deleted)")
+	long countDifferences();
+
+	@Query("select e.speciesId, count(e) from OfferSearchEntry e where e.offerStatus = ?1 group by e.speciesId")
+	List<Object[]> countBySpecies(Integer offerStatus);
+
+	@Transactional
+	@Modifying
+	@Query("update OfferSearchEntry e set e.cityId = ?2, e.stateId = ?3, e.latitude = ?4, e.longitude = ?5 where e.userId = ?1")
+	int updateLocation(Long userId, Long cityId, Long stateId, Double latitude, Double longitude);
+
+	@Transactional
+	@Modifying
+	@Query("update OfferSearchEntry e set e.latitude = ?2, e.longitude = ?3 where e.cityId = ?1")
+	int updateCoordinates(Long cityId, Double latitude, Double longitude);
+
+}
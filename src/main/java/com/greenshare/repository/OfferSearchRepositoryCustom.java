@@ -0,0 +1,43 @@
+package com.greenshare.repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.greenshare.entity.vegetable.SearchClass;
+
+/**
+ * Queries of {@link OfferSearchRepository} built from the filters that are set
+ * 
+ * @author joao.silva
+ */
+public interface OfferSearchRepositoryCustom {
+
+	/**
+	 * Ids of the active offers matching the search, newest first, with the same
+	 * filters of {@link OfferSpecifications#search(SearchClass, Collection)}
+	 * 
+	 * @param speciesIds
+	 *            species already resolved from the species filters of the search,
+	 *            null to filter by the species columns
+	 */
+	List<Long> searchIds(SearchClass searchClass, Collection<Long> speciesIds, int page, int size);
+
+	/**
+	 * Same as {@link #searchIds(SearchClass, Collection, int, int)} reading the
+	 * offers after the (insertionDate, id) of a cursor instead of an offset
+	 */
+	List<Long> searchIdsAfter(SearchClass searchClass, Collection<Long> speciesIds, Date insertionDate, Long id,
+			int size);
+
+	/**
+	 * Ids of a page of the active offers matching the search within distanceKm
+	 * of the point, nearest first
+	 * 
+	 * @return the distance in km of each offer, in the order of the page
+	 */
+	Map<Long, Double> searchNearby(SearchClass searchClass, Collection<Long> speciesIds, double latitude,
+			double longitude, double distanceKm, int page, int size);
+
+}
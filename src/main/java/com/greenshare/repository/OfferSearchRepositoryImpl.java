@@ -0,0 +1,174 @@
+package com.greenshare.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import com.greenshare.entity.offer.OfferSearchEntry;
+import com.greenshare.entity.vegetable.Growth;
+import com.greenshare.entity.vegetable.SearchClass;
+import com.greenshare.enumeration.OfferStatus;
+import com.greenshare.helpers.GeoBounds;
+
+/**
+ * Implementation of {@link OfferSearchRepositoryCustom}, native SQL on
+ * offer_search since JPQL has no bitwise operators
+ *
+ * @author joao.silva
+ */
+public class OfferSearchRepositoryImpl implements OfferSearchRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Long> searchIds(SearchClass searchClass, Collection<Long> speciesIds, int page, int size) {
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		StringBuilder sql = new StringBuilder("select offer_id from offer_search");
+		appendFilters(sql, parameters, searchClass, speciesIds);
+		sql.append(" order by insertion_date desc, offer_id desc limit :size offset :offset");
+		parameters.put("size", size);
+		parameters.put("offset", (long) page * size);
+		return findIds(sql, parameters);
+	}
+
+	@Override
+	public List<Long> searchIdsAfter(SearchClass searchClass, Collection<Long> speciesIds, Date insertionDate, Long id,
+			int size) {
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		StringBuilder sql = new StringBuilder("select offer_id from offer_search");
+		appendFilters(sql, parameters, searchClass, speciesIds);
+		sql.append(" and (insertion_date, offer_id) < (:insertionDate, :offerId)");
+		sql.append(" order by insertion_date desc, offer_id desc limit :size");
+		parameters.put("insertionDate", new Timestamp(insertionDate.getTime()));
+		parameters.put("offerId", id);
+		parameters.put("size", size);
+		return findIds(sql, parameters);
+	}
+
+	@Override
+	public Map<Long, Double> searchNearby(SearchClass searchClass, Collection<Long> speciesIds, double latitude,
+			double longitude, double distanceKm, int page, int size) {
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		StringBuilder sql = new StringBuilder("select offer_id, distance from (select offer_id, insertion_date, ");
+		/* Spherical law of cosines, least() keeps rounding from going past acos(1) */
+		sql.append(GeoBounds.EARTH_RADIUS_KM).append(" * acos(least(1, cos(radians(:latitude)) * cos(radians(latitude))")
+				.append(" * cos(radians(longitude) - radians(:longitude))")
+				.append(" + sin(radians(:latitude)) * sin(radians(latitude)))) as distance from offer_search");
+		appendFilters(sql, parameters, searchClass, speciesIds);
+		GeoBounds bounds = GeoBounds.around(latitude, longitude, distanceKm);
+		sql.append(" and latitude between :minLatitude and :maxLatitude");
+		sql.append(" and longitude between :minLongitude and :maxLongitude) nearby");
+		sql.append(" where distance <= :distance");
+		sql.append(" order by distance, insertion_date desc, offer_id desc limit :size offset :offset");
+		parameters.put("latitude", latitude);
+		parameters.put("longitude", longitude);
+		parameters.put("minLatitude", bounds.getMinLatitude());
+		parameters.put("maxLatitude", bounds.getMaxLatitude());
+		parameters.put("minLongitude", bounds.getMinLongitude());
+		parameters.put("maxLongitude", bounds.getMaxLongitude());
+		parameters.put("distance", distanceKm);
+		parameters.put("size", size);
+		parameters.put("offset", (long) page * size);
+		Query query = entityManager.createNativeQuery(sql.toString());
+		parameters.forEach(query::setParameter);
+		Map<Long, Double> distances = new LinkedHashMap<Long, Double>();
+		for (Object row : query.getResultList()) {
+			Object[] columns = (Object[]) row;
+			distances.put(((Number) columns[0]).longValue(), ((Number) columns[1]).doubleValue());
+		}
+		return distances;
+	}
+
+	private List<Long> findIds(StringBuilder sql, Map<String, Object> parameters) {
+		Query query = entityManager.createNativeQuery(sql.toString());
+		parameters.forEach(query::setParameter);
+		List<?> rows = query.getResultList();
+		List<Long> ids = new ArrayList<Long>(rows.size());
+		for (Object row : rows) {
+			ids.add(((Number) row).longValue());
+		}
+		return ids;
+	}
+
+	/**
+	 * Appends the where clause of the filters that are set, the species columns
+	 * are only read when the species were not resolved
+	 */
+	private static void appendFilters(StringBuilder sql, Map<String, Object> parameters, SearchClass searchClass,
+			Collection<Long> speciesIds) {
+		sql.append(" where offer_status = :offerStatus");
+		parameters.put("offerStatus", OfferStatus.Active.getValue());
+		if (speciesIds != null) {
+			sql.append(" and species_id in (:speciesIds)");
+			parameters.put("speciesIds", speciesIds);
+			return;
+		}
+		if (searchClass.species != null && searchClass.species.getId() != null) {
+			sql.append(" and species_id = :speciesId");
+			parameters.put("speciesId", searchClass.species.getId());
+		}
+		if (searchClass.growth != null && !searchClass.growth.isEmpty()) {
+			List<Long> growthIds = new ArrayList<Long>();
+			for (Growth growth : searchClass.growth) {
+				growthIds.add(growth.getId());
+			}
+			sql.append(" and growth_id in (:growthIds)");
+			parameters.put("growthIds", growthIds);
+		}
+		if (searchClass.soil != null && !searchClass.soil.isEmpty()) {
+			sql.append(" and (soil_mask & :soilMask) <> 0");
+			parameters.put("soilMask", OfferSearchEntry.toMask(searchClass.soil));
+		}
+		if (searchClass.climate != null && !searchClass.climate.isEmpty()) {
+			sql.append(" and (climate_mask & :climateMask) <> 0");
+			parameters.put("climateMask", OfferSearchEntry.toMask(searchClass.climate));
+		}
+		int flagMask = 0;
+		int flagValue = 0;
+		if (searchClass.isMedicinal != null) {
+			flagMask |= OfferSearchEntry.MEDICINAL;
+			flagValue |= searchClass.isMedicinal ? OfferSearchEntry.MEDICINAL : 0;
+		}
+		if (searchClass.attractBirds != null) {
+			flagMask |= OfferSearchEntry.ATTRACT_BIRDS;
+			flagValue |= searchClass.attractBirds ? OfferSearchEntry.ATTRACT_BIRDS : 0;
+		}
+		if (searchClass.attractBees != null) {
+			flagMask |= OfferSearchEntry.ATTRACT_BEES;
+			flagValue |= searchClass.attractBees ? OfferSearchEntry.ATTRACT_BEES : 0;
+		}
+		if (searchClass.isOrnamental != null) {
+			flagMask |= OfferSearchEntry.ORNAMENTAL;
+			flagValue |= searchClass.isOrnamental ? OfferSearchEntry.ORNAMENTAL : 0;
+		}
+		if (Boolean.FALSE.equals(searchClass.hasFlower)) {
+			flagMask |= OfferSearchEntry.HAS_FLOWER;
+		}
+		if (Boolean.FALSE.equals(searchClass.hasFruit)) {
+			flagMask |= OfferSearchEntry.HAS_FRUIT;
+		}
+		if (flagMask != 0) {
+			sql.append(" and (species_flags & :flagMask) = :flagValue");
+			parameters.put("flagMask", flagMask);
+			parameters.put("flagValue", flagValue);
+		}
+		if (searchClass.rootDepth != null && searchClass.rootDepth > 0) {
+			sql.append(" and root_depth <= :rootDepth");
+			parameters.put("rootDepth", searchClass.rootDepth);
+		}
+		if (searchClass.averageHeight != null && searchClass.averageHeight > 0) {
+			sql.append(" and average_height <= :averageHeight");
+			parameters.put("averageHeight", searchClass.averageHeight);
+		}
+	}
+}
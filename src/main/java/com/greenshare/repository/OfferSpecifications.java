@@ -0,0 +1,140 @@
+package com.greenshare.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.greenshare.entity.offer.Offer;
+import com.greenshare.entity.vegetable.SearchClass;
+import com.greenshare.entity.vegetable.Species;
+import com.greenshare.enumeration.OfferStatus;
+import com.greenshare.helpers.FeedCursor;
+
+/**
+ * Builds the {@link Specification} of the offer search from a
+ * {@link SearchClass}, only the filters that are set become predicates, so a
+ * search runs as one query without the joins of the filters it doesn't use
+ *
+ * @author joao.silva
+ */
+public final class OfferSpecifications {
+
+	private OfferSpecifications() {
+	}
+
+	/**
+	 * Active offers matching the search. The lists match species with any of
+	 * the items, the booleans match the species value, hasFlower and hasFruit
+	 * false match species without them, and rootDepth and averageHeight are
+	 * maximums where 0 is no limit.
+	 * 
+	 * @param speciesIds
+	 *            species already resolved from the species filters of the search,
+	 *            null to filter by the species attributes
+	 */
+	@SuppressWarnings("unchecked")
+	public static Specification<Offer> search(SearchClass searchClass, Collection<Long> speciesIds) {
+		return (root, query, cb) -> {
+			List<Predicate> predicates = new ArrayList<Predicate>();
+			/* offer_status is a TEXT column, the value is compared as text */
+			predicates.add(cb.equal(root.get("offerStatus").as(String.class),
+					String.valueOf(OfferStatus.Active.getValue())));
+			Path<Species> species;
+			if (isResultQuery(query)) {
+				/* Not on the count query, which can't fetch */
+				species = (Path<Species>) root.fetch("species", JoinType.INNER);
+				root.fetch("user", JoinType.INNER);
+			} else {
+				species = root.get("species");
+			}
+			if (speciesIds != null) {
+				predicates.add(species.get("id").in(speciesIds));
+				return cb.and(predicates.toArray(new Predicate[predicates.size()]));
+			}
+			if (searchClass.species != null && searchClass.species.getId() != null) {
+				predicates.add(cb.equal(species.get("id"), searchClass.species.getId()));
+			}
+			if (isSet(searchClass.growth)) {
+				predicates.add(species.get("growth").in(searchClass.growth));
+			}
+			if (isSet(searchClass.soil)) {
+				predicates.add(cb.exists(hasAny(root, query, cb, "soils", searchClass.soil)));
+			}
+			if (isSet(searchClass.climate)) {
+				predicates.add(cb.exists(hasAny(root, query, cb, "climates", searchClass.climate)));
+			}
+			addEqual(predicates, cb, species.get("isMedicinal"), searchClass.isMedicinal);
+			addEqual(predicates, cb, species.get("attractBirds"), searchClass.attractBirds);
+			addEqual(predicates, cb, species.get("attractBees"), searchClass.attractBees);
+			addEqual(predicates, cb, species.get("isOrnamental"), searchClass.isOrnamental);
+			if (Boolean.FALSE.equals(searchClass.hasFlower)) {
+				predicates.add(cb.isNull(species.get("flower")));
+			}
+			if (Boolean.FALSE.equals(searchClass.hasFruit)) {
+				predicates.add(cb.isNull(species.get("fruit")));
+			}
+			if (isLimit(searchClass.rootDepth)) {
+				predicates.add(cb.le(species.<Integer>get("rootDepth"), searchClass.rootDepth));
+			}
+			if (isLimit(searchClass.averageHeight)) {
+				predicates.add(cb.le(species.<Integer>get("averageHeight"), searchClass.averageHeight));
+			}
+			return cb.and(predicates.toArray(new Predicate[predicates.size()]));
+		};
+	}
+
+	/**
+	 * Offers after the position of the cursor, on the order of insertion date
+	 * and id descending. The insertion date bound repeats the or so it is a
+	 * range on offer_insertion_date_idx, criteria has no row values.
+	 */
+	public static Specification<Offer> after(FeedCursor feedCursor) {
+		return (root, query, cb) -> cb.and(
+				cb.lessThanOrEqualTo(root.<Date>get("insertionDate"), feedCursor.getInsertionDate()),
+				cb.or(cb.lessThan(root.<Date>get("insertionDate"), feedCursor.getInsertionDate()),
+						cb.lessThan(root.<Long>get("id"), feedCursor.getId())));
+	}
+
+	/**
+	 * Subquery on the many-to-many of the species instead of a join, which
+	 * would repeat the offer once per matching item
+	 */
+	private static Subquery<Long> hasAny(Root<Offer> root, CriteriaQuery<?> query, CriteriaBuilder cb,
+			String attribute, Collection<?> items) {
+		Subquery<Long> subquery = query.subquery(Long.class);
+		Root<Species> species = subquery.from(Species.class);
+		Join<Species, ?> join = species.join(attribute);
+		subquery.select(species.<Long>get("id")).where(cb.equal(species, root.get("species")), join.in(items));
+		return subquery;
+	}
+
+	private static void addEqual(List<Predicate> predicates, CriteriaBuilder cb, Path<Object> path, Boolean value) {
+		if (value != null) {
+			predicates.add(cb.equal(path, value));
+		}
+	}
+
+	private static boolean isResultQuery(CriteriaQuery<?> query) {
+		return query.getResultType() != Long.class && query.getResultType() != long.class;
+	}
+
+	private static boolean isSet(Collection<?> items) {
+		return items != null && !items.isEmpty();
+	}
+
+	private static boolean isLimit(Integer value) {
+		return value != null && value > 0;
+	}
+}
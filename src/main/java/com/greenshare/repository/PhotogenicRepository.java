@@ -0,0 +1,32 @@
+package com.greenshare.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Queries shared by the repositories of the entities that extend
+ * {@link com.greenshare.entity.abstracts.AbstractPhotogenicEntity}
+ * 
+ * @author joao.silva
+ */
+@NoRepositoryBean
+public interface PhotogenicRepository<Entity> extends Repository<Entity, Long> {
+
+	@Query("select e.id from #{#entityName} e where e.id in ?1")
+	List<Long> findExistingIds(Collection<Long> ids);
+
+	@Query("select e.id from #{#entityName} e where e.id in ?1 and e.hasImage = true")
+	List<Long> findIdsWithImage(Collection<Long> ids);
+
+	@Transactional
+	@Modifying
+	@Query("update #{#entityName} e set e.hasImage = true where e.id in ?1")
+	int markWithImage(Collection<Long> ids);
+
+}
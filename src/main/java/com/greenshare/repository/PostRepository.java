@@ -1,7 +1,11 @@
 package com.greenshare.repository;
 
+import java.util.Date;
+import java.util.List;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
@@ -13,7 +17,7 @@ import com.greenshare.entity.post.Post;
  * @author joao.silva
  */
 @Repository
-public interface PostRepository extends PagingAndSortingRepository<Post, Long> {
+public interface PostRepository extends PagingAndSortingRepository<Post, Long>, PhotogenicRepository<Post> {
 
 	Page<Post> findAllByUser(Long id, Pageable pageable);
 
@@ -23,4 +27,31 @@ public interface PostRepository extends PagingAndSortingRepository<Post, Long> {
 
 	Page<Post> findAllByUserAddressCity(Long id, Pageable pageable);
 
+	/*
+	 * Keyset feeds, newest first, after the (insertionDate, id) of the cursor.
+	 * The insertionDate <= bound repeats the or, so it is a range on post_feed_idx.
+	 */
+
+	@Query("select p from Post p where p.insertionDate <= ?1 and (p.insertionDate < ?1 or p.id < ?2) "
+			+ "order by p.insertionDate desc, p.id desc")
+	List<Post> findFeed(Date insertionDate, Long id, Pageable pageable);
+
+	@Query("select p from Post p where p.user.id = ?1 and p.insertionDate <= ?2 and (p.insertionDate < ?2 or p.id < ?3) "
+			+ "order by p.insertionDate desc, p.id desc")
+	List<Post> findFeedByUser(Long userId, Date insertionDate, Long id, Pageable pageable);
+
+	@Query("select p from Post p where p.species.id = ?1 and p.insertionDate <= ?2 and (p.insertionDate < ?2 or p.id < ?3) "
+			+ "order by p.insertionDate desc, p.id desc")
+	List<Post> findFeedBySpecies(Long speciesId, Date insertionDate, Long id, Pageable pageable);
+
+	@Query("select p from Post p where p.user.address.city.state.id = ?1 "
+			+ "and p.insertionDate <= ?2 and (p.insertionDate < ?2 or p.id < ?3) "
+			+ "order by p.insertionDate desc, p.id desc")
+	List<Post> findFeedByState(Long stateId, Date insertionDate, Long id, Pageable pageable);
+
+	@Query("select p from Post p where p.user.address.city.id = ?1 "
+			+ "and p.insertionDate <= ?2 and (p.insertionDate < ?2 or p.id < ?3) "
+			+ "order by p.insertionDate desc, p.id desc")
+	List<Post> findFeedByCity(Long cityId, Date insertionDate, Long id, Pageable pageable);
+
 }
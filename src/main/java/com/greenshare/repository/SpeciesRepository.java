@@ -11,7 +11,7 @@ import com.greenshare.entity.vegetable.Species;
  * @author joao.silva
  */
 @Repository
-public interface SpeciesRepository extends PagingAndSortingRepository<Species, Long> {
+public interface SpeciesRepository extends PagingAndSortingRepository<Species, Long>, PhotogenicRepository<Species> {
 	
 	Iterable<Species> findOneByCommonNameAndEnabledTrue(String commonName);
 
@@ -0,0 +1,115 @@
+package com.greenshare.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import org.springframework.stereotype.Repository;
+
+import com.greenshare.entity.abstracts.AbstractEntity;
+import com.greenshare.enumeration.OfferStatus;
+
+/**
+ * Full text search on the search_vector columns of species, offer and post,
+ * created with their triggers by Script/full_text_search_script.sql. The text
+ * typed by the user becomes a prefix query of all its words, ranked by
+ * ts_rank.
+ *
+ * @author joao.silva
+ */
+@Repository
+public class TextSearchRepository {
+
+	/* Text search configuration of the script, Portuguese with unaccent */
+	private static final String CONFIGURATION = "greenshare_pt";
+
+	private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+	private static final int MAX_WORDS = 8;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * @return the prefix query matching all the words of the text, or null if
+	 *         the text has no words. Only letters and digits are kept, so the
+	 *         text can't carry tsquery operators.
+	 */
+	public static String toPrefixQuery(String text) {
+		if (text == null) {
+			return null;
+		}
+		StringBuilder query = new StringBuilder();
+		Matcher matcher = WORD.matcher(text);
+		int words = 0;
+		while (matcher.find() && words++ < MAX_WORDS) {
+			if (query.length() > 0) {
+				query.append(" & ");
+			}
+			query.append(matcher.group().toLowerCase()).append(":*");
+		}
+		return query.length() == 0 ? null : query.toString();
+	}
+
+	/**
+	 * @return the entities in the order of the ids, ids without entity are
+	 *         skipped
+	 */
+	public static <T extends AbstractEntity<?>> List<T> inOrder(List<Long> ids, Iterable<T> entities) {
+		Map<Long, T> entitiesById = new HashMap<Long, T>();
+		for (T entity : entities) {
+			entitiesById.put(entity.getId(), entity);
+		}
+		List<T> ordered = new ArrayList<T>(ids.size());
+		for (Long id : ids) {
+			T entity = entitiesById.get(id);
+			if (entity != null) {
+				ordered.add(entity);
+			}
+		}
+		return ordered;
+	}
+
+	public List<Long> searchSpeciesIds(String prefixQuery, int page, int size) {
+		return searchIds("species", "species_id", "enabled = true", prefixQuery, page, size);
+	}
+
+	public List<Long> searchOfferIds(String prefixQuery, int page, int size) {
+		/* offer_status is a TEXT column */
+		return searchIds("offer", "offer_id", "offer_status = '" + OfferStatus.Active.getValue() + "'", prefixQuery,
+				page, size);
+	}
+
+	public List<Long> searchPostIds(String prefixQuery, int page, int size) {
+		return searchIds("post", "post_id", null, prefixQuery, page, size);
+	}
+
+	private List<Long> searchIds(String table, String idColumn, String condition, String prefixQuery, int page,
+			int size) {
+		StringBuilder sql = new StringBuilder("select ").append(idColumn).append(" from ").append(table)
+				.append(", to_tsquery('").append(CONFIGURATION).append("', :query) query")
+				.append(" where search_vector @@ query");
+		if (condition != null) {
+			sql.append(" and ").append(condition);
+		}
+		sql.append(" order by ts_rank(search_vector, query) desc, ").append(idColumn).append(" desc");
+		sql.append(" limit :size offset :offset");
+		Query query = entityManager.createNativeQuery(sql.toString());
+		query.setParameter("query", prefixQuery);
+		query.setParameter("size", size);
+		query.setParameter("offset", (long) page * size);
+		List<?> rows = query.getResultList();
+		List<Long> ids = new ArrayList<Long>(rows.size());
+		for (Object row : rows) {
+			ids.add(((Number) row).longValue());
+		}
+		return ids;
+	}
+}
@@ -11,7 +11,7 @@ import com.greenshare.entity.user.User;
  * @author joao.silva
  */
 @Repository
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends CrudRepository<User, Long>, PhotogenicRepository<User> {
 	
 	User findOneByEmail(String email);
 
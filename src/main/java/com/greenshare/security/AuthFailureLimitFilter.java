@@ -0,0 +1,47 @@
+package com.greenshare.security;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Limits the failed authentications of each IP with {@link RateLimiter},
+ * answering 429 with Retry-After once its bucket is empty. It runs before the
+ * security filters, so a client guessing passwords over HTTP Basic, tokens or
+ * the login is stopped before BCrypt runs, which {@link RateLimitFilter}
+ * can't do as it only sees the requests the security filters let through.
+ * Only the answers with 401 take from the bucket, the users sharing an IP
+ * with valid credentials are not limited by it.
+ *
+ * @author joao.silva
+ */
+public class AuthFailureLimitFilter extends OncePerRequestFilter {
+
+	private final RateLimiter rateLimiter;
+
+	public AuthFailureLimitFilter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String client = "ip:" + request.getRemoteAddr();
+		long retryAfter = this.rateLimiter.getAuthFailureWait(client);
+		if (retryAfter > 0) {
+			RateLimitFilter.reject(response, HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+					"Muitas tentativas de autenticação, tente novamente em " + retryAfter + " segundos.");
+			return;
+		}
+		chain.doFilter(request, response);
+		if (response.getStatus() == HttpServletResponse.SC_UNAUTHORIZED) {
+			this.rateLimiter.authFailed(client);
+		}
+	}
+}
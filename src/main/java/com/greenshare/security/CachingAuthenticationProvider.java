@@ -0,0 +1,55 @@
+package com.greenshare.security;
+
+import java.util.Collections;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * Authenticates the HTTP Basic credentials found in {@link CredentialCache}
+ * without querying the user or running BCrypt, the others go to the given
+ * provider and are cached when valid. The principal is a
+ * {@link org.springframework.security.core.userdetails.User} with the email
+ * either way.
+ *
+ * @author joao.silva
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+	private final AuthenticationProvider provider;
+
+	private final CredentialCache credentialCache;
+
+	public CachingAuthenticationProvider(AuthenticationProvider provider, CredentialCache credentialCache) {
+		this.provider = provider;
+		this.credentialCache = credentialCache;
+	}
+
+	@Override
+	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+		String email = authentication.getName();
+		Object credentials = authentication.getCredentials();
+		if (email == null || !(credentials instanceof String)) {
+			return this.provider.authenticate(authentication);
+		}
+		String password = (String) credentials;
+		if (this.credentialCache.contains(email, password)) {
+			User principal = new User(email, "", Collections.<GrantedAuthority>emptyList());
+			return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+		}
+		Authentication result = this.provider.authenticate(authentication);
+		if (result != null && result.isAuthenticated()) {
+			this.credentialCache.put(email, password);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean supports(Class<?> authentication) {
+		return this.provider.supports(authentication);
+	}
+}
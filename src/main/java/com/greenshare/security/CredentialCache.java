@@ -0,0 +1,97 @@
+package com.greenshare.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Short lived cache of the HTTP Basic credentials already checked with
+ * BCrypt, used by {@link CachingAuthenticationProvider}. Credentials are kept
+ * only as an HMAC-SHA256 with a random key of this process, never in plain
+ * text. Entries of a user are removed when its password changes or it is
+ * deleted.
+ *
+ * @author joao.silva
+ */
+@Service
+public class CredentialCache {
+
+	private static final String ALGORITHM = "HmacSHA256";
+
+	@Value("${greenshare.security.basic.cache-seconds:300}")
+	private long cacheSeconds;
+
+	@Value("${greenshare.security.basic.cache-max-entries:10000}")
+	private int maxEntries;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	private final ThreadLocal<Mac> macs;
+
+	public CredentialCache() {
+		byte[] secret = new byte[32];
+		new SecureRandom().nextBytes(secret);
+		SecretKeySpec key = new SecretKeySpec(secret, ALGORITHM);
+		this.macs = ThreadLocal.withInitial(() -> {
+			try {
+				Mac mac = Mac.getInstance(ALGORITHM);
+				mac.init(key);
+				return mac;
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	/**
+	 * @return if the credentials were checked less than cache-seconds ago
+	 */
+	public boolean contains(String email, String password) {
+		Entry entry = this.entries.get(getKey(email, password));
+		return entry != null && entry.expiration >= System.currentTimeMillis();
+	}
+
+	public void put(String email, String password) {
+		long now = System.currentTimeMillis();
+		if (this.entries.size() >= this.maxEntries) {
+			this.entries.values().removeIf(entry -> entry.expiration < now);
+			if (this.entries.size() >= this.maxEntries) {
+				this.entries.clear();
+			}
+		}
+		this.entries.put(getKey(email, password), new Entry(email, now + this.cacheSeconds * 1000));
+	}
+
+	public void invalidate(String email) {
+		this.entries.values().removeIf(entry -> entry.email.equals(email));
+	}
+
+	private String getKey(String email, String password) {
+		Mac mac = this.macs.get();
+		mac.update(email.getBytes(StandardCharsets.UTF_8));
+		/* Emails can't have a NUL, so the key can't be shifted between the two */
+		mac.update((byte) 0);
+		return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static class Entry {
+
+		private final String email;
+
+		private final long expiration;
+
+		private Entry(String email, long expiration) {
+			this.email = email;
+			this.expiration = expiration;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.greenshare.security;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Limits the requests of each client with {@link RateLimiter}, answering 429
+ * with Retry-After when its bucket is empty. The client is the user when the
+ * request is authenticated and the IP otherwise, so it must run after the
+ * security filters. Behind a proxy server.use-forward-headers must be set for
+ * the IP to be the one of the client. Requests without a user are also shed
+ * with 503 when too many are running, they are the ones reaching the public
+ * endpoints.
+ *
+ * @author joao.silva
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
+	private final RateLimiter rateLimiter;
+
+	public RateLimitFilter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		boolean hasUser = authentication != null && authentication.isAuthenticated()
+				&& !(authentication instanceof AnonymousAuthenticationToken);
+		String client = hasUser ? "user:" + authentication.getName() : "ip:" + request.getRemoteAddr();
+		long retryAfter = this.rateLimiter.acquire(PATH_HELPER.getPathWithinApplication(request), client);
+		if (retryAfter > 0) {
+			reject(response, HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+					"Muitas requisições, tente novamente em " + retryAfter + " segundos.");
+			return;
+		}
+		if (hasUser) {
+			chain.doFilter(request, response);
+			return;
+		}
+		if (!this.rateLimiter.enterPublic()) {
+			reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "Servidor ocupado, tente novamente.");
+			return;
+		}
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			this.rateLimiter.exitPublic();
+		}
+	}
+
+	static void reject(HttpServletResponse response, HttpStatus status, long retryAfter, String message)
+			throws IOException {
+		response.setStatus(status.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+		response.setContentType("text/plain;charset=UTF-8");
+		response.getWriter().write(message);
+	}
+}
@@ -0,0 +1,227 @@
+package com.greenshare.security;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Token buckets per route and client, used by {@link RateLimitFilter}. A
+ * route has capacity requests of burst and gets perMinute requests back each
+ * minute, set as "pattern=capacity/perMinute" on greenshare.rate-limit.routes,
+ * the first matching pattern is used and the other paths use
+ * greenshare.rate-limit.default.
+ *
+ * The buckets of a route are the slots of an {@link AtomicLongArray}, the
+ * client is hashed to a slot and its bucket is updated with a compare and
+ * set, never with a lock. Each slot keeps only the time the bucket will be
+ * full again (GCRA), so clients sharing a slot share their budget, the number
+ * of slots must be well above the number of clients at once. Counters are
+ * exposed on the actuator metrics as rate-limit.*
+ *
+ * Failed authentications of each IP have their own bucket, set on
+ * greenshare.rate-limit.auth-failures and used by
+ * {@link AuthFailureLimitFilter} before the security filters.
+ *
+ * @author joao.silva
+ */
+@Service
+public class RateLimiter implements PublicMetrics {
+
+	private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+	private final List<Route> routes = new ArrayList<Route>();
+
+	private final Route defaultRoute;
+
+	private final Route authFailures;
+
+	/* Requests without a user at once, over it they are shed */
+	private final Semaphore publicRequests;
+
+	private final int maxPublicRequests;
+
+	/* Times are nanoseconds since this, so an empty slot is a full bucket */
+	private final long origin = System.nanoTime();
+
+	private final AtomicLong allowed = new AtomicLong();
+
+	private final AtomicLong limited = new AtomicLong();
+
+	private final AtomicLong shed = new AtomicLong();
+
+	private final AtomicLong failures = new AtomicLong();
+
+	private final AtomicLong blocked = new AtomicLong();
+
+	public RateLimiter(@Value("${greenshare.rate-limit.routes:}") String[] routes,
+			@Value("${greenshare.rate-limit.default:600/600}") String defaultBudget,
+			@Value("${greenshare.rate-limit.slots:16384}") int slots,
+			@Value("${greenshare.rate-limit.max-public-requests:32}") int maxPublicRequests,
+			@Value("${greenshare.rate-limit.auth-failures:10/10}") String authFailures) {
+		int size = Integer.highestOneBit(Math.max(slots - 1, 1)) << 1;
+		for (String route : routes) {
+			int equals = route.lastIndexOf('=');
+			if (equals <= 0) {
+				throw new IllegalArgumentException("Rate limit route without pattern=capacity/perMinute: " + route);
+			}
+			this.routes.add(new Route(route.substring(0, equals).trim(), route.substring(equals + 1), size));
+		}
+		this.defaultRoute = defaultBudget.trim().isEmpty() ? null : new Route("/**", defaultBudget, size);
+		this.maxPublicRequests = maxPublicRequests;
+		this.publicRequests = new Semaphore(maxPublicRequests);
+		this.authFailures = new Route("/**", authFailures, size);
+	}
+
+	/**
+	 * Takes a request from the bucket of the client on the route of the path
+	 *
+	 * @return 0 if the request is allowed, or the seconds until it would be
+	 */
+	public long acquire(String path, String client) {
+		Route route = getRoute(path);
+		if (route == null) {
+			return 0;
+		}
+		long wait = route.acquire(spread(client.hashCode()), System.nanoTime() - this.origin);
+		if (wait > 0) {
+			this.limited.incrementAndGet();
+			return toSeconds(wait);
+		}
+		this.allowed.incrementAndGet();
+		return 0;
+	}
+
+	/**
+	 * @return if the request without a user can run, it must then call
+	 *         {@link #exitPublic()} when done
+	 */
+	public boolean enterPublic() {
+		if (this.publicRequests.tryAcquire()) {
+			return true;
+		}
+		this.shed.incrementAndGet();
+		return false;
+	}
+
+	public void exitPublic() {
+		this.publicRequests.release();
+	}
+
+	/**
+	 * @return 0 if the client can still fail to authenticate, or the seconds
+	 *         until it can, without taking from its bucket
+	 */
+	public long getAuthFailureWait(String client) {
+		long wait = this.authFailures.getWait(spread(client.hashCode()), System.nanoTime() - this.origin);
+		if (wait > 0) {
+			this.blocked.incrementAndGet();
+			return toSeconds(wait);
+		}
+		return 0;
+	}
+
+	/**
+	 * Takes a failed authentication from the bucket of the client
+	 */
+	public void authFailed(String client) {
+		this.failures.incrementAndGet();
+		this.authFailures.acquire(spread(client.hashCode()), System.nanoTime() - this.origin);
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		metrics.add(new Metric<Long>("rate-limit.allowed", this.allowed.get()));
+		metrics.add(new Metric<Long>("rate-limit.limited", this.limited.get()));
+		metrics.add(new Metric<Long>("rate-limit.shed", this.shed.get()));
+		metrics.add(new Metric<Long>("rate-limit.auth-failures", this.failures.get()));
+		metrics.add(new Metric<Long>("rate-limit.auth-blocked", this.blocked.get()));
+		metrics.add(new Metric<Integer>("rate-limit.public-requests",
+				this.maxPublicRequests - this.publicRequests.availablePermits()));
+		return metrics;
+	}
+
+	private Route getRoute(String path) {
+		for (Route route : this.routes) {
+			if (MATCHER.match(route.pattern, path)) {
+				return route;
+			}
+		}
+		return this.defaultRoute;
+	}
+
+	/* Rounded up, at least 1 */
+	private static long toSeconds(long nanos) {
+		return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + TimeUnit.SECONDS.toNanos(1) - 1));
+	}
+
+	/* Same spreading of the high bits as HashMap */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private static final class Route {
+
+		private final String pattern;
+
+		/* Time to get back one request */
+		private final long interval;
+
+		/* How far ahead of now a bucket can be and still allow a request */
+		private final long tolerance;
+
+		private final AtomicLongArray slots;
+
+		private Route(String pattern, String budget, int size) {
+			int slash = budget.indexOf('/');
+			if (slash <= 0) {
+				throw new IllegalArgumentException("Rate limit budget without capacity/perMinute: " + budget);
+			}
+			int capacity = Integer.parseInt(budget.substring(0, slash).trim());
+			int perMinute = Integer.parseInt(budget.substring(slash + 1).trim());
+			if (capacity < 1 || perMinute < 1) {
+				throw new IllegalArgumentException("Rate limit budget must be at least 1/1: " + budget);
+			}
+			this.pattern = pattern;
+			this.interval = TimeUnit.MINUTES.toNanos(1) / perMinute;
+			this.tolerance = this.interval * (capacity - 1);
+			this.slots = new AtomicLongArray(size);
+		}
+
+		/**
+		 * @return 0 if a request would be allowed, or the nanoseconds until it
+		 *         would be
+		 */
+		private long getWait(int hash, long now) {
+			long start = Math.max(this.slots.get(hash & (this.slots.length() - 1)), now);
+			return Math.max(0, start - now - this.tolerance);
+		}
+
+		/**
+		 * @return 0 if allowed, or the nanoseconds until it would be
+		 */
+		private long acquire(int hash, long now) {
+			int index = hash & (this.slots.length() - 1);
+			while (true) {
+				long full = this.slots.get(index);
+				long start = Math.max(full, now);
+				if (start - now > this.tolerance) {
+					return start - now - this.tolerance;
+				}
+				if (this.slots.compareAndSet(index, full, start + this.interval)) {
+					return 0;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.greenshare.security;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.greenshare.repository.UserRepository;
+import com.greenshare.service.user.CurrentUserCache;
+
+/**
+ * Authenticates the requests with an "Authorization: Bearer" access token of
+ * {@link TokenService}. The principal is a
+ * {@link org.springframework.security.core.userdetails.User} with the email,
+ * like the one of HTTP Basic, so the current user is found the same way.
+ * Requests without a token go on to HTTP Basic.
+ *
+ * A token outlives a deleted user, so the user must still exist. The id kept
+ * by {@link CurrentUserCache} is enough, it is evicted when the user is
+ * deleted, otherwise the user is queried once and cached.
+ *
+ * Not a bean, otherwise Spring Boot would also register it outside of the
+ * security chain.
+ *
+ * @author joao.silva
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+	private static final String BEARER = "Bearer ";
+
+	private final TokenService tokenService;
+
+	private final CurrentUserCache currentUserCache;
+
+	private final UserRepository userRepository;
+
+	public TokenAuthenticationFilter(TokenService tokenService, CurrentUserCache currentUserCache,
+			UserRepository userRepository) {
+		this.tokenService = tokenService;
+		this.currentUserCache = currentUserCache;
+		this.userRepository = userRepository;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+		if (header == null || !header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+			chain.doFilter(request, response);
+			return;
+		}
+		String email = this.tokenService.verifyAccessToken(header.substring(BEARER.length()).trim());
+		if (email == null) {
+			reject(response, "Token inválido ou expirado.");
+			return;
+		}
+		if (!userExists(email)) {
+			reject(response, "Usuário do token não encontrado.");
+			return;
+		}
+		User principal = new User(email, "", Collections.<GrantedAuthority>emptyList());
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+		chain.doFilter(request, response);
+	}
+
+	private boolean userExists(String email) {
+		if (this.currentUserCache.getId(email) != null) {
+			return true;
+		}
+		com.greenshare.entity.user.User user = this.userRepository.findOneByEmail(email);
+		if (user == null) {
+			return false;
+		}
+		this.currentUserCache.put(email, user.getId());
+		return true;
+	}
+
+	private void reject(HttpServletResponse response, String message) throws IOException {
+		SecurityContextHolder.clearContext();
+		response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+		response.setContentType("text/plain;charset=UTF-8");
+		response.getWriter().write(message);
+	}
+}
@@ -0,0 +1,177 @@
+package com.greenshare.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.greenshare.entity.user.User;
+import com.greenshare.helpers.IsHelper;
+
+/**
+ * Signed tokens of the users, checked by {@link TokenAuthenticationFilter}
+ * with one HMAC-SHA256 instead of a query and a BCrypt verify per request.
+ * A token is the base64url of "type|expiration|stamp|email" and of its
+ * signature. Access tokens are short lived and never read the database,
+ * refresh tokens carry a stamp of the password hash, so changing the password
+ * invalidates them.
+ *
+ * @author joao.silva
+ */
+@Service
+public class TokenService extends IsHelper {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TokenService.class);
+
+	private static final String ALGORITHM = "HmacSHA256";
+
+	static final String ACCESS = "a";
+
+	static final String REFRESH = "r";
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+	/* Tokens longer than this are rejected before decoding */
+	private static final int MAX_LENGTH = 1024;
+
+	private final SecretKeySpec key;
+
+	private final ThreadLocal<Mac> macs;
+
+	@Value("${greenshare.security.token.access-seconds:900}")
+	private long accessSeconds;
+
+	@Value("${greenshare.security.token.refresh-seconds:1209600}")
+	private long refreshSeconds;
+
+	/**
+	 * @param randomSecret
+	 *            allows starting without a secret, with a random one that only
+	 *            this node knows and that is lost on restart, for development
+	 */
+	public TokenService(@Value("${greenshare.security.token.secret:}") String secret,
+			@Value("${greenshare.security.token.random-secret:false}") boolean randomSecret) {
+		byte[] secretBytes;
+		if (secret.isEmpty()) {
+			if (!randomSecret) {
+				throw new IllegalStateException("greenshare.security.token.secret is not set, set it to the same"
+						+ " value on all the nodes or set greenshare.security.token.random-secret for development");
+			}
+			LOGGER.warn("greenshare.security.token.secret is not set, tokens will not survive a restart");
+			secretBytes = new byte[32];
+			new SecureRandom().nextBytes(secretBytes);
+		} else {
+			secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+		}
+		this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+		this.macs = ThreadLocal.withInitial(() -> {
+			try {
+				Mac mac = Mac.getInstance(ALGORITHM);
+				mac.init(this.key);
+				return mac;
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	public String createAccessToken(User user) {
+		return create(ACCESS, this.accessSeconds, "", user.getEmail());
+	}
+
+	public String createRefreshToken(User user) {
+		return create(REFRESH, this.refreshSeconds, getStamp(user), user.getEmail());
+	}
+
+	public long getAccessSeconds() {
+		return this.accessSeconds;
+	}
+
+	/**
+	 * @return the email of a valid access token, or null
+	 */
+	public String verifyAccessToken(String token) {
+		String[] fields = verify(token, ACCESS);
+		return isNull(fields) ? null : fields[3];
+	}
+
+	/**
+	 * @return the email of a valid refresh token, or null. The stamp must
+	 *         still be checked with {@link #hasStamp(String, User)}.
+	 */
+	public String verifyRefreshToken(String token) {
+		String[] fields = verify(token, REFRESH);
+		return isNull(fields) ? null : fields[3];
+	}
+
+	/**
+	 * @return if the refresh token was issued with the current password of the
+	 *         user
+	 */
+	public boolean hasStamp(String token, User user) {
+		String[] fields = verify(token, REFRESH);
+		return isNotNull(fields) && fields[2].equals(getStamp(user));
+	}
+
+	private String create(String type, long seconds, String stamp, String email) {
+		long expiration = System.currentTimeMillis() / 1000 + seconds;
+		String payload = ENCODER.encodeToString(
+				(type + '|' + expiration + '|' + stamp + '|' + email).getBytes(StandardCharsets.UTF_8));
+		return payload + '.' + ENCODER.encodeToString(sign(payload.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	/**
+	 * @return the fields of the token if it's signed, of the type and not
+	 *         expired, or null
+	 */
+	private String[] verify(String token, String type) {
+		if (isNull(token) || token.length() > MAX_LENGTH) {
+			return null;
+		}
+		int dot = token.indexOf('.');
+		if (dot <= 0) {
+			return null;
+		}
+		try {
+			byte[] payload = token.substring(0, dot).getBytes(StandardCharsets.US_ASCII);
+			byte[] signature = DECODER.decode(token.substring(dot + 1));
+			if (!MessageDigest.isEqual(sign(payload), signature)) {
+				return null;
+			}
+			String[] fields = new String(DECODER.decode(payload), StandardCharsets.UTF_8).split("\\|", 4);
+			if (fields.length != 4 || !type.equals(fields[0])
+					|| Long.parseLong(fields[1]) < System.currentTimeMillis() / 1000) {
+				return null;
+			}
+			return fields;
+		} catch (IllegalArgumentException e) {
+			/* Not base64url or not a number */
+			return null;
+		}
+	}
+
+	private byte[] sign(byte[] payload) {
+		return this.macs.get().doFinal(payload);
+	}
+
+	/**
+	 * @return a short signature of the password hash, changed with the
+	 *         password
+	 */
+	private String getStamp(User user) {
+		byte[] signature = sign(String.valueOf(user.getPassword()).getBytes(StandardCharsets.UTF_8));
+		return ENCODER.encodeToString(Arrays.copyOf(signature, 9));
+	}
+}
@@ -2,18 +2,25 @@ package com.greenshare.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
 import com.greenshare.entity.user.User;
+import com.greenshare.repository.UserRepository;
+import com.greenshare.service.user.CurrentUserCache;
 
 /**
  * Authentication class for User
@@ -41,19 +48,45 @@ public class UserSecurityConfig extends WebSecurityConfigurerAdapter {
     @Value("${social.security.public:/city/state/{id}}")
     private String[] securityPublicAddressCity;
     
+    @Value("${social.security.public:/user/auth/token/,/user/auth/refresh/}")
+    private String[] securityPublicAuthToken;
+    
+    /* HTTP Basic stays for the clients not using tokens yet */
+    @Value("${greenshare.security.basic.enabled:true}")
+    private boolean basicEnabled;
+    
 	@Autowired
 	private UserSecurityService userDetailsService;
+	
+	@Autowired
+	private TokenService tokenService;
+	
+	@Autowired
+	private CredentialCache credentialCache;
+	
+	@Autowired
+	private RateLimiter rateLimiter;
+	
+	@Autowired
+	private CurrentUserCache currentUserCache;
+	
+	@Autowired
+	private UserRepository userRepository;
     
 	@Override
     public void configure(HttpSecurity httpSecurity) throws Exception {
         httpSecurity
                 .authorizeRequests().anyRequest().authenticated()
                 .and()
-                .httpBasic()
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService, currentUserCache, userRepository), BasicAuthenticationFilter.class)
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 .and()
                 .cors()
                 .and()
                 .csrf().disable();
+        if (basicEnabled) {
+        	httpSecurity.httpBasic();
+        }
     }
 	@Override
 	public void configure(WebSecurity webSecurity) throws Exception {
@@ -63,7 +96,8 @@ public class UserSecurityConfig extends WebSecurityConfigurerAdapter {
 	           .antMatchers(securityPublicAddressCountry)
 	           .antMatchers(securityPublicAddressState)
 	           .antMatchers(securityPublicAddressCity)
-	           .antMatchers(securityPublicValidEmail);
+	           .antMatchers(securityPublicValidEmail)
+	           .antMatchers(securityPublicAuthToken);
 	}
 	
 	@Bean
@@ -76,9 +110,35 @@ public class UserSecurityConfig extends WebSecurityConfigurerAdapter {
         };
     }
 	
+	/**
+	 * Runs right before the security filters, so the failed authentications
+	 * are limited before their BCrypt
+	 */
+	@Bean
+	public FilterRegistrationBean authFailureLimitFilter() {
+		FilterRegistrationBean registration = new FilterRegistrationBean(new AuthFailureLimitFilter(rateLimiter));
+		registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+		return registration;
+	}
+	
+	/**
+	 * Runs right after the security filters, so the user is known and the
+	 * public endpoints ignored by them are limited too
+	 */
+	@Bean
+	public FilterRegistrationBean rateLimitFilter() {
+		FilterRegistrationBean registration = new FilterRegistrationBean(new RateLimitFilter(rateLimiter));
+		registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+		return registration;
+	}
+	
 	@Autowired
     public void setDetailsService(AuthenticationManagerBuilder auth) throws Exception {
-		auth.userDetailsService(userDetailsService).passwordEncoder(User.passwordEncoder());
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setUserDetailsService(userDetailsService);
+		provider.setPasswordEncoder(User.passwordEncoder());
+		/* BCrypt runs once per cache-seconds for each client still on HTTP Basic */
+		auth.authenticationProvider(new CachingAuthenticationProvider(provider, credentialCache));
     }
 	
 }
@@ -29,6 +29,9 @@ public class UserSecurityService implements UserDetailsService {
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         List<GrantedAuthority> grants = new ArrayList<>();
         com.greenshare.entity.user.User user = userService.findOneUserByEmail(email);
+        if (user == null) {
+        	throw new UsernameNotFoundException(email);
+        }
         return new User(user.getEmail(),user.getPassword(),grants);
     }
 }
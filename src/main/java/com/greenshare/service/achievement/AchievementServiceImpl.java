@@ -8,8 +8,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import com.greenshare.entity.achievement.Achievement;
+import com.greenshare.enumeration.PhotoType;
 import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.AchievementRepository;
+import com.greenshare.service.image.ImageServiceImpl;
 
 /**
  * Service class implementation of
@@ -23,6 +25,9 @@ public class AchievementServiceImpl extends IsHelper implements AchievementServi
 	@Autowired
 	AchievementRepository achievementRepository;
 
+	@Autowired
+	ImageServiceImpl imageService;
+
 	@Override
 	public ResponseEntity<?> save(Achievement achievement) {
 		Achievement newAchievement = new Achievement(achievement.getCategory(), achievement.getDescription(),
@@ -37,6 +42,7 @@ public class AchievementServiceImpl extends IsHelper implements AchievementServi
 	public ResponseEntity<?> delete(Long id) {
 		if (isNotNull(id)) {
 			achievementRepository.delete(id);
+			imageService.deleteImage(PhotoType.ACHIEVEMENT, id);
 			return new ResponseEntity<String>("Arquivo deletado", HttpStatus.OK);
 		}
 		return new ResponseEntity<String>("É necessário passar um ID", HttpStatus.BAD_REQUEST);
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.greenshare.entity.address.Address;
 import com.greenshare.entity.address.City;
@@ -15,6 +16,7 @@ import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.AddressRepository;
 import com.greenshare.repository.CityRepository;
 import com.greenshare.repository.UserRepository;
+import com.greenshare.service.offer.OfferSearchIndexService;
 
 /**
  * Implementation Service of
@@ -34,6 +36,9 @@ public class AddressServiceImpl extends IsHelper implements AddressService {
 	@Autowired
 	CityRepository cityRepository;
 
+	@Autowired
+	OfferSearchIndexService offerSearchIndexService;
+
 	@Override
 	public ResponseEntity<?> save(Address address) {
 		if (isNotNull(address)) {
@@ -61,7 +66,7 @@ public class AddressServiceImpl extends IsHelper implements AddressService {
 	public ResponseEntity<?> delete(Long id) {
 		if (isNotNull(id)) {
 			Address address = addressRepository.findOne(id);
-			if (address.getUser().getId() == getCurrentUser().getId()) {
+			if (address.getUser().getId().equals(getCurrentUserId())) {
 				addressRepository.delete(id);
 				return new ResponseEntity<String>("Endereço deletado.", HttpStatus.OK);
 			}
@@ -93,14 +98,16 @@ public class AddressServiceImpl extends IsHelper implements AddressService {
 	}
 
 	@Override
+	@Transactional
 	public ResponseEntity<?> update(Address address) {
 		if(isNotNull(address)) {
 			Address addressDB = addressRepository.findOne(address.getId());
 			if(isNotNull(addressDB)) {
-				if(addressDB.getUser().getId() == getCurrentUserId()) {
+				if(addressDB.getUser().getId().equals(getCurrentUserId())) {
 					addressDB.update(address);
 					if(addressDB.isValid()) {
 						addressDB = addressRepository.save(addressDB);
+						offerSearchIndexService.indexAddress(addressDB);
 						return new ResponseEntity<Address>(addressDB, HttpStatus.OK);
 					}
 					return new ResponseEntity<List<String>>(addressDB.getValidationErrors(), HttpStatus.BAD_REQUEST);
@@ -0,0 +1,16 @@
+package com.greenshare.service.auth;
+
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Service interface for login of {@link com.greenshare.entity.user.User}
+ * 
+ * @author joao.silva
+ */
+public interface LoginService {
+
+	ResponseEntity<?> createToken(String email, String password);
+
+	ResponseEntity<?> refreshToken(String refreshToken);
+
+}
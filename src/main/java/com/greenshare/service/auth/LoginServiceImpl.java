@@ -0,0 +1,61 @@
+package com.greenshare.service.auth;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.greenshare.entity.user.AuthToken;
+import com.greenshare.entity.user.User;
+import com.greenshare.helpers.IsHelper;
+import com.greenshare.repository.UserRepository;
+import com.greenshare.security.TokenService;
+
+/**
+ * Implementation of {@link com.greenshare.service.auth.LoginService} interface
+ * 
+ * @author joao.silva
+ */
+@Service
+public class LoginServiceImpl extends IsHelper implements LoginService {
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Autowired
+	TokenService tokenService;
+
+	/**
+	 * Checks the password once with BCrypt and gives the tokens used by the
+	 * next requests instead of it
+	 */
+	@Override
+	public ResponseEntity<?> createToken(String email, String password) {
+		if (isNull(email) || isNull(password)) {
+			return new ResponseEntity<String>("Email e senha não podem ser nulos.", HttpStatus.BAD_REQUEST);
+		}
+		User userDB = userRepository.findOneByEmail(email);
+		if (isNull(userDB) || !User.passwordEncoder().matches(password, userDB.getPassword())) {
+			return new ResponseEntity<String>("Email ou senha inválidos.", HttpStatus.UNAUTHORIZED);
+		}
+		return new ResponseEntity<AuthToken>(getAuthToken(userDB), HttpStatus.OK);
+	}
+
+	@Override
+	public ResponseEntity<?> refreshToken(String refreshToken) {
+		if (isNull(refreshToken)) {
+			return new ResponseEntity<String>("Token não pode ser nulo.", HttpStatus.BAD_REQUEST);
+		}
+		String email = tokenService.verifyRefreshToken(refreshToken);
+		User userDB = isNull(email) ? null : userRepository.findOneByEmail(email);
+		if (isNull(userDB) || !tokenService.hasStamp(refreshToken, userDB)) {
+			return new ResponseEntity<String>("Token inválido ou expirado.", HttpStatus.UNAUTHORIZED);
+		}
+		return new ResponseEntity<AuthToken>(getAuthToken(userDB), HttpStatus.OK);
+	}
+
+	private AuthToken getAuthToken(User user) {
+		return new AuthToken(tokenService.createAccessToken(user), tokenService.createRefreshToken(user),
+				tokenService.getAccessSeconds());
+	}
+}
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.greenshare.entity.address.City;
 import com.greenshare.entity.address.State;
@@ -13,6 +14,7 @@ import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.CityRepository;
 import com.greenshare.repository.CountryRepository;
 import com.greenshare.repository.StateRepository;
+import com.greenshare.service.offer.OfferSearchIndexService;
 
 /**
  * Implementation Service of {@link com.greenshare.service.city.CityService}
@@ -31,6 +33,9 @@ public class CityServiceImpl extends IsHelper implements CityService {
 	@Autowired
 	CountryRepository countryRepository;
 
+	@Autowired
+	OfferSearchIndexService offerSearchIndexService;
+
 	@Override
 	public ResponseEntity<?> save(City city) {
 		if (isNotNull(city)) {
@@ -40,7 +45,7 @@ public class CityServiceImpl extends IsHelper implements CityService {
 				if(isNotNull(state)) {
 					City cityDB = cityRepository.findOneByStateIdAndNameIgnoreCase(state.getId(), city.getName());
 					if(isNull(cityDB)) {
-						City newCity = new City(city.getName(), state);
+						City newCity = new City(city.getName(), state, city.getLatitude(), city.getLongitude());
 						return newCity.isValid() ? new ResponseEntity<City>(cityRepository.save(newCity), HttpStatus.OK)
 								: new ResponseEntity<List<String>>(newCity.getValidationErrors(), HttpStatus.BAD_REQUEST);
 					}
@@ -93,6 +98,7 @@ public class CityServiceImpl extends IsHelper implements CityService {
 	}
 
 	@Override
+	@Transactional
 	public ResponseEntity<?> update(City city) {
 		if(isNotNull(city)) {
 			City cityDB = cityRepository.findOne(city.getId());
@@ -100,6 +106,7 @@ public class CityServiceImpl extends IsHelper implements CityService {
 				cityDB.update(city);
 				if(cityDB.isValid()) {
 					cityDB = cityRepository.save(cityDB);
+					offerSearchIndexService.indexCity(cityDB);
 					return new ResponseEntity<City>(cityDB, HttpStatus.OK);
 				}
 				return new ResponseEntity<List<String>>(cityDB.getValidationErrors(), HttpStatus.BAD_REQUEST);
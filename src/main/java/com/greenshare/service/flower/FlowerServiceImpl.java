@@ -9,9 +9,11 @@ import org.springframework.stereotype.Service;
 
 import com.greenshare.entity.Month;
 import com.greenshare.entity.vegetable.Flower;
+import com.greenshare.enumeration.PhotoType;
 import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.FlowerRepository;
 import com.greenshare.repository.MonthRepository;
+import com.greenshare.service.image.ImageServiceImpl;
 
 /**
  * Service implementation of {@link com.greenshare.service.flower.FlowerService}
@@ -23,6 +25,9 @@ public class FlowerServiceImpl extends IsHelper implements FlowerService {
 
 	@Autowired
 	FlowerRepository flowerRepository;
+
+	@Autowired
+	ImageServiceImpl imageService;
 	
 	@Autowired
 	MonthRepository monthRepository;
@@ -44,6 +49,7 @@ public class FlowerServiceImpl extends IsHelper implements FlowerService {
 	public ResponseEntity<?> delete(Long id) {
 		if (isNotNull(id)) {
 			flowerRepository.delete(id);
+			imageService.deleteImage(PhotoType.FLOWER, id);
 			return new ResponseEntity<String>("Flor deletada.", HttpStatus.OK);
 		}
 		return new ResponseEntity<String>("ID não pode ser nulo.", HttpStatus.BAD_REQUEST);
@@ -9,9 +9,11 @@ import org.springframework.stereotype.Service;
 
 import com.greenshare.entity.Month;
 import com.greenshare.entity.vegetable.Fruit;
+import com.greenshare.enumeration.PhotoType;
 import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.FruitRepository;
 import com.greenshare.repository.MonthRepository;
+import com.greenshare.service.image.ImageServiceImpl;
 
 /**
  * Service implementation of {@link com.greenshare.service.fruit.FruitService}
@@ -23,6 +25,9 @@ public class FruitServiceImpl extends IsHelper implements FruitService {
 
 	@Autowired
 	FruitRepository fruitRepository;
+
+	@Autowired
+	ImageServiceImpl imageService;
 	
 	@Autowired
 	MonthRepository monthRepository;
@@ -43,6 +48,7 @@ public class FruitServiceImpl extends IsHelper implements FruitService {
 	public ResponseEntity<?> delete(Long id) {
 		if (isNotNull(id)) {
 			fruitRepository.delete(id);
+			imageService.deleteImage(PhotoType.FRUIT, id);
 			return new ResponseEntity<String>("Fruto deletado.", HttpStatus.OK);
 		}
 		return new ResponseEntity<String>("ID não pode ser nulo.", HttpStatus.BAD_REQUEST);
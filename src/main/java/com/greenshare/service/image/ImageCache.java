@@ -0,0 +1,149 @@
+package com.greenshare.service.image;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Service;
+
+import com.greenshare.enumeration.ImageSize;
+import com.greenshare.enumeration.PhotoType;
+import com.greenshare.helpers.IsHelper;
+
+/**
+ * Least recently used cache of encoded image bytes bounded by the total of
+ * bytes held, keyed by the PhotoType, id and ImageSize (null for the original).
+ * The bytes can be held out of the heap in direct buffers. Counters are
+ * exposed on the actuator metrics as image.cache.*
+ *
+ * @author joao.silva
+ */
+@Service
+public class ImageCache extends IsHelper implements PublicMetrics {
+
+	@Value("${greenshare.image.cache.max-bytes:33554432}")
+	private long maxBytes;
+
+	@Value("${greenshare.image.cache.max-entry-bytes:262144}")
+	private int maxEntryBytes;
+
+	@Value("${greenshare.image.cache.direct:false}")
+	private boolean direct;
+
+	private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<String, ByteBuffer>(256, 0.75f, true);
+
+	private long bytes;
+
+	/* Incremented on every invalidation so loads started before it are not cached */
+	private long generation;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @return a read-only view of the cached bytes or null on a miss
+	 */
+	public ByteBuffer get(PhotoType photoType, Long id, ImageSize imageSize) {
+		ByteBuffer buffer;
+		synchronized (this) {
+			buffer = this.entries.get(getKey(photoType, id, imageSize));
+		}
+		if (isNull(buffer)) {
+			this.misses.incrementAndGet();
+			return null;
+		}
+		this.hits.incrementAndGet();
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Must be read before loading the bytes that will be given to
+	 * {@link #put(PhotoType, Long, ImageSize, byte[], long)}
+	 */
+	public synchronized long getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * Caches the bytes unless they are too big or an invalidation happened since
+	 * the given generation
+	 */
+	public void put(PhotoType photoType, Long id, ImageSize imageSize, byte[] content, long generation) {
+		if (content.length > this.maxEntryBytes || content.length > this.maxBytes) {
+			return;
+		}
+		ByteBuffer buffer;
+		if (this.direct) {
+			buffer = ByteBuffer.allocateDirect(content.length);
+			buffer.put(content);
+			buffer.flip();
+		} else {
+			buffer = ByteBuffer.wrap(content);
+		}
+		synchronized (this) {
+			if (generation != this.generation) {
+				return;
+			}
+			ByteBuffer previous = this.entries.put(getKey(photoType, id, imageSize), buffer);
+			if (isNotNull(previous)) {
+				this.bytes -= previous.capacity();
+			}
+			this.bytes += buffer.capacity();
+			evict();
+		}
+	}
+
+	/**
+	 * Removes the original and every size of the entity image
+	 */
+	public synchronized void invalidate(PhotoType photoType, Long id) {
+		this.generation++;
+		remove(getKey(photoType, id, null));
+		for (ImageSize imageSize : photoType.getImageSizes()) {
+			remove(getKey(photoType, id, imageSize));
+		}
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		metrics.add(new Metric<Long>("image.cache.hits", this.hits.get()));
+		metrics.add(new Metric<Long>("image.cache.misses", this.misses.get()));
+		metrics.add(new Metric<Long>("image.cache.evictions", this.evictions.get()));
+		synchronized (this) {
+			metrics.add(new Metric<Long>("image.cache.bytes", this.bytes));
+			metrics.add(new Metric<Integer>("image.cache.entries", this.entries.size()));
+		}
+		return metrics;
+	}
+
+	private void remove(String key) {
+		ByteBuffer buffer = this.entries.remove(key);
+		if (isNotNull(buffer)) {
+			this.bytes -= buffer.capacity();
+		}
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, ByteBuffer>> iterator = this.entries.entrySet().iterator();
+		while (this.bytes > this.maxBytes && iterator.hasNext()) {
+			this.bytes -= iterator.next().getValue().capacity();
+			iterator.remove();
+			this.evictions.incrementAndGet();
+		}
+	}
+
+	private String getKey(PhotoType photoType, Long id, ImageSize imageSize) {
+		return photoType.getNumberType() + ":" + id + ":" + (isNull(imageSize) ? 0 : imageSize.getPixels());
+	}
+}
@@ -0,0 +1,186 @@
+package com.greenshare.service.image;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.greenshare.enumeration.ImageSize;
+import com.greenshare.enumeration.PhotoType;
+import com.greenshare.exception.DirectoryException;
+import com.greenshare.helpers.ImageHelper;
+import com.greenshare.helpers.ImageProbe;
+import com.greenshare.helpers.IsHelper;
+
+/**
+ * Generates the resized derivatives of the saved images on a bounded worker
+ * pool, outside of the request thread
+ *
+ * @author joao.silva
+ */
+@Service
+public class ImageDerivativeService extends IsHelper {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+	@Value("${greenshare.image.derivative.threads:2}")
+	private int threads;
+
+	@Value("${greenshare.image.derivative.queue-size:200}")
+	private int queueSize;
+
+	@Value("${greenshare.image.max-pixels:25000000}")
+	private long maxPixels;
+
+	@Autowired
+	ImageStore imageStore;
+
+	@Autowired
+	ImageCache imageCache;
+
+	private ThreadPoolExecutor executor;
+
+	/* Jobs waiting on the queue, a job leaves it when it starts to run */
+	private final Set<String> queuedJobs = ConcurrentHashMap.newKeySet();
+
+	@PostConstruct
+	public void start() {
+		this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(this.queueSize), new CustomizableThreadFactory("image-derivative-"));
+	}
+
+	@PreDestroy
+	public void stop() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Queues the generation of every size of the entity image. When the queue is
+	 * full the job is dropped, the original image is served and the generation is
+	 * requested again on the next read. Inside a transaction the job is only
+	 * queued once it commits, the worker would not see the saved image before.
+	 */
+	public void generate(PhotoType photoType, Long id) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			queue(photoType, id);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+			@Override
+			public void afterCommit() {
+				queue(photoType, id);
+			}
+		});
+	}
+
+	private void queue(PhotoType photoType, Long id) {
+		String job = photoType.getDirectoryName().concat("/").concat(id.toString());
+		if (this.queuedJobs.add(job)) {
+			try {
+				this.executor.execute(() -> {
+					this.queuedJobs.remove(job);
+					generateNow(photoType, id);
+				});
+			} catch (RejectedExecutionException e) {
+				this.queuedJobs.remove(job);
+			}
+		}
+	}
+
+	/**
+	 * Generates every size of the entity image on the calling thread, used by
+	 * jobs that already run on their own pool
+	 */
+	public void generateNow(PhotoType photoType, Long id) {
+		StoredImage original = imageStore.find(photoType, id, null);
+		if (isNull(original)) {
+			return;
+		}
+		String imageFormat = original.getFormat();
+		try {
+			/* Images saved before the upload validation may be decode bombs */
+			try (InputStream content = new FileInputStream(original.getFile())) {
+				if (ImageProbe.probe(content).getPixels() > this.maxPixels) {
+					LOGGER.warn("Imagem {}/{} excede o limite de pixels", photoType.getDirectoryName(), id);
+					return;
+				}
+			}
+			BufferedImage image = ImageIO.read(original.getFile());
+			if (isNull(image)) {
+				return;
+			}
+			ImageSize[] imageSizes = photoType.getImageSizes();
+			/* From the largest to the smallest, each one is resized from the previous */
+			for (int i = imageSizes.length - 1; i >= 0; i--) {
+				image = resize(image, imageSizes[i].getPixels(), imageFormat);
+				ByteArrayOutputStream derivative = new ByteArrayOutputStream();
+				ImageIO.write(image, imageFormat, derivative);
+				StoredImage current = imageStore.find(photoType, id, null);
+				if (isNull(current) || !current.getVersion().equals(original.getVersion())) {
+					/* A new image was saved meanwhile, its own job generates the derivatives */
+					return;
+				}
+				imageStore.save(photoType, id, imageSizes[i],
+						ImageHelper.getValidatingStream(new ByteArrayInputStream(derivative.toByteArray()),
+								this.maxPixels));
+			}
+			/* The original may be cached in place of a missing derivative */
+			imageCache.invalidate(photoType, id);
+		} catch (IOException | DirectoryException e) {
+			LOGGER.warn("Falha ao gerar as derivadas da imagem {}/{}", photoType.getDirectoryName(), id, e);
+		}
+	}
+
+	/**
+	 * Resizes the image to fit the given pixels on its longest side, halving it
+	 * step by step to keep the quality on big reductions. Images are never
+	 * enlarged.
+	 */
+	private BufferedImage resize(BufferedImage image, int pixels, String imageFormat) {
+		int longestSide = Math.max(image.getWidth(), image.getHeight());
+		double scale = Math.min(1d, (double) pixels / longestSide);
+		int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+		int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+		int imageType = imageFormat.equals("png") && image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB
+				: BufferedImage.TYPE_INT_RGB;
+		BufferedImage resized = image;
+		int width = image.getWidth();
+		int height = image.getHeight();
+		do {
+			width = Math.max(targetWidth, width / 2);
+			height = Math.max(targetHeight, height / 2);
+			BufferedImage step = new BufferedImage(width, height, imageType);
+			Graphics2D graphics = step.createGraphics();
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			graphics.drawImage(resized, 0, 0, width, height, null);
+			graphics.dispose();
+			resized = step;
+		} while (width != targetWidth || height != targetHeight);
+		return resized;
+	}
+}
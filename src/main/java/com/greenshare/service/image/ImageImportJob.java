@@ -0,0 +1,132 @@
+package com.greenshare.service.image;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.greenshare.enumeration.ImageImportStatus;
+
+/**
+ * Progress of a bulk image import, updated by the import workers and read by
+ * the progress route while the job runs
+ *
+ * @author joao.silva
+ */
+public class ImageImportJob {
+
+	/* Only the first errors are kept, the others are only counted */
+	private static final int MAX_ERRORS = 100;
+
+	private final String id;
+
+	private final Date startDate = new Date();
+
+	private volatile Date endDate;
+
+	private volatile ImageImportStatus status = ImageImportStatus.QUEUED;
+
+	private volatile int total;
+
+	private final AtomicInteger imported = new AtomicInteger();
+
+	private final AtomicInteger failed = new AtomicInteger();
+
+	private final AtomicInteger skipped = new AtomicInteger();
+
+	private final List<String> errors = new ArrayList<String>();
+
+	public ImageImportJob(String id) {
+		this.id = id;
+	}
+
+	public String getId() {
+		return this.id;
+	}
+
+	public Date getStartDate() {
+		return this.startDate;
+	}
+
+	public Date getEndDate() {
+		return this.endDate;
+	}
+
+	public ImageImportStatus getStatus() {
+		return this.status;
+	}
+
+	public int getTotal() {
+		return this.total;
+	}
+
+	public int getImported() {
+		return this.imported.get();
+	}
+
+	public int getFailed() {
+		return this.failed.get();
+	}
+
+	public int getSkipped() {
+		return this.skipped.get();
+	}
+
+	/**
+	 * @return the files imported, failed or skipped so far
+	 */
+	public int getProcessed() {
+		return getImported() + getFailed() + getSkipped();
+	}
+
+	public List<String> getErrors() {
+		synchronized (this.errors) {
+			return new ArrayList<String>(this.errors);
+		}
+	}
+
+	public boolean isFinished() {
+		return this.status == ImageImportStatus.DONE || this.status == ImageImportStatus.FAILED;
+	}
+
+	void start() {
+		this.status = ImageImportStatus.RUNNING;
+	}
+
+	void setTotal(int total) {
+		this.total = total;
+	}
+
+	void addImported() {
+		this.imported.incrementAndGet();
+	}
+
+	void addFailed(String name, String message) {
+		this.failed.incrementAndGet();
+		addError(name.concat(": ").concat(String.valueOf(message)));
+	}
+
+	void addSkipped(String name, String reason) {
+		this.skipped.incrementAndGet();
+		addError(name.concat(": ").concat(reason));
+	}
+
+	void finish() {
+		this.endDate = new Date();
+		this.status = ImageImportStatus.DONE;
+	}
+
+	void fail(String message) {
+		addError(message);
+		this.endDate = new Date();
+		this.status = ImageImportStatus.FAILED;
+	}
+
+	void addError(String error) {
+		synchronized (this.errors) {
+			if (this.errors.size() < MAX_ERRORS) {
+				this.errors.add(error);
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.greenshare.service.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import com.greenshare.exception.DirectoryException;
+
+/**
+ * Service interface for bulk import of the catalog images. The files are
+ * matched to the entities by name, as {@code Species_12.png} or
+ * {@code Species/12.png}, and only the types of the catalog are accepted.
+ *
+ * @author joao.silva
+ */
+public interface ImageImportService {
+
+	/**
+	 * @return if the current user is one of greenshare.image.import.admins,
+	 *         the imports replace the catalog images of every user
+	 */
+	boolean canImport();
+
+	/**
+	 * Queues the import of the images of a directory inside the import directory
+	 *
+	 * @throws DirectoryException
+	 *             if the path is not a directory inside the import directory
+	 */
+	ImageImportJob importDirectory(String path) throws DirectoryException;
+
+	/**
+	 * Queues the import of the images of a zip file, the entries are extracted by
+	 * the job one at a time
+	 *
+	 * @throws com.greenshare.exception.UploadTooLargeException
+	 *             if the zip is over greenshare.image.import.max-zip-bytes
+	 */
+	ImageImportJob importZip(InputStream input) throws IOException;
+
+	/**
+	 * @return the job or null if it is unknown or was already discarded
+	 */
+	ImageImportJob findJob(String jobId);
+
+	List<ImageImportJob> findJobs();
+
+}
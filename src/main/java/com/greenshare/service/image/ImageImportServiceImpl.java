@@ -0,0 +1,475 @@
+package com.greenshare.service.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StreamUtils;
+
+import com.greenshare.entity.user.User;
+import com.greenshare.enumeration.PhotoType;
+import com.greenshare.exception.DirectoryException;
+import com.greenshare.exception.UploadTooLargeException;
+import com.greenshare.helpers.ImageHelper;
+import com.greenshare.helpers.IsHelper;
+import com.greenshare.helpers.ValidatingImageInputStream;
+
+/**
+ * Implementation of {@link com.greenshare.service.image.ImageImportService}.
+ * The jobs run one at a time on a coordinator thread, which lists or extracts
+ * the files, checks the entities with one query per type and hands the images
+ * to a bounded worker pool. Each worker saves and resizes one image, and
+ * hasImage is set in batches.
+ *
+ * @author joao.silva
+ */
+@Service
+public class ImageImportServiceImpl extends IsHelper implements ImageImportService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ImageImportServiceImpl.class);
+
+	/* <Type>_<id>.<format> or <Type>/<id>.<format>, on any directory */
+	private static final Pattern FILE_NAME = Pattern.compile("(?:^|.*/)([A-Za-z]+)[/_](\\d{1,18})\\.(png|jpg|jpeg)$",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Set<PhotoType> IMPORT_TYPES = EnumSet.of(PhotoType.SPECIES, PhotoType.FLOWER,
+			PhotoType.FRUIT, PhotoType.ACHIEVEMENT);
+
+	private static final int MARK_BATCH_SIZE = 100;
+
+	private static final int QUERY_BATCH_SIZE = 1000;
+
+	private static final int MAX_JOBS = 50;
+
+	@Value("${greenshare.image.import.directory:images/import}")
+	private String importDirectory;
+
+	@Value("${greenshare.image.import.threads:4}")
+	private int threads;
+
+	@Value("${greenshare.image.import.queue-size:10}")
+	private int queueSize;
+
+	@Value("${greenshare.image.import.max-files:20000}")
+	private int maxFiles;
+
+	@Value("${greenshare.image.max-pixels:25000000}")
+	private long maxPixels;
+
+	/* The zip is streamed by the controller, outside of the multipart limits */
+	@Value("${greenshare.image.import.max-zip-bytes:536870912}")
+	private long maxZipBytes;
+
+	/* Emails of the users allowed to import, none by default */
+	@Value("${greenshare.image.import.admins:}")
+	private String[] admins;
+
+	private final Set<String> adminEmails = new HashSet<String>();
+
+	@Autowired
+	ImageStore imageStore;
+
+	@Autowired
+	ImageCache imageCache;
+
+	@Autowired
+	ImageServiceImpl imageService;
+
+	@Autowired
+	ImageDerivativeService imageDerivativeService;
+
+	@Autowired
+	PhotogenicRepositoryRegistry photogenicRepositoryRegistry;
+
+	private ThreadPoolExecutor coordinator;
+
+	private ThreadPoolExecutor workers;
+
+	/* Latest jobs, the oldest finished ones are discarded */
+	private final Map<String, ImageImportJob> jobs = new LinkedHashMap<String, ImageImportJob>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ImageImportJob> eldest) {
+			return size() > MAX_JOBS && eldest.getValue().isFinished();
+		}
+	};
+
+	@PostConstruct
+	public void start() {
+		for (String admin : this.admins) {
+			if (!admin.trim().isEmpty()) {
+				this.adminEmails.add(admin.trim().toLowerCase(Locale.ROOT));
+			}
+		}
+		this.coordinator = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(this.queueSize), new CustomizableThreadFactory("image-import-"));
+		/* A full queue makes the coordinator save the image itself, holding the listing */
+		this.workers = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(this.threads * 2),
+				new CustomizableThreadFactory("image-import-worker-"), new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	@PreDestroy
+	public void stop() {
+		this.coordinator.shutdownNow();
+		this.workers.shutdown();
+	}
+
+	@Override
+	public ImageImportJob importDirectory(String path) throws DirectoryException {
+		Path directory = resolveImportPath(isNull(path) ? "" : path);
+		ImageImportJob job = newJob();
+		submit(job, () -> importFiles(job, listFiles(job, directory), false));
+		return job;
+	}
+
+	@Override
+	public boolean canImport() {
+		User user = getCurrentUser();
+		return isNotNull(user) && isNotNull(user.getEmail())
+				&& this.adminEmails.contains(user.getEmail().toLowerCase(Locale.ROOT));
+	}
+
+	@Override
+	public ImageImportJob importZip(InputStream input) throws IOException {
+		/* The request ends before the job runs, so the zip is copied first */
+		Path temporaryDirectory = Files.createTempDirectory("image-import");
+		File zipFile = temporaryDirectory.resolve("import.zip").toFile();
+		try {
+			copyZip(input, zipFile.toPath());
+			ImageImportJob job = newJob();
+			submit(job, () -> {
+				try {
+					importFiles(job, extractFiles(job, zipFile, temporaryDirectory), true);
+				} finally {
+					FileSystemUtils.deleteRecursively(temporaryDirectory.toFile());
+				}
+			});
+			return job;
+		} catch (IOException | RuntimeException e) {
+			FileSystemUtils.deleteRecursively(temporaryDirectory.toFile());
+			throw e;
+		}
+	}
+
+	@Override
+	public ImageImportJob findJob(String jobId) {
+		synchronized (this.jobs) {
+			return this.jobs.get(jobId);
+		}
+	}
+
+	@Override
+	public List<ImageImportJob> findJobs() {
+		synchronized (this.jobs) {
+			return new ArrayList<ImageImportJob>(this.jobs.values());
+		}
+	}
+
+	private void copyZip(InputStream input, Path zipFile) throws IOException {
+		byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+		long total = 0;
+		try (OutputStream output = Files.newOutputStream(zipFile)) {
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				total += read;
+				if (total > this.maxZipBytes) {
+					throw new UploadTooLargeException(
+							"Arquivo zip maior que " + this.maxZipBytes / (1024 * 1024) + "MB.");
+				}
+				output.write(buffer, 0, read);
+			}
+		}
+	}
+
+	private ImageImportJob newJob() {
+		ImageImportJob job = new ImageImportJob(UUID.randomUUID().toString());
+		synchronized (this.jobs) {
+			this.jobs.put(job.getId(), job);
+		}
+		return job;
+	}
+
+	/**
+	 * @throws java.util.concurrent.RejectedExecutionException
+	 *             if the job queue is full, the job is discarded
+	 */
+	private void submit(ImageImportJob job, Runnable task) {
+		try {
+			this.coordinator.execute(() -> {
+				job.start();
+				try {
+					task.run();
+					job.finish();
+				} catch (RuntimeException e) {
+					LOGGER.error("Image import " + job.getId() + " failed", e);
+					job.fail("Erro ao importar imagens.");
+				}
+			});
+		} catch (RuntimeException e) {
+			synchronized (this.jobs) {
+				this.jobs.remove(job.getId());
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Resolves the path against the import directory, following links, so no
+	 * path can leave it
+	 */
+	private Path resolveImportPath(String path) throws DirectoryException {
+		try {
+			Path root = Paths.get(this.importDirectory).toRealPath();
+			Path directory = root.resolve(path).normalize();
+			if (directory.startsWith(root) && Files.isDirectory(directory)) {
+				directory = directory.toRealPath();
+				if (directory.startsWith(root)) {
+					return directory;
+				}
+			}
+		} catch (IOException e) {
+			throw new DirectoryException("Falha ao encontrar diretório de importação.");
+		}
+		throw new DirectoryException("Diretório inválido para importação.");
+	}
+
+	private List<ImportFile> listFiles(ImageImportJob job, Path directory) {
+		List<ImportFile> importFiles = new ArrayList<ImportFile>();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.filter(p -> Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS)).forEach(p -> {
+				String name = directory.relativize(p).toString().replace(File.separatorChar, '/');
+				if (importFiles.size() >= this.maxFiles) {
+					job.addSkipped(name, "limite de arquivos atingido.");
+					return;
+				}
+				ImportFile importFile = toImportFile(name, p.toFile());
+				if (isNull(importFile)) {
+					job.addSkipped(name, "nome de arquivo inválido.");
+				} else {
+					importFiles.add(importFile);
+				}
+			});
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return importFiles;
+	}
+
+	/**
+	 * Extracts the images of the zip to the temporary directory one entry at a
+	 * time, each entry is validated while it is written
+	 */
+	private List<ImportFile> extractFiles(ImageImportJob job, File zipFile, Path temporaryDirectory) {
+		List<ImportFile> importFiles = new ArrayList<ImportFile>();
+		try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(zipFile.toPath()))) {
+			ZipEntry entry;
+			while (isNotNull(entry = zip.getNextEntry())) {
+				if (entry.isDirectory()) {
+					continue;
+				}
+				String name = entry.getName();
+				if (importFiles.size() >= this.maxFiles) {
+					job.addSkipped(name, "limite de arquivos atingido.");
+					continue;
+				}
+				File file = temporaryDirectory.resolve(importFiles.size() + ".img").toFile();
+				ImportFile importFile = toImportFile(name, file);
+				if (isNull(importFile)) {
+					job.addSkipped(name, "nome de arquivo inválido.");
+					continue;
+				}
+				try (InputStream content = ImageHelper.getValidatingStream(StreamUtils.nonClosing(zip),
+						this.maxPixels)) {
+					Files.copy(content, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					importFiles.add(importFile);
+				} catch (IOException e) {
+					Files.deleteIfExists(file.toPath());
+					job.addFailed(name, e.getMessage());
+				}
+			}
+		} catch (IOException e) {
+			job.addError("Arquivo zip inválido.");
+		}
+		return importFiles;
+	}
+
+	private ImportFile toImportFile(String name, File file) {
+		Matcher matcher = FILE_NAME.matcher(name);
+		if (!matcher.matches()) {
+			return null;
+		}
+		PhotoType photoType = PhotoType.fromDirectoryName(matcher.group(1));
+		if (isNull(photoType) || !IMPORT_TYPES.contains(photoType)) {
+			return null;
+		}
+		return new ImportFile(name, file, photoType, Long.valueOf(matcher.group(2)));
+	}
+
+	private void importFiles(ImageImportJob job, List<ImportFile> files, boolean temporary) {
+		List<ImportFile> importFiles = filterImportFiles(job, files);
+		job.setTotal(job.getProcessed() + importFiles.size());
+		Map<PhotoType, List<Long>> pending = new EnumMap<PhotoType, List<Long>>(PhotoType.class);
+		List<Future<?>> futures = new ArrayList<Future<?>>(importFiles.size());
+		for (ImportFile importFile : importFiles) {
+			futures.add(this.workers.submit(() -> importFile(job, importFile, pending, temporary)));
+		}
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				LOGGER.error("Image import " + job.getId() + " worker failed", e.getCause());
+			}
+		}
+		for (Map.Entry<PhotoType, List<Long>> entry : pending.entrySet()) {
+			markWithImage(job, entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Skips the duplicated files, keeping the last one of each entity, and the
+	 * files of entities that don't exist, checked with one query per type
+	 */
+	private List<ImportFile> filterImportFiles(ImageImportJob job, List<ImportFile> files) {
+		Map<String, ImportFile> filesByEntity = new LinkedHashMap<String, ImportFile>();
+		for (ImportFile importFile : files) {
+			ImportFile duplicated = filesByEntity.put(importFile.getKey(), importFile);
+			if (isNotNull(duplicated)) {
+				job.addSkipped(duplicated.name, "imagem duplicada.");
+			}
+		}
+		Map<PhotoType, List<Long>> idsByType = new EnumMap<PhotoType, List<Long>>(PhotoType.class);
+		for (ImportFile importFile : filesByEntity.values()) {
+			idsByType.computeIfAbsent(importFile.photoType, t -> new ArrayList<Long>()).add(importFile.id);
+		}
+		Map<PhotoType, Set<Long>> existingIds = new EnumMap<PhotoType, Set<Long>>(PhotoType.class);
+		for (Map.Entry<PhotoType, List<Long>> entry : idsByType.entrySet()) {
+			Set<Long> ids = new HashSet<Long>();
+			List<Long> typeIds = entry.getValue();
+			for (int i = 0; i < typeIds.size(); i += QUERY_BATCH_SIZE) {
+				List<Long> batch = typeIds.subList(i, Math.min(i + QUERY_BATCH_SIZE, typeIds.size()));
+				ids.addAll(photogenicRepositoryRegistry.get(entry.getKey()).findExistingIds(batch));
+			}
+			existingIds.put(entry.getKey(), ids);
+		}
+		List<ImportFile> importFiles = new ArrayList<ImportFile>(filesByEntity.size());
+		for (ImportFile importFile : filesByEntity.values()) {
+			if (existingIds.get(importFile.photoType).contains(importFile.id)) {
+				importFiles.add(importFile);
+			} else {
+				job.addSkipped(importFile.name, "entidade não encontrada.");
+			}
+		}
+		return importFiles;
+	}
+
+	private void importFile(ImageImportJob job, ImportFile importFile, Map<PhotoType, List<Long>> pending,
+			boolean temporary) {
+		try {
+			try (ValidatingImageInputStream content = ImageHelper
+					.getValidatingStream(Files.newInputStream(importFile.file.toPath()), this.maxPixels)) {
+				imageStore.save(importFile.photoType, importFile.id, null, content);
+			}
+			imageCache.invalidate(importFile.photoType, importFile.id);
+			imageDerivativeService.generateNow(importFile.photoType, importFile.id);
+			job.addImported();
+		} catch (IOException | DirectoryException e) {
+			job.addFailed(importFile.name, e.getMessage());
+			return;
+		} catch (RuntimeException e) {
+			LOGGER.error("Image import " + job.getId() + " failed on " + importFile.name, e);
+			job.addFailed(importFile.name, "Erro ao salvar imagem.");
+			return;
+		} finally {
+			if (temporary) {
+				importFile.file.delete();
+			}
+		}
+		List<Long> batch = null;
+		synchronized (pending) {
+			List<Long> ids = pending.computeIfAbsent(importFile.photoType, t -> new ArrayList<Long>());
+			ids.add(importFile.id);
+			if (ids.size() >= MARK_BATCH_SIZE) {
+				batch = pending.remove(importFile.photoType);
+			}
+		}
+		if (isNotNull(batch)) {
+			markWithImage(job, importFile.photoType, batch);
+		}
+	}
+
+	private void markWithImage(ImageImportJob job, PhotoType photoType, List<Long> ids) {
+		try {
+			imageService.markWithImage(photoType, Collections.unmodifiableList(ids));
+		} catch (RuntimeException e) {
+			LOGGER.error("Image import " + job.getId() + " failed to set hasImage", e);
+			job.addError("Erro ao salvar dados no banco.");
+		}
+	}
+
+	/**
+	 * File of the import matched to its entity
+	 */
+	private static class ImportFile {
+
+		private final String name;
+
+		private final File file;
+
+		private final PhotoType photoType;
+
+		private final Long id;
+
+		ImportFile(String name, File file, PhotoType photoType, Long id) {
+			this.name = name;
+			this.file = file;
+			this.photoType = photoType;
+			this.id = id;
+		}
+
+		String getKey() {
+			return this.photoType.getDirectoryName().concat("/").concat(this.id.toString());
+		}
+	}
+}
@@ -1,6 +1,18 @@
 package com.greenshare.service.image;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import com.greenshare.entity.image.ImageMetadata;
+import com.greenshare.entity.image.ImageReference;
 import com.greenshare.entity.interfaces.PhotogenicEntity;
+import com.greenshare.enumeration.ImageSize;
+import com.greenshare.enumeration.PhotoType;
+import com.greenshare.exception.DirectoryException;
+import com.greenshare.exception.SaveOnDatabaseException;
 
 /**
  * Service interface for save images on system
@@ -9,6 +21,40 @@ import com.greenshare.entity.interfaces.PhotogenicEntity;
  */
 public interface ImageService {
 	
-	PhotogenicEntity save(PhotogenicEntity photogenicEntity);
+	/**
+	 * Sets hasImage of the entities of the type with one bulk update, without
+	 * loading them
+	 * 
+	 * @return the number of entities updated
+	 */
+	int markWithImage(PhotoType photoType, Collection<Long> ids);
+
+	/**
+	 * Saves the image file, marks the entity as having an image and queues the
+	 * generation of its derivatives
+	 * 
+	 * @return false if the image is invalid
+	 */
+	Boolean saveImage(PhotogenicEntity photogenicEntity, MultipartFile multipartFile)
+			throws DirectoryException, IOException, SaveOnDatabaseException;
+
+	/**
+	 * @return the original image when imageSize is null or the derivative, null
+	 *         if it was not saved
+	 */
+	StoredImage findImage(PhotoType photoType, Long id, ImageSize imageSize);
+
+	/**
+	 * Releases the stored images of a deleted entity
+	 */
+	void deleteImage(PhotoType photoType, Long id);
+
+	/**
+	 * Reads the image data of many entities without reading any file, using one
+	 * query per PhotoType. References of unknown types are ignored.
+	 */
+	List<ImageMetadata> findMetadata(List<ImageReference> imageReferences);
+
+	String getThumbnail(PhotogenicEntity photogenicEntity);
 	
 }
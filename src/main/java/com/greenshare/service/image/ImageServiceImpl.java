@@ -1,27 +1,39 @@
 package com.greenshare.service.image;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
-import com.greenshare.entity.FlowerShop;
-import com.greenshare.entity.achievement.Achievement;
+import com.greenshare.entity.image.ImageBlob;
+import com.greenshare.entity.image.ImageLink;
+import com.greenshare.entity.image.ImageMetadata;
+import com.greenshare.entity.image.ImageReference;
 import com.greenshare.entity.interfaces.PhotogenicEntity;
-import com.greenshare.entity.offer.Offer;
-import com.greenshare.entity.post.Post;
-import com.greenshare.entity.user.User;
-import com.greenshare.entity.vegetable.Flower;
-import com.greenshare.entity.vegetable.Fruit;
-import com.greenshare.entity.vegetable.Species;
+import com.greenshare.enumeration.ImageSize;
 import com.greenshare.enumeration.PhotoType;
+import com.greenshare.exception.DirectoryException;
+import com.greenshare.exception.SaveOnDatabaseException;
+import com.greenshare.helpers.ImageHelper;
 import com.greenshare.helpers.IsHelper;
-import com.greenshare.repository.AchievementRepository;
-import com.greenshare.repository.FlowerRepository;
-import com.greenshare.repository.FlowerShopRepository;
-import com.greenshare.repository.FruitRepository;
-import com.greenshare.repository.OfferRepository;
-import com.greenshare.repository.PostRepository;
-import com.greenshare.repository.SpeciesRepository;
-import com.greenshare.repository.UserRepository;
+import com.greenshare.helpers.ValidatingImageInputStream;
+import com.greenshare.repository.ImageLinkRepository;
+import com.greenshare.service.species.SpeciesAutocomplete;
 
 /**
  * Implementation of {@link com.greenshare.service.image.ImageService}
@@ -30,84 +42,136 @@ import com.greenshare.repository.UserRepository;
  */
 @Service
 public class ImageServiceImpl extends IsHelper implements ImageService {
-	/* JPA can't map interfaces :( */
-
-	@Autowired
-	UserRepository userRepository;
+	@Value("${greenshare.image.max-pixels:25000000}")
+	private long maxPixels;
 
 	@Autowired
-	FlowerShopRepository flowerShopRepository;
+	ImageLinkRepository imageLinkRepository;
 
 	@Autowired
-	PostRepository postRepository;
+	PhotogenicRepositoryRegistry photogenicRepositoryRegistry;
 
 	@Autowired
-	SpeciesRepository speciesRepository;
+	ImageStore imageStore;
 
 	@Autowired
-	FlowerRepository flowerRepository;
+	ImageCache imageCache;
 
 	@Autowired
-	AchievementRepository achievementRepository;
+	ImageDerivativeService imageDerivativeService;
 
 	@Autowired
-	FruitRepository fruitRepository;
+	SpeciesAutocomplete speciesAutocomplete;
 
-	@Autowired
-	OfferRepository offerRepository;
+	@Override
+	public int markWithImage(PhotoType photoType, Collection<Long> ids) {
+		if (isNull(photoType) || isNull(ids) || ids.isEmpty()) {
+			return 0;
+		}
+		int marked = photogenicRepositoryRegistry.get(photoType).markWithImage(ids);
+		if (photoType == PhotoType.SPECIES) {
+			speciesAutocomplete.markWithImage(ids);
+		}
+		return marked;
+	}
 
 	@Override
-	public PhotogenicEntity save(PhotogenicEntity photogenicEntity) {
-		if(isNotNull(photogenicEntity) && isNotNull(photogenicEntity.getId()) && isNotNull(photogenicEntity.getPhotoType())) {
-			Long id = photogenicEntity.getId();
+	public Boolean saveImage(PhotogenicEntity photogenicEntity, MultipartFile multipartFile)
+			throws DirectoryException, IOException, SaveOnDatabaseException {
+		if (ImageHelper.isValidImage(multipartFile)) {
 			PhotoType photoType = photogenicEntity.getPhotoType();
-			if (photoType == PhotoType.USER) {
-				User user = userRepository.findOne(id);
-				if(isNotNull(user)) {
-					user.setHasImage(true);
-					return userRepository.save(user);
-				}
-			} else if (photoType == PhotoType.FLOWER_SHOP) {
-				FlowerShop flowerShop = flowerShopRepository.findOne(id);
-				if(isNotNull(flowerShop)) {
-					flowerShop.setHasImage(true);
-					return flowerShopRepository.save(flowerShop);
-				}
-			} else if (photoType == PhotoType.POST) {
-				Post post = postRepository.findOne(id);
-				if(isNotNull(post)) {
-					post.setHasImage(true);
-					return postRepository.save(post);
-				}
-			} else if (photoType == PhotoType.SPECIES) {
-				Species species = speciesRepository.findOne(id);
-				if(isNotNull(species)) {
-					species.setHasImage(true);
-					return speciesRepository.save(species);
-				}
-			} else if (photoType == PhotoType.ACHIEVEMENT) {
-				Achievement achievement = achievementRepository.findOne(id);
-				if(isNotNull(achievement)) {
-					achievement.setHasImage(true);
-					return achievementRepository.save(achievement);
-				}
-			} else if (photoType == PhotoType.FLOWER) {
-				Flower flower = flowerRepository.findOne(id);
-				if(isNotNull(flower)) {
-					flower.setHasImage(true);
-					return flowerRepository.save(flower);
+			try (ValidatingImageInputStream content = ImageHelper.getValidatingStream(multipartFile.getInputStream(),
+					this.maxPixels)) {
+				imageStore.save(photoType, photogenicEntity.getId(), null, content);
+			}
+			imageCache.invalidate(photoType, photogenicEntity.getId());
+			if (!photogenicEntity.getHasImage()) {
+				if (markWithImage(photoType, Collections.singleton(photogenicEntity.getId())) == 0) {
+					throw new SaveOnDatabaseException("Erro ao salvar dados no banco.");
 				}
-			} else if (photoType == PhotoType.FRUIT) {
-				Fruit fruit = fruitRepository.findOne(id);
-				if(isNotNull(fruit)) {
-					fruit.setHasImage(true);
-					return fruitRepository.save(fruit);
+				photogenicEntity.setHasImage(true);
+			}
+			imageDerivativeService.generate(photoType, photogenicEntity.getId());
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public StoredImage findImage(PhotoType photoType, Long id, ImageSize imageSize) {
+		return imageStore.find(photoType, id, imageSize);
+	}
+
+	@Override
+	public void deleteImage(PhotoType photoType, Long id) {
+		imageStore.delete(photoType, id);
+		imageCache.invalidate(photoType, id);
+	}
+
+	@Override
+	public List<ImageMetadata> findMetadata(List<ImageReference> imageReferences) {
+		Map<PhotoType, Set<Long>> idsByType = new EnumMap<PhotoType, Set<Long>>(PhotoType.class);
+		for (ImageReference imageReference : imageReferences) {
+			PhotoType photoType = PhotoType.fromDirectoryName(imageReference.type);
+			if (isNotNull(photoType) && isNotNull(imageReference.id)) {
+				idsByType.computeIfAbsent(photoType, type -> new HashSet<Long>()).add(imageReference.id);
+			}
+		}
+		/* One query per type for hasImage and one for the stored blobs */
+		Map<PhotoType, Set<Long>> idsWithImageByType = new EnumMap<PhotoType, Set<Long>>(PhotoType.class);
+		Map<PhotoType, Map<Long, ImageBlob>> blobsByType = new EnumMap<PhotoType, Map<Long, ImageBlob>>(PhotoType.class);
+		for (Map.Entry<PhotoType, Set<Long>> entry : idsByType.entrySet()) {
+			PhotoType photoType = entry.getKey();
+			Set<Long> idsWithImage = new HashSet<Long>(
+					photogenicRepositoryRegistry.get(photoType).findIdsWithImage(entry.getValue()));
+			Map<Long, ImageBlob> blobs = new HashMap<Long, ImageBlob>();
+			if (!idsWithImage.isEmpty()) {
+				for (ImageLink imageLink : imageLinkRepository.findAllWithBlob(photoType.getNumberType(), idsWithImage,
+						ImageLink.ORIGINAL)) {
+					blobs.put(imageLink.getEntityId(), imageLink.getImageBlob());
 				}
-			} else if (photoType == PhotoType.OFFER) {
-				Offer offer = offerRepository.findOne(id);
-				if(isNotNull(offer)) {
-					offer.setHasImage(true);
-					return offerRepository.save(offer);
+			}
+			idsWithImageByType.put(photoType, idsWithImage);
+			blobsByType.put(photoType, blobs);
+		}
+		List<ImageMetadata> imagesMetadata = new ArrayList<ImageMetadata>();
+		for (ImageReference imageReference : imageReferences) {
+			PhotoType photoType = PhotoType.fromDirectoryName(imageReference.type);
+			if (isNull(photoType) || isNull(imageReference.id)) {
+				continue;
+			}
+			Long id = imageReference.id;
+			if (idsWithImageByType.get(photoType).contains(id)) {
+				imagesMetadata.add(new ImageMetadata(photoType.getDirectoryName(), id, true,
+						ImageHelper.getImageUrl(photoType, id), blobsByType.get(photoType).get(id)));
+			} else {
+				imagesMetadata.add(new ImageMetadata(photoType.getDirectoryName(), id, false, null, null));
+			}
+		}
+		return imagesMetadata;
+	}
+
+	@Override
+	public String getThumbnail(PhotogenicEntity photogenicEntity) {
+		if (isNotNull(photogenicEntity) && isNotNull(photogenicEntity.getId()) && photogenicEntity.getHasImage()) {
+			PhotoType photoType = photogenicEntity.getPhotoType();
+			Long id = photogenicEntity.getId();
+			ByteBuffer cached = imageCache.get(photoType, id, ImageSize.THUMBNAIL);
+			if (isNotNull(cached)) {
+				return new String(Base64.getEncoder().encode(cached).array(), StandardCharsets.ISO_8859_1);
+			}
+			long generation = imageCache.getGeneration();
+			StoredImage image = imageStore.find(photoType, id, ImageSize.THUMBNAIL);
+			if (isNull(image)) {
+				image = imageStore.find(photoType, id, null);
+			}
+			if (isNotNull(image) && ImageHelper.isThumbnailLength(image.getLength())) {
+				try {
+					byte[] content = Files.readAllBytes(image.getFile().toPath());
+					imageCache.put(photoType, id, ImageSize.THUMBNAIL, content, generation);
+					return Base64.getEncoder().encodeToString(content);
+				} catch (IOException e) {
+					return null;
 				}
 			}
 		}
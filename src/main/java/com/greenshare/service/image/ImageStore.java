@@ -0,0 +1,40 @@
+package com.greenshare.service.image;
+
+import java.io.IOException;
+
+import com.greenshare.enumeration.ImageSize;
+import com.greenshare.enumeration.PhotoType;
+import com.greenshare.exception.DirectoryException;
+import com.greenshare.exception.InvalidImageException;
+import com.greenshare.helpers.ValidatingImageInputStream;
+
+/**
+ * Storage of the images of the photogenic entities. A null ImageSize refers to
+ * the original image.
+ *
+ * @author joao.silva
+ */
+public interface ImageStore {
+
+	/**
+	 * Saves the content as the image of the entity replacing the previous one,
+	 * saving a new original also releases the derivatives of the old one. The
+	 * format is the one read from the content.
+	 * 
+	 * @throws InvalidImageException
+	 *             if the content fails the validation, nothing is saved
+	 */
+	StoredImage save(PhotoType photoType, Long id, ImageSize imageSize, ValidatingImageInputStream content)
+			throws DirectoryException, IOException;
+
+	/**
+	 * @return the image or null if it was not saved
+	 */
+	StoredImage find(PhotoType photoType, Long id, ImageSize imageSize);
+
+	/**
+	 * Releases the original image of the entity and all its derivatives
+	 */
+	void delete(PhotoType photoType, Long id);
+
+}
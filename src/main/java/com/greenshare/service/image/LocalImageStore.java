@@ -0,0 +1,305 @@
+package com.greenshare.service.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.greenshare.entity.image.ImageBlob;
+import com.greenshare.entity.image.ImageLink;
+import com.greenshare.enumeration.ImageSize;
+import com.greenshare.enumeration.PhotoType;
+import com.greenshare.exception.DirectoryException;
+import com.greenshare.helpers.ImageHelper;
+import com.greenshare.helpers.IsHelper;
+import com.greenshare.helpers.ValidatingImageInputStream;
+import com.greenshare.repository.ImageBlobRepository;
+import com.greenshare.repository.ImageLinkRepository;
+
+/**
+ * Content-addressed implementation of {@link ImageStore} on the local file
+ * system. Each distinct content is stored once as
+ * {@code <directory>/ab/cd/<sha-256>.<format>} and the entities point to it by
+ * refcounted {@link ImageLink}s, so reads never list a directory. Images saved
+ * before the store are still read from the legacy tree of
+ * {@link ImageHelper}.
+ *
+ * The reference counts are only changed by single statements in the
+ * database, never read and written back, so concurrent uploads of the same
+ * content don't lose references. The file of a hash is only written or
+ * deleted holding the lock of the hash, kept until the transaction ends.
+ *
+ * @author joao.silva
+ */
+@Service
+public class LocalImageStore extends IsHelper implements ImageStore {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/* Inserts the blob with one reference, or adds one if the hash exists */
+	private static final String REFERENCE_BLOB = "insert into image_blob (image_blob_id, hash, format, length, width,"
+			+ " height, reference_count, insertion_date) values (nextval('image_blob_seq'), ?, ?, ?, ?, ?, 1, now())"
+			+ " on conflict (hash) do update set reference_count = image_blob.reference_count + 1"
+			+ " returning image_blob_id";
+
+	private final Lock[] fileLocks = new Lock[64];
+
+	@Value("${greenshare.image.store.directory:images/store}")
+	private String directory;
+
+	@Autowired
+	ImageBlobRepository imageBlobRepository;
+
+	@Autowired
+	ImageLinkRepository imageLinkRepository;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	public LocalImageStore() {
+		for (int i = 0; i < this.fileLocks.length; i++) {
+			this.fileLocks[i] = new ReentrantLock();
+		}
+	}
+
+	@Override
+	@Transactional
+	public StoredImage save(PhotoType photoType, Long id, ImageSize imageSize, ValidatingImageInputStream content)
+			throws DirectoryException, IOException {
+		File temporary = createTemporaryFile();
+		try {
+			String hash = write(content, temporary);
+			ImageLink imageLink = imageLinkRepository.findOneByPhotoTypeAndEntityIdAndImageSize(
+					photoType.getNumberType(), id, ImageLink.toImageSize(imageSize));
+			if (isNull(imageLink) || !imageLink.getImageBlob().getHash().equals(hash)) {
+				lockFile(hash);
+				ImageBlob imageBlob = imageBlobRepository.findOne(addReference(hash, temporary, content));
+				File blobFile = getBlobFile(hash, imageBlob.getFormat());
+				if (!blobFile.isFile()) {
+					createDirectory(blobFile.getParentFile());
+					Files.move(temporary.toPath(), blobFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+				}
+				if (isNull(imageLink)) {
+					imageLink = new ImageLink(photoType, id, imageSize, imageBlob);
+				} else {
+					ImageBlob previous = imageLink.getImageBlob();
+					imageLink.setImageBlob(imageBlob);
+					imageLinkRepository.save(imageLink);
+					entityManager.flush();
+					release(previous);
+				}
+			}
+			imageLink = imageLinkRepository.save(imageLink);
+			if (isNull(imageSize)) {
+				deleteDerivatives(photoType, id);
+			}
+			return toStoredImage(imageLink);
+		} finally {
+			Files.deleteIfExists(temporary.toPath());
+		}
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public StoredImage find(PhotoType photoType, Long id, ImageSize imageSize) {
+		ImageLink imageLink = imageLinkRepository.findOneByPhotoTypeAndEntityIdAndImageSize(photoType.getNumberType(),
+				id, ImageLink.toImageSize(imageSize));
+		if (isNotNull(imageLink)) {
+			return toStoredImage(imageLink);
+		}
+		return findLegacy(photoType, id, imageSize);
+	}
+
+	@Override
+	@Transactional
+	public void delete(PhotoType photoType, Long id) {
+		for (ImageLink imageLink : imageLinkRepository.findAllByPhotoTypeAndEntityId(photoType.getNumberType(), id)) {
+			unlink(imageLink);
+		}
+	}
+
+	private void deleteDerivatives(PhotoType photoType, Long id) {
+		List<ImageLink> imageLinks = imageLinkRepository.findAllByPhotoTypeAndEntityId(photoType.getNumberType(), id);
+		for (ImageLink imageLink : imageLinks) {
+			if (!imageLink.isOriginal()) {
+				unlink(imageLink);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the link before releasing its blob, image_link.image_blob_id
+	 * would be left pointing to a deleted blob otherwise
+	 */
+	private void unlink(ImageLink imageLink) {
+		imageLinkRepository.delete(imageLink);
+		entityManager.flush();
+		release(imageLink.getImageBlob());
+	}
+
+	/**
+	 * Adds a reference to the blob of the hash, inserting it if needed. Two
+	 * uploads of the same content at once both end on the same row.
+	 *
+	 * @return the id of the blob
+	 */
+	private Long addReference(String hash, File file, ValidatingImageInputStream content) {
+		return jdbcTemplate.queryForObject(REFERENCE_BLOB, Long.class, hash, content.getFormat(), file.length(),
+				new SqlParameterValue(Types.INTEGER, content.getWidth()),
+				new SqlParameterValue(Types.INTEGER, content.getHeight()));
+	}
+
+	/**
+	 * Removes a reference to the blob, the last one deletes it and its file after
+	 * the commit
+	 */
+	private void release(ImageBlob imageBlob) {
+		imageBlobRepository.removeReference(imageBlob.getId());
+		if (imageBlobRepository.deleteIfUnreferenced(imageBlob.getId()) == 0) {
+			return;
+		}
+		String hash = imageBlob.getHash();
+		File blobFile = getBlobFile(hash, imageBlob.getFormat());
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			deleteFile(hash, blobFile);
+			return;
+		}
+		/* After the unlocks of lockFile, registered before, so at most one lock is held at a time */
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status == TransactionSynchronization.STATUS_COMMITTED) {
+					deleteFile(hash, blobFile);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Deletes the file unless an upload referenced its hash again meanwhile
+	 */
+	private void deleteFile(String hash, File blobFile) {
+		Lock lock = getFileLock(hash);
+		lock.lock();
+		try {
+			TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+			transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+			transaction.setReadOnly(true);
+			if (isNull(transaction.execute(status -> imageBlobRepository.findOneByHash(hash)))) {
+				blobFile.delete();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Holds the lock of the file of the hash until the transaction ends
+	 */
+	private void lockFile(String hash) {
+		Lock lock = getFileLock(hash);
+		lock.lock();
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				lock.unlock();
+			}
+		});
+	}
+
+	private Lock getFileLock(String hash) {
+		return this.fileLocks[Integer.parseInt(hash.substring(0, 2), 16) % this.fileLocks.length];
+	}
+
+	private StoredImage toStoredImage(ImageLink imageLink) {
+		ImageBlob imageBlob = imageLink.getImageBlob();
+		File blobFile = getBlobFile(imageBlob.getHash(), imageBlob.getFormat());
+		return new StoredImage(blobFile, imageBlob.getFormat(), imageBlob.getHash(),
+				imageLink.getInsertionDate().getTime());
+	}
+
+	private StoredImage findLegacy(PhotoType photoType, Long id, ImageSize imageSize) {
+		ImageHelper imageHelper = new ImageHelper(photoType, id);
+		File image = isNull(imageSize) ? imageHelper.findImage() : imageHelper.findImage(imageSize);
+		if (isNull(image)) {
+			return null;
+		}
+		String version = Long.toHexString(image.lastModified()) + "-" + Long.toHexString(image.length());
+		return new StoredImage(image, imageHelper.getImageFormat(), version, image.lastModified());
+	}
+
+	/**
+	 * Copies the content to the file hashing it on the way
+	 *
+	 * @return the hex SHA-256 of the content
+	 */
+	private String write(InputStream content, File file) throws IOException {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		try (InputStream input = new DigestInputStream(content, messageDigest)) {
+			Files.copy(input, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return toHex(messageDigest.digest());
+	}
+
+	private File createTemporaryFile() throws DirectoryException, IOException {
+		File temporaryDirectory = new File(this.directory, "tmp");
+		createDirectory(temporaryDirectory);
+		return File.createTempFile("upload", ".tmp", temporaryDirectory);
+	}
+
+	private File getBlobFile(String hash, String format) {
+		return new File(this.directory.concat("/").concat(hash.substring(0, 2)).concat("/")
+				.concat(hash.substring(2, 4)).concat("/").concat(hash).concat(".").concat(format));
+	}
+
+	private void createDirectory(File file) throws DirectoryException {
+		if (!file.isDirectory() && !file.mkdirs() && !file.isDirectory()) {
+			throw new DirectoryException("Falha ao encontrar diretório da imagem.");
+		}
+	}
+
+	private String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(hex);
+	}
+}
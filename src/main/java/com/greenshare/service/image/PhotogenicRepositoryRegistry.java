@@ -0,0 +1,73 @@
+package com.greenshare.service.image;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.greenshare.enumeration.PhotoType;
+import com.greenshare.repository.AchievementRepository;
+import com.greenshare.repository.FlowerRepository;
+import com.greenshare.repository.FlowerShopRepository;
+import com.greenshare.repository.FruitRepository;
+import com.greenshare.repository.OfferRepository;
+import com.greenshare.repository.PhotogenicRepository;
+import com.greenshare.repository.PostRepository;
+import com.greenshare.repository.SpeciesRepository;
+import com.greenshare.repository.UserRepository;
+
+/**
+ * Resolves the {@link PhotogenicRepository} of each {@link PhotoType}, a new
+ * PhotoType must have its repository registered here
+ *
+ * @author joao.silva
+ */
+@Service
+public class PhotogenicRepositoryRegistry {
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Autowired
+	FlowerShopRepository flowerShopRepository;
+
+	@Autowired
+	PostRepository postRepository;
+
+	@Autowired
+	SpeciesRepository speciesRepository;
+
+	@Autowired
+	FlowerRepository flowerRepository;
+
+	@Autowired
+	AchievementRepository achievementRepository;
+
+	@Autowired
+	FruitRepository fruitRepository;
+
+	@Autowired
+	OfferRepository offerRepository;
+
+	private final Map<PhotoType, PhotogenicRepository<?>> repositories = new EnumMap<PhotoType, PhotogenicRepository<?>>(
+			PhotoType.class);
+
+	@PostConstruct
+	public void register() {
+		this.repositories.put(PhotoType.USER, this.userRepository);
+		this.repositories.put(PhotoType.POST, this.postRepository);
+		this.repositories.put(PhotoType.FLOWER_SHOP, this.flowerShopRepository);
+		this.repositories.put(PhotoType.SPECIES, this.speciesRepository);
+		this.repositories.put(PhotoType.ACHIEVEMENT, this.achievementRepository);
+		this.repositories.put(PhotoType.FLOWER, this.flowerRepository);
+		this.repositories.put(PhotoType.FRUIT, this.fruitRepository);
+		this.repositories.put(PhotoType.OFFER, this.offerRepository);
+	}
+
+	public PhotogenicRepository<?> get(PhotoType photoType) {
+		return this.repositories.get(photoType);
+	}
+}
@@ -0,0 +1,49 @@
+package com.greenshare.service.image;
+
+import java.io.File;
+
+/**
+ * A readable image file returned by {@link ImageStore}
+ *
+ * @author joao.silva
+ */
+public class StoredImage {
+
+	private final File file;
+
+	private final String format;
+
+	private final String version;
+
+	private final long lastModified;
+
+	public StoredImage(File file, String format, String version, long lastModified) {
+		this.file = file;
+		this.format = format;
+		this.version = version;
+		this.lastModified = lastModified;
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	public String getFormat() {
+		return this.format;
+	}
+
+	/**
+	 * Changes whenever the content changes, used as ETag
+	 */
+	public String getVersion() {
+		return this.version;
+	}
+
+	public long getLastModified() {
+		return this.lastModified;
+	}
+
+	public long getLength() {
+		return this.file.length();
+	}
+}
@@ -0,0 +1,177 @@
+package com.greenshare.service.offer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptorAdapter;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greenshare.helpers.IsHelper;
+
+/**
+ * Export of the offers as newline delimited JSON, one flat object per offer
+ * with the ids of its user and species. The rows are read through a forward
+ * only cursor of fetchSize rows and written as they arrive, so the memory used
+ * doesn't depend on the number of offers. The number of exports running at
+ * once and the rows of each one are limited.
+ *
+ * @author joao.silva
+ */
+@Service
+public class OfferExportService extends IsHelper {
+
+	private static final String EXPORT_QUERY = "select o.offer_id, o.insertion_date, o.offer_status, o.type,"
+			+ " o.unit_price, o.initial_amount, o.remaining_amount, o.description, o.user_id, o.species_id,"
+			+ " s.common_name, s.scientific_name from offer o left join species s on s.species_id = o.species_id"
+			+ " order by o.offer_id limit ?";
+
+	private static final int FLUSH_ROWS = 500;
+
+	private static final int NEW = 0;
+
+	private static final int STARTED = 1;
+
+	private static final int ABANDONED = 2;
+
+	@Value("${greenshare.offer.export.fetch-size:500}")
+	private int fetchSize;
+
+	@Value("${greenshare.offer.export.max-rows:1000000}")
+	private int maxRows;
+
+	private final Semaphore running;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	public OfferExportService(@Value("${greenshare.offer.export.max-concurrent:2}") int maxConcurrent) {
+		this.running = new Semaphore(maxConcurrent);
+	}
+
+	/**
+	 * @return the body writing the export, or null if the maximum of exports
+	 *         is already running. The export is counted as running until the
+	 *         body returns, or until the async request completes, times out or
+	 *         fails if the body never started, so a body that is never run
+	 *         doesn't keep its permit and one still streaming after a timeout
+	 *         does.
+	 */
+	public StreamingResponseBody export() {
+		if (!this.running.tryAcquire()) {
+			return null;
+		}
+		/* Whoever moves it from NEW owns the permit, the body or the interceptor */
+		AtomicInteger state = new AtomicInteger(NEW);
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes instanceof ServletRequestAttributes) {
+			WebAsyncUtils.getAsyncManager(((ServletRequestAttributes) attributes).getRequest())
+					.registerCallableInterceptor(OfferExportService.class.getName(),
+							new CallableProcessingInterceptorAdapter() {
+
+								@Override
+								public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+									if (state.compareAndSet(NEW, ABANDONED)) {
+										running.release();
+									}
+								}
+							});
+		}
+		return outputStream -> {
+			if (!state.compareAndSet(NEW, STARTED)) {
+				return;
+			}
+			try {
+				write(outputStream);
+			} finally {
+				this.running.release();
+			}
+		};
+	}
+
+	private void write(OutputStream outputStream) throws IOException {
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		/* Each object ends its own line instead of the default space between them */
+		generator.setRootValueSeparator(null);
+		JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+		cursor.setFetchSize(this.fetchSize);
+		/* Postgres only streams with a cursor inside a transaction */
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+		try {
+			transaction.execute(status -> {
+				cursor.query(EXPORT_QUERY, new Object[] { this.maxRows }, (RowCallbackHandler) row -> {
+					try {
+						writeRow(generator, row);
+						if (row.getRow() % FLUSH_ROWS == 0) {
+							generator.flush();
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+				return null;
+			});
+		} catch (UncheckedIOException e) {
+			/* Usually the client went away */
+			throw e.getCause();
+		}
+		generator.flush();
+		generator.close();
+	}
+
+	private void writeRow(JsonGenerator generator, ResultSet row) throws IOException, SQLException {
+		generator.writeStartObject();
+		generator.writeNumberField("id", row.getLong("offer_id"));
+		writeNullable(generator, "insertionDate",
+				isNull(row.getTimestamp("insertion_date")) ? null : row.getTimestamp("insertion_date").getTime());
+		generator.writeStringField("offerStatus", row.getString("offer_status"));
+		writeNullable(generator, "type", (Number) row.getObject("type"));
+		writeNullable(generator, "unitPrice", (Number) row.getObject("unit_price"));
+		writeNullable(generator, "initialAmount", (Number) row.getObject("initial_amount"));
+		writeNullable(generator, "remainingAmount", (Number) row.getObject("remaining_amount"));
+		generator.writeStringField("description", row.getString("description"));
+		writeNullable(generator, "userId", (Number) row.getObject("user_id"));
+		writeNullable(generator, "speciesId", (Number) row.getObject("species_id"));
+		generator.writeStringField("speciesCommonName", row.getString("common_name"));
+		generator.writeStringField("speciesScientificName", row.getString("scientific_name"));
+		generator.writeEndObject();
+		generator.writeRaw('\n');
+	}
+
+	private void writeNullable(JsonGenerator generator, String name, Number value) throws IOException {
+		if (isNull(value)) {
+			generator.writeNullField(name);
+		} else if (value instanceof Float || value instanceof Double) {
+			generator.writeNumberField(name, value.doubleValue());
+		} else {
+			generator.writeNumberField(name, value.longValue());
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package com.greenshare.service.offer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Service;
+
+import com.greenshare.entity.interfaces.BasicEntity;
+import com.greenshare.entity.vegetable.SearchClass;
+import com.greenshare.helpers.IsHelper;
+
+/**
+ * Least recently used cache of the offer ids of search pages and region
+ * views, bounded by an estimate of the bytes held. Each entry has tags of the
+ * species and regions whose offers can change it, or the tag all, and the
+ * writes of offers remove the entries of their tags. The invalidations only
+ * reach the cache of this node, so entries also expire after ttl-seconds to
+ * bound how stale the other nodes can be. Counters are exposed on the
+ * actuator metrics as offer.search.cache.*
+ *
+ * @author joao.silva
+ */
+@Service
+public class OfferSearchCache extends IsHelper implements PublicMetrics {
+
+	/* Tag of the entries changed by any offer */
+	static final String ALL = "all";
+
+	/* Entries of more species than this are tagged all instead */
+	private static final int MAX_SPECIES_TAGS = 256;
+
+	/* Estimated bytes of an entry besides its key and ids */
+	private static final int ENTRY_OVERHEAD = 96;
+
+	@Value("${greenshare.search.cache.max-bytes:8388608}")
+	private long maxBytes;
+
+	@Value("${greenshare.search.cache.ttl-seconds:60}")
+	private long ttlSeconds;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(256, 0.75f, true);
+
+	private final Map<String, Set<String>> keysByTag = new HashMap<String, Set<String>>();
+
+	private long bytes;
+
+	/* Incremented on every invalidation so searches started before it are not cached */
+	private long generation;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final AtomicLong invalidations = new AtomicLong();
+
+	private final AtomicLong expirations = new AtomicLong();
+
+	/**
+	 * @return the cached ids or null on a miss
+	 */
+	public List<Long> get(String key) {
+		Entry entry;
+		synchronized (this) {
+			entry = this.entries.get(key);
+			if (isNotNull(entry) && entry.expiration < System.currentTimeMillis()) {
+				remove(key);
+				this.expirations.incrementAndGet();
+				entry = null;
+			}
+		}
+		if (isNull(entry)) {
+			this.misses.incrementAndGet();
+			return null;
+		}
+		this.hits.incrementAndGet();
+		return entry.ids;
+	}
+
+	/**
+	 * Must be read before running the search whose ids will be given to
+	 * {@link #put(String, List, Collection, long)}
+	 */
+	public synchronized long getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * Caches the ids unless an invalidation happened since the given generation
+	 */
+	public synchronized void put(String key, List<Long> ids, Collection<String> tags, long generation) {
+		if (generation != this.generation) {
+			return;
+		}
+		Entry entry = new Entry(key, ids, tags, System.currentTimeMillis() + this.ttlSeconds * 1000);
+		if (entry.bytes > this.maxBytes) {
+			return;
+		}
+		remove(key);
+		this.entries.put(key, entry);
+		for (String tag : entry.tags) {
+			this.keysByTag.computeIfAbsent(tag, k -> new HashSet<String>()).add(key);
+		}
+		this.bytes += entry.bytes;
+		evict();
+	}
+
+	/**
+	 * Removes the entries of the tags and the entries tagged all
+	 */
+	public synchronized void invalidate(Collection<String> tags) {
+		this.generation++;
+		this.invalidations.incrementAndGet();
+		removeTag(ALL);
+		for (String tag : tags) {
+			removeTag(tag);
+		}
+	}
+
+	public synchronized void clear() {
+		this.generation++;
+		this.invalidations.incrementAndGet();
+		this.entries.clear();
+		this.keysByTag.clear();
+		this.bytes = 0;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		long hits = this.hits.get();
+		long misses = this.misses.get();
+		metrics.add(new Metric<Long>("offer.search.cache.hits", hits));
+		metrics.add(new Metric<Long>("offer.search.cache.misses", misses));
+		metrics.add(new Metric<Double>("offer.search.cache.hit-rate",
+				hits + misses == 0 ? 0.0 : (double) hits / (hits + misses)));
+		metrics.add(new Metric<Long>("offer.search.cache.evictions", this.evictions.get()));
+		metrics.add(new Metric<Long>("offer.search.cache.invalidations", this.invalidations.get()));
+		metrics.add(new Metric<Long>("offer.search.cache.expirations", this.expirations.get()));
+		synchronized (this) {
+			metrics.add(new Metric<Long>("offer.search.cache.bytes", this.bytes));
+			metrics.add(new Metric<Integer>("offer.search.cache.entries", this.entries.size()));
+		}
+		return metrics;
+	}
+
+	/**
+	 * @return the same key for searches with the same filters, whatever the
+	 *         order of the lists or the unset values sent
+	 */
+	public static String getSearchKey(SearchClass searchClass, int page, int size) {
+		StringBuilder key = new StringBuilder("search:").append(page).append(':').append(size);
+		key.append(":s").append(searchClass.species == null ? "" : String.valueOf(searchClass.species.getId()));
+		key.append(":g").append(getIds(searchClass.growth));
+		key.append(":so").append(getIds(searchClass.soil));
+		key.append(":c").append(getIds(searchClass.climate));
+		key.append(":m").append(searchClass.isMedicinal);
+		key.append(":ab").append(searchClass.attractBirds);
+		key.append(":ae").append(searchClass.attractBees);
+		key.append(":o").append(searchClass.isOrnamental);
+		key.append(":fl").append(Boolean.FALSE.equals(searchClass.hasFlower));
+		key.append(":fr").append(Boolean.FALSE.equals(searchClass.hasFruit));
+		key.append(":r").append(isLimit(searchClass.rootDepth) ? searchClass.rootDepth : 0);
+		key.append(":h").append(isLimit(searchClass.averageHeight) ? searchClass.averageHeight : 0);
+		return key.toString();
+	}
+
+	/**
+	 * @return the tags of a search, one per species when they were resolved
+	 */
+	public static Collection<String> getSearchTags(Collection<Long> speciesIds) {
+		if (speciesIds == null || speciesIds.size() > MAX_SPECIES_TAGS) {
+			return Collections.singleton(ALL);
+		}
+		List<String> tags = new ArrayList<String>(speciesIds.size());
+		for (Long speciesId : speciesIds) {
+			tags.add(getSpeciesTag(speciesId));
+		}
+		return tags;
+	}
+
+	public static String getSpeciesTag(Long speciesId) {
+		return "species:" + speciesId;
+	}
+
+	public static String getStateTag(Long stateId) {
+		return "state:" + stateId;
+	}
+
+	public static String getCityTag(Long cityId) {
+		return "city:" + cityId;
+	}
+
+	private void removeTag(String tag) {
+		Set<String> keys = this.keysByTag.remove(tag);
+		if (isNotNull(keys)) {
+			for (String key : keys) {
+				remove(key);
+			}
+		}
+	}
+
+	private void remove(String key) {
+		Entry entry = this.entries.remove(key);
+		if (isNotNull(entry)) {
+			this.bytes -= entry.bytes;
+			unlink(entry);
+		}
+	}
+
+	private void evict() {
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		while (this.bytes > this.maxBytes && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			iterator.remove();
+			this.bytes -= entry.bytes;
+			unlink(entry);
+			this.evictions.incrementAndGet();
+		}
+	}
+
+	private void unlink(Entry entry) {
+		for (String tag : entry.tags) {
+			Set<String> keys = this.keysByTag.get(tag);
+			if (isNotNull(keys)) {
+				keys.remove(entry.key);
+				if (keys.isEmpty()) {
+					this.keysByTag.remove(tag);
+				}
+			}
+		}
+	}
+
+	private static String getIds(Collection<? extends BasicEntity<?>> items) {
+		if (items == null) {
+			return "";
+		}
+		Set<Long> ids = new TreeSet<Long>();
+		for (BasicEntity<?> item : items) {
+			if (item != null && item.getId() != null) {
+				ids.add(item.getId());
+			}
+		}
+		return ids.toString();
+	}
+
+	private static boolean isLimit(Integer value) {
+		return value != null && value > 0;
+	}
+
+	private static class Entry {
+
+		private final String key;
+
+		private final List<Long> ids;
+
+		private final Collection<String> tags;
+
+		private final long bytes;
+
+		private final long expiration;
+
+		private Entry(String key, List<Long> ids, Collection<String> tags, long expiration) {
+			this.key = key;
+			this.expiration = expiration;
+			this.ids = Collections.unmodifiableList(new ArrayList<Long>(ids));
+			this.tags = new ArrayList<String>(tags);
+			long tagBytes = 0;
+			for (String tag : tags) {
+				tagBytes += 2L * tag.length() + 40;
+			}
+			this.bytes = ENTRY_OVERHEAD + 2L * key.length() + 24L * ids.size() + tagBytes;
+		}
+	}
+}
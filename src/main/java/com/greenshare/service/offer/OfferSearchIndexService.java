@@ -0,0 +1,299 @@
+package com.greenshare.service.offer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.greenshare.entity.address.Address;
+import com.greenshare.entity.address.City;
+import com.greenshare.entity.interfaces.BasicEntity;
+import com.greenshare.entity.offer.Offer;
+import com.greenshare.entity.offer.OfferSearchEntry;
+import com.greenshare.entity.vegetable.SearchClass;
+import com.greenshare.entity.vegetable.Species;
+import com.greenshare.enumeration.OfferStatus;
+import com.greenshare.helpers.FeedCursor;
+import com.greenshare.helpers.IsHelper;
+import com.greenshare.repository.OfferRepository;
+import com.greenshare.repository.OfferSearchRepository;
+
+/**
+ * Keeps the offer_search projection up to date on the writes of offers,
+ * species and addresses, and answers the offer search from it. The index
+ * methods run in the transaction of the write and let their failures roll it
+ * back, the {@link OfferSearchCache} is invalidated once it commits.
+ *
+ * @author joao.silva
+ */
+@Service
+public class OfferSearchIndexService extends IsHelper {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OfferSearchIndexService.class);
+
+	private static final int REBUILD_BATCH_SIZE = 500;
+
+	/* Active offers of each species, shared by all the facet requests until it expires */
+	private volatile Map<Long, Long> offersBySpecies;
+
+	private volatile long offersBySpeciesExpiration;
+
+	@Value("${greenshare.search.facets.ttl-seconds:30}")
+	private long facetsTtlSeconds;
+
+	@Autowired
+	OfferSearchRepository offerSearchRepository;
+
+	@Autowired
+	OfferRepository offerRepository;
+
+	@Autowired
+	OfferSearchCache offerSearchCache;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final Runnable clearCache = new Runnable() {
+
+		@Override
+		public void run() {
+			offerSearchCache.clear();
+		}
+	};
+
+	/**
+	 * Fills the projection on the first start and after offers were written
+	 * without it, comparing every indexed column with the offer tables
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildIfStale() {
+		long differences = offerSearchRepository.countDifferences();
+		if (differences > 0) {
+			LOGGER.info("Rebuilding the offer search projection, " + differences + " entries differ from the offers");
+			rebuild();
+		}
+	}
+
+	/**
+	 * Replaces the whole projection in one transaction, so the search never
+	 * reads it half built and a failure leaves the previous one
+	 */
+	public void rebuild() {
+		new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				offerSearchRepository.deleteAllEntries();
+				Page<Offer> offers;
+				int page = 0;
+				do {
+					offers = offerRepository.findAll(new PageRequest(page++, REBUILD_BATCH_SIZE, new Sort("id")));
+					List<OfferSearchEntry> entries = new ArrayList<OfferSearchEntry>(offers.getNumberOfElements());
+					for (Offer offer : offers) {
+						entries.add(new OfferSearchEntry(offer));
+					}
+					offerSearchRepository.save(entries);
+					entityManager.flush();
+					entityManager.clear();
+				} while (offers.hasNext());
+			}
+		});
+		offerSearchCache.clear();
+	}
+
+	/**
+	 * Indexes the offer and invalidates the cached searches of its species and
+	 * regions, before and after the write. Must run in the transaction of the
+	 * write, so a failure rolls both back.
+	 */
+	public void indexOffer(Offer offer) {
+		final Set<String> tags = new HashSet<String>();
+		OfferSearchEntry previous = offerSearchRepository.findOne(offer.getId());
+		if (isNotNull(previous)) {
+			addTags(tags, previous);
+		}
+		addTags(tags, offerSearchRepository.save(new OfferSearchEntry(offer)));
+		afterCommit(new Runnable() {
+
+			@Override
+			public void run() {
+				offerSearchCache.invalidate(tags);
+			}
+		});
+	}
+
+	public void indexSpecies(Species species) {
+		offerSearchRepository.updateSpecies(species.getId(),
+				isNull(species.getGrowth()) ? null : species.getGrowth().getId(),
+				OfferSearchEntry.toMask(species.getSoils()), OfferSearchEntry.toMask(species.getClimates()),
+				OfferSearchEntry.toFlags(species), species.getRootDepth(), species.getAverageHeight());
+		/* The species matching each search may have changed */
+		afterCommit(clearCache);
+	}
+
+	public void indexAddress(Address address) {
+		if (isNull(address.getUser())) {
+			return;
+		}
+		City city = address.getCity();
+		offerSearchRepository.updateLocation(address.getUser().getId(), isNull(city) ? null : city.getId(),
+				isNull(city) || isNull(city.getState()) ? null : city.getState().getId(),
+				isNull(city) ? null : city.getLatitude(), isNull(city) ? null : city.getLongitude());
+		afterCommit(clearCache);
+	}
+
+	public void indexCity(City city) {
+		offerSearchRepository.updateCoordinates(city.getId(), city.getLatitude(), city.getLongitude());
+	}
+
+	/**
+	 * Number of active offers of each species, read with one grouped query and
+	 * kept for a few seconds
+	 */
+	public Map<Long, Long> countActiveBySpecies() {
+		Map<Long, Long> counts = this.offersBySpecies;
+		if (isNull(counts) || System.currentTimeMillis() > this.offersBySpeciesExpiration) {
+			counts = new HashMap<Long, Long>();
+			for (Object[] row : offerSearchRepository.countBySpecies(OfferStatus.Active.getValue())) {
+				if (isNotNull(row[0])) {
+					counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+				}
+			}
+			this.offersBySpecies = counts;
+			this.offersBySpeciesExpiration = System.currentTimeMillis() + this.facetsTtlSeconds * 1000;
+		}
+		return counts;
+	}
+
+	/**
+	 * @return false if a soil or climate of the search doesn't fit on the masks,
+	 *         only matters when the species were not resolved
+	 */
+	public boolean canSearch(SearchClass searchClass) {
+		return fitsMask(searchClass.soil) && fitsMask(searchClass.climate);
+	}
+
+	/**
+	 * Reads the page of ids from the projection and loads the offers by id,
+	 * keeping the order of the page
+	 * 
+	 * @param speciesIds
+	 *            species resolved by the
+	 *            {@link com.greenshare.service.species.SpeciesIndex}, or null
+	 */
+	public List<Offer> search(SearchClass searchClass, Collection<Long> speciesIds, int page, int size) {
+		List<Long> ids = offerSearchRepository.searchIds(searchClass, speciesIds, page, size);
+		return findAllInOrder(ids);
+	}
+
+	/**
+	 * Same as {@link #search(SearchClass, Collection, int, int)} reading the
+	 * offers after the cursor instead of a page
+	 */
+	public List<Offer> searchAfter(SearchClass searchClass, Collection<Long> speciesIds, FeedCursor feedCursor,
+			int size) {
+		List<Long> ids = offerSearchRepository.searchIdsAfter(searchClass, speciesIds, feedCursor.getInsertionDate(),
+				feedCursor.getId(), size);
+		return findAllInOrder(ids);
+	}
+
+	/**
+	 * Reads a page of the offers within distanceKm of the point, nearest first,
+	 * with the distance of each one
+	 */
+	public List<Offer> searchNearby(SearchClass searchClass, Collection<Long> speciesIds, double latitude,
+			double longitude, double distanceKm, int page, int size) {
+		Map<Long, Double> distances = offerSearchRepository.searchNearby(searchClass, speciesIds, latitude, longitude,
+				distanceKm, page, size);
+		List<Offer> offers = findAllInOrder(new ArrayList<Long>(distances.keySet()));
+		for (Offer offer : offers) {
+			offer.setDistance(distances.get(offer.getId()));
+		}
+		return offers;
+	}
+
+	List<Offer> findAllInOrder(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return new ArrayList<Offer>();
+		}
+		Map<Long, Offer> offersById = new HashMap<Long, Offer>();
+		for (Offer offer : offerRepository.findAll(ids)) {
+			offersById.put(offer.getId(), offer);
+		}
+		List<Offer> offers = new ArrayList<Offer>(ids.size());
+		for (Long id : ids) {
+			Offer offer = offersById.get(id);
+			if (isNotNull(offer)) {
+				offers.add(offer);
+			}
+		}
+		return offers;
+	}
+
+	private void addTags(Set<String> tags, OfferSearchEntry entry) {
+		if (isNotNull(entry.getSpeciesId())) {
+			tags.add(OfferSearchCache.getSpeciesTag(entry.getSpeciesId()));
+		}
+		if (isNotNull(entry.getStateId())) {
+			tags.add(OfferSearchCache.getStateTag(entry.getStateId()));
+		}
+		if (isNotNull(entry.getCityId())) {
+			tags.add(OfferSearchCache.getCityTag(entry.getCityId()));
+		}
+	}
+
+	/**
+	 * Runs the action once the current transaction commits, so a search
+	 * between the invalidation and the commit can't cache the old entries
+	 */
+	private void afterCommit(final Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	private boolean fitsMask(List<? extends BasicEntity<?>> items) {
+		if (isNotNull(items)) {
+			for (BasicEntity<?> item : items) {
+				if (!OfferSearchEntry.isMaskId(item.getId())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -13,22 +13,35 @@ import com.greenshare.service.BasicService;
  */
 public interface OfferService extends BasicService<Offer, Long> {
 
-	ResponseEntity<?> findAllByFlowerShop(Long id);
+	ResponseEntity<?> findAllByFlowerShop(Long id, Integer page, Integer size);
 
 	ResponseEntity<?> delete(Long id);
 
-	ResponseEntity<?> findAllByUser(Long id);
+	ResponseEntity<?> findAllByUser(Long id, Integer page, Integer size);
 
-	ResponseEntity<?> findAllBySpecies(Long id);
+	ResponseEntity<?> findAllBySpecies(Long id, Integer page, Integer size);
 
-	ResponseEntity<?> findAllByState(Long id);
+	ResponseEntity<?> findAllByState(Long id, Integer page, Integer size);
 
-	ResponseEntity<?> findAllByCity(Long id);
+	ResponseEntity<?> findAllByCity(Long id, Integer page, Integer size);
 	
-	ResponseEntity<?> findAllByCurrentUser();
+	ResponseEntity<?> findAllByCurrentUser(Integer page, Integer size);
 
-	ResponseEntity<?> findAll();
+	ResponseEntity<?> findAll(Integer page, Integer size);
 
-	ResponseEntity<?> search(Integer page, Integer size, SearchClass searchClass);
+	ResponseEntity<?> search(Integer page, Integer size, SearchClass searchClass, Boolean embedThumbnails);
+
+	ResponseEntity<?> searchFeed(String cursor, Integer size, SearchClass searchClass, Boolean embedThumbnails);
+
+	ResponseEntity<?> searchNearby(Integer page, Integer size, Integer distance, SearchClass searchClass,
+			Boolean embedThumbnails);
+
+	/**
+	 * Full text search of the active offers by description, see
+	 * {@link com.greenshare.repository.TextSearchRepository}
+	 */
+	ResponseEntity<?> searchText(String text, Integer page, Integer size);
+
+	ResponseEntity<?> findFacets(SearchClass searchClass);
 	
 }
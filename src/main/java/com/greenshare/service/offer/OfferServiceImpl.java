@@ -2,37 +2,50 @@ package com.greenshare.service.offer;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 
-import org.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.greenshare.entity.FlowerShop;
 import com.greenshare.entity.address.City;
 import com.greenshare.entity.address.State;
 import com.greenshare.entity.offer.Offer;
+import com.greenshare.entity.offer.OfferFacets;
+import com.greenshare.entity.user.User;
 import com.greenshare.entity.vegetable.SearchClass;
 import com.greenshare.entity.vegetable.Species;
 import com.greenshare.enumeration.OfferStatus;
 import com.greenshare.exception.DirectoryException;
+import com.greenshare.exception.InvalidImageException;
+import com.greenshare.exception.SaveOnDatabaseException;
 import com.greenshare.helpers.Base64MultpartFile;
-import com.greenshare.helpers.ImageHelper;
+import com.greenshare.helpers.FeedCursor;
+import com.greenshare.helpers.FeedPage;
 import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.CityRepository;
 import com.greenshare.repository.FlowerShopRepository;
 import com.greenshare.repository.OfferCommentRepository;
 import com.greenshare.repository.OfferRepository;
+import com.greenshare.repository.OfferSpecifications;
 import com.greenshare.repository.SpeciesRepository;
 import com.greenshare.repository.StateRepository;
+import com.greenshare.repository.TextSearchRepository;
 import com.greenshare.repository.UserRepository;
 import com.greenshare.service.image.ImageServiceImpl;
+import com.greenshare.service.species.SpeciesIndex;
 
 /**
  * Implementation of {@link com.greenshare.service.offer.OfferService} interface
@@ -42,12 +55,31 @@ import com.greenshare.service.image.ImageServiceImpl;
 @Service
 public class OfferServiceImpl extends IsHelper implements OfferService {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(OfferServiceImpl.class);
+
+	private static final int MAX_PAGE_SIZE = 100;
+
+	@Value("${greenshare.search.nearby.max-km:300}")
+	private int maxDistanceKm;
+
 	@Autowired
 	ImageServiceImpl imageService;
 	
 	@Autowired
 	OfferRepository offerRepository;
 
+	@Autowired
+	OfferSearchIndexService offerSearchIndexService;
+
+	@Autowired
+	SpeciesIndex speciesIndex;
+
+	@Autowired
+	TextSearchRepository textSearchRepository;
+
+	@Autowired
+	OfferSearchCache offerSearchCache;
+
 	@Autowired
 	FlowerShopRepository flowerShopRepository;
 
@@ -67,6 +99,7 @@ public class OfferServiceImpl extends IsHelper implements OfferService {
 	OfferCommentRepository offerCommentRepository;
 
 	@Override
+	@Transactional
 	public ResponseEntity<?> save(Offer offer) {
 		if (isNotNull(offer)) {
 			Species species = offer.getSpecies();
@@ -77,24 +110,17 @@ public class OfferServiceImpl extends IsHelper implements OfferService {
 							species, offer.getDescription());
 					if (newOffer.isValid()) {
 						newOffer = offerRepository.save(newOffer);
+						offerSearchIndexService.indexOffer(newOffer);
 						if(isNotNull(offer.getImage())) {
-							ImageHelper imageHelper;
+							Base64MultpartFile multipartFile = new Base64MultpartFile(offer.getImage());
 							try {
-								imageHelper = new ImageHelper(newOffer);
+								imageService.saveImage(newOffer, multipartFile);
 							} catch (DirectoryException e) {
 								return new ResponseEntity<String>("Erro ao acessar diretório interno.", HttpStatus.INTERNAL_SERVER_ERROR);
-							}
-				    		byte[] decodedBytes = Base64.getDecoder().decode(offer.getImage());
-				    		Base64MultpartFile multipartFile = new Base64MultpartFile(decodedBytes);
-				    		try {
-								if(imageHelper.save(multipartFile)) {
-									if(!newOffer.getHasImage()){
-										newOffer.setHasImage(true);
-										if(isNull(imageService.save(newOffer))) {
-											return new ResponseEntity<String>("Erro ao salvar dados no banco.", HttpStatus.INTERNAL_SERVER_ERROR);
-										}
-									}
-								}
+							} catch (SaveOnDatabaseException e) {
+								return new ResponseEntity<String>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+							} catch (InvalidImageException e) {
+								return new ResponseEntity<String>(e.getMessage(), HttpStatus.NOT_ACCEPTABLE);
 							} catch (IOException e) {
 								return new ResponseEntity<String>("Erro ao salvar imagem no servidor.", HttpStatus.INTERNAL_SERVER_ERROR);
 							}
@@ -111,61 +137,178 @@ public class OfferServiceImpl extends IsHelper implements OfferService {
 	}
 	
 	@Override
-	public ResponseEntity<?> search(Integer page, Integer size, SearchClass searchClass) {
+	public ResponseEntity<?> search(Integer page, Integer size, SearchClass searchClass, Boolean embedThumbnails) {
 		if(isNotNull(searchClass) && isNotNull(page) && isNotNull(size)){
-			Pageable pageable = new PageRequest(page, size, new Sort(Sort.Direction.DESC, "insertionDate"));
-			List<Offer> retorno = null;
-			if(isNull(searchClass.rootDepth) || searchClass.rootDepth == 0) {
-				searchClass.rootDepth = 50000;
+			if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+				return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
 			}
-			if(isNull(searchClass.averageHeight) || searchClass.averageHeight == 0) {
-				searchClass.averageHeight = 50000;
-			}
-			if(isNotNull(searchClass.species)) {
-				Species species = searchClass.species;
-				retorno = offerRepository.findAllBySpecies(species, pageable);
-			}else {
-				if(searchClass.hasFlower && searchClass.hasFruit) {
-					retorno = offerRepository.findAllBySpeciesGrowthInAndSpeciesSoilsInAndSpeciesClimatesInAndSpeciesIsMedicinalAndSpeciesAttractBirdsAndSpeciesAttractBeesAndSpeciesIsOrnamental(searchClass.growth, searchClass.soil, searchClass.climate, searchClass.isMedicinal, searchClass.attractBirds, searchClass.attractBees, searchClass.isOrnamental, searchClass.rootDepth, searchClass.averageHeight,  pageable);
-				} else if(searchClass.hasFlower) {
-					retorno = offerRepository.findAllBySpeciesGrowthInAndSpeciesSoilsInAndSpeciesClimatesInAndSpeciesIsMedicinalAndSpeciesAttractBirdsAndSpeciesAttractBeesAndSpeciesIsOrnamentalAndSpeciesFruitIsNull(searchClass.growth, searchClass.soil, searchClass.climate, searchClass.isMedicinal, searchClass.attractBirds, searchClass.attractBees, searchClass.isOrnamental, searchClass.rootDepth, searchClass.averageHeight,  pageable);
-				} else if(searchClass.hasFruit) {
-					retorno = offerRepository.findAllBySpeciesGrowthInAndSpeciesSoilsInAndSpeciesClimatesInAndSpeciesIsMedicinalAndSpeciesAttractBirdsAndSpeciesAttractBeesAndSpeciesIsOrnamentalAndSpeciesFlowerIsNull(searchClass.growth, searchClass.soil, searchClass.climate, searchClass.isMedicinal, searchClass.attractBirds, searchClass.attractBees, searchClass.isOrnamental, searchClass.rootDepth, searchClass.averageHeight,  pageable);
+			Pageable pageable = new PageRequest(page, size, new Sort(Sort.Direction.DESC, "insertionDate"));
+			List<Long> speciesIds = speciesIndex.resolve(searchClass);
+			String cacheKey = OfferSearchCache.getSearchKey(searchClass, page, size);
+			List<Long> cachedIds = offerSearchCache.get(cacheKey);
+			List<Offer> retorno;
+			if (isNotNull(speciesIds) && speciesIds.isEmpty()) {
+				retorno = new ArrayList<Offer>();
+			} else if (isNotNull(cachedIds)) {
+				retorno = offerSearchIndexService.findAllInOrder(cachedIds);
+			} else {
+				long generation = offerSearchCache.getGeneration();
+				if (isNotNull(speciesIds) || offerSearchIndexService.canSearch(searchClass)) {
+					retorno = offerSearchIndexService.search(searchClass, speciesIds, page, size);
 				} else {
-					retorno = offerRepository.findAllBySpeciesGrowthInAndSpeciesSoilsInAndSpeciesClimatesInAndSpeciesIsMedicinalAndSpeciesAttractBirdsAndSpeciesAttractBeesAndSpeciesIsOrnamentalAndSpeciesFruitIsNullAndSpeciesFlowerIsNull(searchClass.growth, searchClass.soil, searchClass.climate, searchClass.isMedicinal, searchClass.attractBirds, searchClass.attractBees, searchClass.isOrnamental, searchClass.rootDepth, searchClass.averageHeight,  pageable);
+					retorno = offerRepository.findAll(OfferSpecifications.search(searchClass, null), pageable)
+							.getContent();
 				}
+				offerSearchCache.put(cacheKey, getIds(retorno), OfferSearchCache.getSearchTags(speciesIds), generation);
+			}
+			if (Boolean.TRUE.equals(embedThumbnails)) {
+				embedThumbnails(retorno);
 			}
-			retorno.stream().filter(s -> s.getSpecies().getRootDepth() < searchClass.rootDepth && s.getSpecies().getAverageHeight() < searchClass.averageHeight);
-			retorno.stream().forEach(offer -> {
-				if(offer.getHasImage()) {
-					try {
-						ImageHelper ih = new ImageHelper(offer);
-						offer.setImage(ih.getImage());
-					} catch (DirectoryException e) {
-					} catch (IOException e) {					
-					} catch (JSONException e) {}
-				}
-				if(offer.getUser().getHasImage()) {
-					try {
-						ImageHelper ih = new ImageHelper(offer.getUser());
-						offer.getUser().setImage(ih.getImage());
-					} catch (DirectoryException e) {
-					} catch (IOException e) {					
-					} catch (JSONException e) {}
-				}
-			});
 			return new ResponseEntity<List<Offer>>(retorno, HttpStatus.OK);
 		}
 		return new ResponseEntity<String>("Objeto de pesquisa e/ou paginação não podem ser nulos.", HttpStatus.BAD_REQUEST);
 	}
 
 	@Override
+	public ResponseEntity<?> searchFeed(String cursor, Integer size, SearchClass searchClass, Boolean embedThumbnails) {
+		if (isNull(searchClass)) {
+			return new ResponseEntity<String>("Objeto de pesquisa não pode ser nulo.", HttpStatus.BAD_REQUEST);
+		}
+		if (isNull(size) || size < 1 || size > MAX_PAGE_SIZE) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
+		FeedCursor feedCursor = FeedCursor.decode(cursor);
+		if (isNull(feedCursor)) {
+			return new ResponseEntity<String>("Cursor inválido.", HttpStatus.BAD_REQUEST);
+		}
+		List<Long> speciesIds = speciesIndex.resolve(searchClass);
+		List<Offer> rows;
+		if (isNotNull(speciesIds) && speciesIds.isEmpty()) {
+			rows = new ArrayList<Offer>();
+		} else if (isNotNull(speciesIds) || offerSearchIndexService.canSearch(searchClass)) {
+			rows = offerSearchIndexService.searchAfter(searchClass, speciesIds, feedCursor, size + 1);
+		} else {
+			Pageable pageable = new PageRequest(0, size + 1, new Sort(Sort.Direction.DESC, "insertionDate", "id"));
+			rows = offerRepository.findAll(Specifications.where(OfferSpecifications.search(searchClass, null))
+					.and(OfferSpecifications.after(feedCursor)), pageable).getContent();
+		}
+		FeedPage<Offer> feedPage = FeedPage.of(rows, size);
+		if (Boolean.TRUE.equals(embedThumbnails)) {
+			embedThumbnails(feedPage.getContent());
+		}
+		return new ResponseEntity<FeedPage<Offer>>(feedPage, HttpStatus.OK);
+	}
+
+	/**
+	 * @return the page of the newest offers first, or null if page or size are
+	 *         invalid
+	 */
+	private Pageable getPageable(Integer page, Integer size) {
+		if (isNull(page) || isNull(size) || page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+			return null;
+		}
+		return new PageRequest(page, size, new Sort(Sort.Direction.DESC, "insertionDate", "id"));
+	}
+
+	private List<Long> getIds(List<Offer> offerList) {
+		List<Long> ids = new ArrayList<Long>(offerList.size());
+		for (Offer offer : offerList) {
+			ids.add(offer.getId());
+		}
+		return ids;
+	}
+
+	private void embedThumbnails(List<Offer> offerList) {
+		offerList.stream().forEach(offer -> {
+			if (offer.getHasImage()) {
+				offer.setImage(imageService.getThumbnail(offer));
+			}
+			User user = offer.getUser();
+			if (user.getHasImage() && isNull(user.getImage())) {
+				user.setImage(imageService.getThumbnail(user));
+			}
+		});
+	}
+
+	@Override
+	public ResponseEntity<?> searchNearby(Integer page, Integer size, Integer distance, SearchClass searchClass,
+			Boolean embedThumbnails) {
+		if (isNull(searchClass) || isNull(page) || isNull(size)) {
+			return new ResponseEntity<String>("Objeto de pesquisa e/ou paginação não podem ser nulos.", HttpStatus.BAD_REQUEST);
+		}
+		if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
+		if (isNull(distance) || distance < 1 || distance > this.maxDistanceKm) {
+			return new ResponseEntity<String>("Distância deve estar entre 1 e " + this.maxDistanceKm + " km.",
+					HttpStatus.BAD_REQUEST);
+		}
+		Long currentUserId = getCurrentUserId();
+		if (isNull(currentUserId)) {
+			return new ResponseEntity<String>("Nenhum usuário logado.", HttpStatus.BAD_REQUEST);
+		}
+		User user = userRepository.findOne(currentUserId);
+		City city = isNull(user) || isNull(user.getAddress()) ? null : user.getAddress().getCity();
+		if (isNull(city) || !city.hasCoordinates()) {
+			return new ResponseEntity<String>("Cidade do usuário sem coordenadas.", HttpStatus.BAD_REQUEST);
+		}
+		List<Long> speciesIds = speciesIndex.resolve(searchClass);
+		List<Offer> retorno;
+		if (isNotNull(speciesIds) && speciesIds.isEmpty()) {
+			retorno = new ArrayList<Offer>();
+		} else if (isNotNull(speciesIds) || offerSearchIndexService.canSearch(searchClass)) {
+			retorno = offerSearchIndexService.searchNearby(searchClass, speciesIds, city.getLatitude(),
+					city.getLongitude(), distance, page, size);
+		} else {
+			return new ResponseEntity<String>("Solo ou clima não suportado na pesquisa por distância.",
+					HttpStatus.BAD_REQUEST);
+		}
+		if (Boolean.TRUE.equals(embedThumbnails)) {
+			embedThumbnails(retorno);
+		}
+		return new ResponseEntity<List<Offer>>(retorno, HttpStatus.OK);
+	}
+
+	@Override
+	public ResponseEntity<?> searchText(String text, Integer page, Integer size) {
+		String prefixQuery = TextSearchRepository.toPrefixQuery(text);
+		if (isNull(prefixQuery)) {
+			return new ResponseEntity<String>("Texto de pesquisa inválido.", HttpStatus.BAD_REQUEST);
+		}
+		if (isNull(page) || isNull(size) || page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
+		try {
+			List<Long> ids = textSearchRepository.searchOfferIds(prefixQuery, page, size);
+			List<Offer> retorno = offerSearchIndexService.findAllInOrder(ids);
+			return new ResponseEntity<List<Offer>>(retorno, HttpStatus.OK);
+		} catch (DataAccessException e) {
+			LOGGER.warn("Full text search of offers failed", e);
+			return new ResponseEntity<String>("Pesquisa textual indisponível.", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+	@Override
+	public ResponseEntity<?> findFacets(SearchClass searchClass) {
+		if (isNotNull(searchClass)) {
+			OfferFacets offerFacets = speciesIndex.countFacets(searchClass,
+					offerSearchIndexService.countActiveBySpecies());
+			if (isNotNull(offerFacets)) {
+				return new ResponseEntity<OfferFacets>(offerFacets, HttpStatus.OK);
+			}
+			return new ResponseEntity<String>("Índice de espécies ainda não carregado.", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		return new ResponseEntity<String>("Objeto de pesquisa não pode ser nulo.", HttpStatus.BAD_REQUEST);
+	}
+
+	@Override
+	@Transactional
 	public ResponseEntity<?> delete(Long id) {
 		if (isNotNull(id)) {
 			Offer offerToDelete = offerRepository.findOne(id);
-			if (isNotNull(offerToDelete) && offerToDelete.getUser().getId() == getCurrentUser().getId()) {
+			if (isNotNull(offerToDelete) && offerToDelete.getUser().getId().equals(getCurrentUserId())) {
 				offerToDelete.setOfferStatus(OfferStatus.Closed);
-				offerRepository.save(offerToDelete);
+				offerSearchIndexService.indexOffer(offerRepository.save(offerToDelete));
 				return new ResponseEntity<String>("Oferta encerrada.", HttpStatus.OK);
 			}
 			return new ResponseEntity<String>("Oferta não pertencente ao usuário atual.",
@@ -187,8 +330,11 @@ public class OfferServiceImpl extends IsHelper implements OfferService {
 	}
 
 	@Override
-	public ResponseEntity<?> findAllByUser(Long id) {
-		Pageable pageable = new PageRequest(1, 5, new Sort(Sort.Direction.DESC, "insertionDate"));
+	public ResponseEntity<?> findAllByUser(Long id, Integer page, Integer size) {
+		Pageable pageable = getPageable(page, size);
+		if (isNull(pageable)) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
 		if (isNotNull(id)) {
 			List<Offer> offerListDB = offerRepository.findAllByUser(id, pageable);
 			if (isNotNull(offerListDB)) {
@@ -200,22 +346,25 @@ public class OfferServiceImpl extends IsHelper implements OfferService {
 	}
 
 	@Override
-	public ResponseEntity<?> findAll() {
-		Iterable<Offer> offerListDB = offerRepository.findAll();
-		if (isNotNull(offerListDB)) {
-			return new ResponseEntity<Iterable<Offer>>(offerListDB, HttpStatus.OK);
+	public ResponseEntity<?> findAll(Integer page, Integer size) {
+		Pageable pageable = getPageable(page, size);
+		if (isNull(pageable)) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
 		}
-		return new ResponseEntity<String>("Usuário não encontrado.", HttpStatus.NOT_FOUND);
+		List<Offer> offerListDB = offerRepository.findAll(pageable).getContent();
+		return new ResponseEntity<List<Offer>>(offerListDB, HttpStatus.OK);
 	}
 
 	@Override
-	public ResponseEntity<?> findAllByFlowerShop(Long id) {
-		Pageable pageable = new PageRequest(1, 5, new Sort(Sort.Direction.DESC, "insertionDate"));
+	public ResponseEntity<?> findAllByFlowerShop(Long id, Integer page, Integer size) {
+		Pageable pageable = getPageable(page, size);
+		if (isNull(pageable)) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
 		if (isNotNull(id)) {
 			FlowerShop flowerShopDB = flowerShopRepository.findOne(id);
 			if (isNotNull(flowerShopDB)) {
-				List<Offer> offerListDB = offerRepository.findAllByUser(getCurrentUserId(),
-						pageable);
+				List<Offer> offerListDB = offerRepository.findAllByUser(flowerShopDB.getUser().getId(), pageable);
 				return new ResponseEntity<List<Offer>>(offerListDB, HttpStatus.OK);
 			}
 			return new ResponseEntity<String>("Floricultura não encontrada.", HttpStatus.NOT_FOUND);
@@ -224,8 +373,11 @@ public class OfferServiceImpl extends IsHelper implements OfferService {
 	}
 
 	@Override
-	public ResponseEntity<?> findAllBySpecies(Long id) {
-		Pageable pageable = new PageRequest(1, 5, new Sort(Sort.Direction.DESC, "insertionDate"));
+	public ResponseEntity<?> findAllBySpecies(Long id, Integer page, Integer size) {
+		Pageable pageable = getPageable(page, size);
+		if (isNull(pageable)) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
 		if (isNotNull(id)) {
 			Species speciesDB = speciesRepository.findOne(id);
 			if (isNotNull(speciesDB)) {
@@ -238,13 +390,25 @@ public class OfferServiceImpl extends IsHelper implements OfferService {
 	}
 
 	@Override
-	public ResponseEntity<?> findAllByState(Long id) {
-		Pageable pageable = new PageRequest(1, 5, new Sort(Sort.Direction.DESC, "insertionDate"));
+	public ResponseEntity<?> findAllByState(Long id, Integer page, Integer size) {
+		Pageable pageable = getPageable(page, size);
+		if (isNull(pageable)) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
 		if (isNotNull(id)) {
 			State stateDB = stateRepository.findOne(id);
 			if (isNotNull(stateDB)) {
-				List<Offer> offerListDB = offerRepository.findAllByUserAddressCityState(stateDB.getId(),
-						pageable);
+				String cacheKey = "state:" + stateDB.getId() + ":" + page + ":" + size;
+				List<Long> cachedIds = offerSearchCache.get(cacheKey);
+				List<Offer> offerListDB;
+				if (isNotNull(cachedIds)) {
+					offerListDB = offerSearchIndexService.findAllInOrder(cachedIds);
+				} else {
+					long generation = offerSearchCache.getGeneration();
+					offerListDB = offerRepository.findAllByUserAddressCityState(stateDB.getId(), pageable);
+					offerSearchCache.put(cacheKey, getIds(offerListDB),
+							Collections.singleton(OfferSearchCache.getStateTag(stateDB.getId())), generation);
+				}
 				return new ResponseEntity<List<Offer>>(offerListDB, HttpStatus.OK);
 			}
 			return new ResponseEntity<String>("Estado não encontrado.", HttpStatus.NOT_FOUND);
@@ -253,13 +417,25 @@ public class OfferServiceImpl extends IsHelper implements OfferService {
 	}
 
 	@Override
-	public ResponseEntity<?> findAllByCity(Long id) {
-		Pageable pageable = new PageRequest(1, 5, new Sort(Sort.Direction.DESC, "insertionDate"));
+	public ResponseEntity<?> findAllByCity(Long id, Integer page, Integer size) {
+		Pageable pageable = getPageable(page, size);
+		if (isNull(pageable)) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
 		if (isNotNull(id)) {
 			City cityDB = cityRepository.findOne(id);
 			if (isNotNull(cityDB)) {
-				List<Offer> offerListDB = offerRepository.findAllByUserAddressCity(cityDB.getId(),
-						pageable);
+				String cacheKey = "city:" + cityDB.getId() + ":" + page + ":" + size;
+				List<Long> cachedIds = offerSearchCache.get(cacheKey);
+				List<Offer> offerListDB;
+				if (isNotNull(cachedIds)) {
+					offerListDB = offerSearchIndexService.findAllInOrder(cachedIds);
+				} else {
+					long generation = offerSearchCache.getGeneration();
+					offerListDB = offerRepository.findAllByUserAddressCity(cityDB.getId(), pageable);
+					offerSearchCache.put(cacheKey, getIds(offerListDB),
+							Collections.singleton(OfferSearchCache.getCityTag(cityDB.getId())), generation);
+				}
 				return new ResponseEntity<List<Offer>>(offerListDB, HttpStatus.OK);
 			}
 			return new ResponseEntity<String>("Cidade não encontrada.", HttpStatus.NOT_FOUND);
@@ -268,8 +444,11 @@ public class OfferServiceImpl extends IsHelper implements OfferService {
 	}
 
 	@Override
-	public ResponseEntity<?> findAllByCurrentUser() {
-		Pageable pageable = new PageRequest(1, 5, new Sort(Sort.Direction.DESC, "insertionDate"));
+	public ResponseEntity<?> findAllByCurrentUser(Integer page, Integer size) {
+		Pageable pageable = getPageable(page, size);
+		if (isNull(pageable)) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
 		Long currentUserID = getCurrentUserId();
 		if (isNotNull(currentUserID)) {
 			List<Offer> offerListDB = offerRepository.findAllByUser(currentUserID, pageable);
@@ -279,14 +458,16 @@ public class OfferServiceImpl extends IsHelper implements OfferService {
 	}
 
 	@Override
+	@Transactional
 	public ResponseEntity<?> update(Offer offer) {
 		if (isNotNull(offer)) {
 			Offer offerDB = offerRepository.findOne(offer.getId());
 			if (isNotNull(offerDB) && offerDB.getOfferStatus() == OfferStatus.Active.getValue()) {
-				if (offerDB.getUser().getId() == getCurrentUserId()) {
+				if (offerDB.getUser().getId().equals(getCurrentUserId())) {
 					offerDB.update(offer);
 					if (offerDB.isValid()) {
 						offerDB = offerRepository.save(offerDB);
+						offerSearchIndexService.indexOffer(offerDB);
 						return new ResponseEntity<Offer>(offerDB, HttpStatus.OK);
 					}
 					return new ResponseEntity<List<String>>(offerDB.getValidationErrors(), HttpStatus.BAD_REQUEST);
@@ -51,7 +51,7 @@ public class OfferCommentServiceImpl extends IsHelper implements OfferCommentSer
 		if (isNotNull(id)) {
 			OfferComment offerCommentDB = offerCommentRepository.findOne(id);
 			if (isNotNull(offerCommentDB)) {
-				if (offerCommentDB.getUser().getId() != getCurrentUserId()) {
+				if (!offerCommentDB.getUser().getId().equals(getCurrentUserId())) {
 					offerCommentRepository.delete(id);
 					return new ResponseEntity<String>("Comentário deletado.", HttpStatus.OK);
 				}
@@ -80,7 +80,7 @@ public class OfferCommentServiceImpl extends IsHelper implements OfferCommentSer
 		if (isNotNull(offerComment)) {
 			OfferComment offerCommentDB = offerCommentRepository.findOne(offerComment.getId());
 			if (isNotNull(offerCommentDB)) {
-				if (offerCommentDB.getUser().getId() == getCurrentUserId()) {
+				if (offerCommentDB.getUser().getId().equals(getCurrentUserId())) {
 					offerCommentDB.update(offerComment);
 					if (offerCommentDB.isValid()) {
 						offerCommentDB = offerCommentRepository.save(offerCommentDB);
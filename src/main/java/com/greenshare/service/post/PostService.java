@@ -12,7 +12,7 @@ import com.greenshare.service.BasicService;
  */
 public interface PostService extends BasicService<Post,Long>{
 
-	ResponseEntity<?> findAllByPage(Integer page, Integer size);
+	ResponseEntity<?> findAllByPage(Integer page, Integer size, Boolean embedThumbnails);
 
 	ResponseEntity<?> findAllByUser(Long id, Integer page, Integer size);
 
@@ -21,5 +21,24 @@ public interface PostService extends BasicService<Post,Long>{
 	ResponseEntity<?> findAllByState(Long id, Integer page, Integer size);
 	
 	ResponseEntity<?> findAllByCity(Long id, Integer page, Integer size);
+
+	/**
+	 * Feeds read by an opaque cursor, see {@link com.greenshare.helpers.FeedCursor}
+	 */
+	ResponseEntity<?> findFeed(String cursor, Integer size, Boolean embedThumbnails);
+
+	ResponseEntity<?> findFeedByUser(Long id, String cursor, Integer size);
+
+	ResponseEntity<?> findFeedBySpecies(Long id, String cursor, Integer size);
+
+	ResponseEntity<?> findFeedByState(Long id, String cursor, Integer size);
+
+	ResponseEntity<?> findFeedByCity(Long id, String cursor, Integer size);
+
+	/**
+	 * Full text search of the posts by text, see
+	 * {@link com.greenshare.repository.TextSearchRepository}
+	 */
+	ResponseEntity<?> search(String text, Integer page, Integer size);
 	
 }
@@ -1,11 +1,13 @@
 package com.greenshare.service.post;
 
 import java.io.IOException;
-import java.util.Base64;
 import java.util.List;
+import java.util.function.BiFunction;
 
-import org.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -15,13 +17,19 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import com.greenshare.entity.post.Post;
+import com.greenshare.entity.user.User;
 import com.greenshare.entity.vegetable.Species;
+import com.greenshare.enumeration.PhotoType;
 import com.greenshare.exception.DirectoryException;
+import com.greenshare.exception.InvalidImageException;
+import com.greenshare.exception.SaveOnDatabaseException;
 import com.greenshare.helpers.Base64MultpartFile;
-import com.greenshare.helpers.ImageHelper;
+import com.greenshare.helpers.FeedCursor;
+import com.greenshare.helpers.FeedPage;
 import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.PostRepository;
 import com.greenshare.repository.SpeciesRepository;
+import com.greenshare.repository.TextSearchRepository;
 import com.greenshare.service.image.ImageServiceImpl;
 
 /**
@@ -41,6 +49,11 @@ public class PostServiceImpl extends IsHelper implements PostService {
 	@Autowired
 	SpeciesRepository speciesRepository;
 
+	@Autowired
+	TextSearchRepository textSearchRepository;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PostServiceImpl.class);
+
 	private static final int MAX_PAGE_SIZE = 100;
 
 	@Override
@@ -57,23 +70,15 @@ public class PostServiceImpl extends IsHelper implements PostService {
 			if (newPost.isValid())	 {
 				newPost = postRepository.save(newPost);
 				if(isNotNull(post.getImage())) {
-					ImageHelper imageHelper;
+					Base64MultpartFile multipartFile = new Base64MultpartFile(post.getImage());
 					try {
-						imageHelper = new ImageHelper(newPost);
+						imageService.saveImage(newPost, multipartFile);
 					} catch (DirectoryException e) {
 						return new ResponseEntity<String>("Erro ao acessar diretório interno.", HttpStatus.INTERNAL_SERVER_ERROR);
-					}
-		    		byte[] decodedBytes = Base64.getDecoder().decode(post.getImage());
-		    		Base64MultpartFile multipartFile = new Base64MultpartFile(decodedBytes);
-		    		try {
-						if(imageHelper.save(multipartFile)) {
-							if(!newPost.getHasImage()){
-								newPost.setHasImage(true);
-								if(isNull(imageService.save(newPost))) {
-									return new ResponseEntity<String>("Erro ao salvar dados no banco.", HttpStatus.INTERNAL_SERVER_ERROR);
-								}
-							}
-						}
+					} catch (SaveOnDatabaseException e) {
+						return new ResponseEntity<String>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+					} catch (InvalidImageException e) {
+						return new ResponseEntity<String>(e.getMessage(), HttpStatus.NOT_ACCEPTABLE);
 					} catch (IOException e) {
 						return new ResponseEntity<String>("Erro ao salvar imagem no servidor.", HttpStatus.INTERNAL_SERVER_ERROR);
 					}
@@ -90,7 +95,7 @@ public class PostServiceImpl extends IsHelper implements PostService {
 		if (isNotNull(post)) {
 			Post postDB = postRepository.findOne(post.getId());
 			if (isNotNull(postDB)) {
-				if (postDB.getUser().getId() == getCurrentUserId()) {
+				if (postDB.getUser().getId().equals(getCurrentUserId())) {
 					postDB.update(post);
 					if (postDB.isValid()) {
 						postDB = postRepository.save(postDB);
@@ -109,8 +114,9 @@ public class PostServiceImpl extends IsHelper implements PostService {
 	public ResponseEntity<?> delete(Long id) {
 		if (isNotNull(id)) {
 			Post postDB = postRepository.findOne(id);
-			if (isNotNull(postDB) && postDB.getUser().getId() == getCurrentUser().getId()) {
+			if (isNotNull(postDB) && postDB.getUser().getId().equals(getCurrentUserId())) {
 				postRepository.delete(id);
+				imageService.deleteImage(PhotoType.POST, id);
 				return new ResponseEntity<String>("Postagem deletada.", HttpStatus.OK);
 			}
 			return new ResponseEntity<String>("Postagem não pertence ao usuário logado.", HttpStatus.UNAUTHORIZED);
@@ -131,35 +137,93 @@ public class PostServiceImpl extends IsHelper implements PostService {
 	}
 
 	@Override
-	public ResponseEntity<?> findAllByPage(Integer page, Integer size) {
+	public ResponseEntity<?> findAllByPage(Integer page, Integer size, Boolean embedThumbnails) {
 		if (isValidPage(page, size)) {
 			Pageable pageable = new PageRequest(page, size, new Sort(Sort.Direction.DESC, "insertionDate"));
 			Page<Post> postListDB = postRepository.findAll(pageable);
 			List<Post> postList = postListDB.getContent();
-			postList.stream().forEach(post -> {
-				if(post.getHasImage()) {
-					try {
-						ImageHelper ih = new ImageHelper(post);
-						post.setImage(ih.getImage());
-					} catch (DirectoryException e) {
-					} catch (IOException e) {					
-					} catch (JSONException e) {}
-				}
-				if(post.getUser().getHasImage()) {
-					try {
-						ImageHelper ih = new ImageHelper(post.getUser());
-						post.getUser().setImage(ih.getImage());
-					} catch (DirectoryException e) {
-					} catch (IOException e) {					
-					} catch (JSONException e) {}
-				}
-				
-			});
+			if (Boolean.TRUE.equals(embedThumbnails)) {
+				embedThumbnails(postList);
+			}
 			return new ResponseEntity<List<Post>>(postList, HttpStatus.OK);
 		}
 		return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
 	}
 
+	@Override
+	public ResponseEntity<?> findFeed(String cursor, Integer size, Boolean embedThumbnails) {
+		return findFeed(cursor, size, embedThumbnails,
+				(feedCursor, pageable) -> postRepository.findFeed(feedCursor.getInsertionDate(), feedCursor.getId(), pageable));
+	}
+
+	@Override
+	public ResponseEntity<?> findFeedByUser(Long id, String cursor, Integer size) {
+		if (isNotNull(id)) {
+			return findFeed(cursor, size, false, (feedCursor, pageable) -> postRepository.findFeedByUser(id,
+					feedCursor.getInsertionDate(), feedCursor.getId(), pageable));
+		}
+		return new ResponseEntity<String>("ID não pode ser nulo.", HttpStatus.BAD_REQUEST);
+	}
+
+	@Override
+	public ResponseEntity<?> findFeedBySpecies(Long id, String cursor, Integer size) {
+		if (isNotNull(id)) {
+			return findFeed(cursor, size, false, (feedCursor, pageable) -> postRepository.findFeedBySpecies(id,
+					feedCursor.getInsertionDate(), feedCursor.getId(), pageable));
+		}
+		return new ResponseEntity<String>("ID não pode ser nulo.", HttpStatus.BAD_REQUEST);
+	}
+
+	@Override
+	public ResponseEntity<?> findFeedByState(Long id, String cursor, Integer size) {
+		if (isNotNull(id)) {
+			return findFeed(cursor, size, false, (feedCursor, pageable) -> postRepository.findFeedByState(id,
+					feedCursor.getInsertionDate(), feedCursor.getId(), pageable));
+		}
+		return new ResponseEntity<String>("ID não pode ser nulo.", HttpStatus.BAD_REQUEST);
+	}
+
+	@Override
+	public ResponseEntity<?> findFeedByCity(Long id, String cursor, Integer size) {
+		if (isNotNull(id)) {
+			return findFeed(cursor, size, false, (feedCursor, pageable) -> postRepository.findFeedByCity(id,
+					feedCursor.getInsertionDate(), feedCursor.getId(), pageable));
+		}
+		return new ResponseEntity<String>("ID não pode ser nulo.", HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * Reads one row more than the size to know if there is a next page, without
+	 * a count query
+	 */
+	private ResponseEntity<?> findFeed(String cursor, Integer size, Boolean embedThumbnails,
+			BiFunction<FeedCursor, Pageable, List<Post>> query) {
+		if (isNull(size) || size < 1 || size > MAX_PAGE_SIZE) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
+		FeedCursor feedCursor = FeedCursor.decode(cursor);
+		if (isNull(feedCursor)) {
+			return new ResponseEntity<String>("Cursor inválido.", HttpStatus.BAD_REQUEST);
+		}
+		FeedPage<Post> feedPage = FeedPage.of(query.apply(feedCursor, new PageRequest(0, size + 1)), size);
+		if (Boolean.TRUE.equals(embedThumbnails)) {
+			embedThumbnails(feedPage.getContent());
+		}
+		return new ResponseEntity<FeedPage<Post>>(feedPage, HttpStatus.OK);
+	}
+
+	private void embedThumbnails(List<Post> postList) {
+		postList.stream().forEach(post -> {
+			if (post.getHasImage()) {
+				post.setImage(imageService.getThumbnail(post));
+			}
+			User user = post.getUser();
+			if (user.getHasImage() && isNull(user.getImage())) {
+				user.setImage(imageService.getThumbnail(user));
+			}
+		});
+	}
+
 	@Override
 	public ResponseEntity<?> findAllByUser(Long id, Integer page, Integer size) {
 		if (isValidPage(page, size)) {
@@ -186,6 +250,25 @@ public class PostServiceImpl extends IsHelper implements PostService {
 		return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
 	}
 
+	@Override
+	public ResponseEntity<?> search(String text, Integer page, Integer size) {
+		String prefixQuery = TextSearchRepository.toPrefixQuery(text);
+		if (isNull(prefixQuery)) {
+			return new ResponseEntity<String>("Texto de pesquisa inválido.", HttpStatus.BAD_REQUEST);
+		}
+		if (isNull(page) || isNull(size) || page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
+		try {
+			List<Long> ids = textSearchRepository.searchPostIds(prefixQuery, page, size);
+			List<Post> retorno = TextSearchRepository.inOrder(ids, postRepository.findAll(ids));
+			return new ResponseEntity<List<Post>>(retorno, HttpStatus.OK);
+		} catch (DataAccessException e) {
+			LOGGER.warn("Full text search of posts failed", e);
+			return new ResponseEntity<String>("Pesquisa textual indisponível.", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
 	private boolean isValidPage(Integer page, Integer size) {
 		if (isNotNull(page) && isNotNull(size) && is(size).smallerOrEqual(MAX_PAGE_SIZE)) {
 			return true;
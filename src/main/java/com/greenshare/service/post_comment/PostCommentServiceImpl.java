@@ -76,7 +76,7 @@ public class PostCommentServiceImpl extends IsHelper implements PostCommentServi
 		if (isNotNull(postComment)) {
 			PostComment postCommentDB = postCommentRepository.findOne(postComment.getId());
 			if (isNotNull(postCommentDB)) {
-				if (postCommentDB.getUser().getId() == getCurrentUserId()) {
+				if (postCommentDB.getUser().getId().equals(getCurrentUserId())) {
 					postCommentDB.update(postComment);
 					if (postCommentDB.isValid()) {
 						postCommentDB = postCommentRepository.save(postCommentDB);
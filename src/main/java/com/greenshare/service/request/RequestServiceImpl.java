@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.greenshare.entity.offer.Offer;
 import com.greenshare.entity.offer.Request;
@@ -13,6 +14,7 @@ import com.greenshare.enumeration.OfferStatus;
 import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.OfferRepository;
 import com.greenshare.repository.RequestRepository;
+import com.greenshare.service.offer.OfferSearchIndexService;
 
 /**
  * Implementation of {@link com.greenshare.service.request.RequestService}
@@ -29,6 +31,9 @@ public class RequestServiceImpl extends IsHelper implements RequestService {
 	@Autowired
 	OfferRepository offerRepository;
 
+	@Autowired
+	OfferSearchIndexService offerSearchIndexService;
+
 	@Override
 	public ResponseEntity<?> save(Request request) {
 		if (isNotNull(request)) {
@@ -54,7 +59,7 @@ public class RequestServiceImpl extends IsHelper implements RequestService {
 	public ResponseEntity<?> delete(Long id) {
 		if (isNotNull(id)) {
 			Request requestDB = requestRepository.findOne(id);
-			if (isNotNull(requestDB) && requestDB.getUser().getId() == getCurrentUser().getId()) {
+			if (isNotNull(requestDB) && requestDB.getUser().getId().equals(getCurrentUserId())) {
 				requestRepository.delete(id);
 				return new ResponseEntity<String>("Requisição deletada.", HttpStatus.OK);
 			}
@@ -79,7 +84,7 @@ public class RequestServiceImpl extends IsHelper implements RequestService {
 	public ResponseEntity<?> findAllByOffer(Long id) {
 		if(isNotNull(id)) {
 			Offer offerDB = offerRepository.findOne(id);
-			if(offerDB.getUser().getId() == getCurrentUserId()) {
+			if(offerDB.getUser().getId().equals(getCurrentUserId())) {
 				Iterable<Request> requestListDB = requestRepository.findAllByOffer(id);
 				return new ResponseEntity<Iterable<Request>>(requestListDB, HttpStatus.OK);
 			}
@@ -95,19 +100,21 @@ public class RequestServiceImpl extends IsHelper implements RequestService {
 	}
 	
 	@Override
+	@Transactional
 	public ResponseEntity<?> acceptRequest(Long id) {
 		if (isNotNull(id)) {
 			Request requestDB = requestRepository.findOne(id);
 			if (isNotNull(requestDB) && !requestDB.getWasAccepted()) {
 				Offer offerDB = offerRepository.findOne(requestDB.getOffer().getId());
-				if(offerDB.getUser().getId() == getCurrentUserId()) {
+				if(offerDB.getUser().getId().equals(getCurrentUserId())) {
 					if(offerDB.getRemainingAmount() >= requestDB.getAmount()) {
 						offerDB.setRemainingAmount(offerDB.getRemainingAmount() - requestDB.getAmount());
 						if(offerDB.getRemainingAmount() == 0) {
 							offerDB.setOfferStatus(OfferStatus.Closed);
 						}
 						requestDB.setWasAccepted(true);
-						offerRepository.save(offerDB);
+						offerDB = offerRepository.save(offerDB);
+						offerSearchIndexService.indexOffer(offerDB);
 						requestRepository.save(requestDB);
 						return new ResponseEntity<Request>(requestDB, HttpStatus.OK);
 					}
@@ -125,7 +132,7 @@ public class RequestServiceImpl extends IsHelper implements RequestService {
 		if (isNotNull(request)) {
 			Request requestDB = requestRepository.findOne(request.getId());
 			if (isNotNull(requestDB)) {
-				if (requestDB.getUser().getId() == getCurrentUserId()) {
+				if (requestDB.getUser().getId().equals(getCurrentUserId())) {
 					if(!requestDB.getWasAccepted()) {
 						requestDB.update(request);
 						if (requestDB.isValid()) {
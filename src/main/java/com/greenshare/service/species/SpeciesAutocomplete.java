@@ -0,0 +1,289 @@
+package com.greenshare.service.species;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.greenshare.entity.vegetable.Species;
+import com.greenshare.entity.vegetable.SpeciesSuggestion;
+import com.greenshare.helpers.IsHelper;
+import com.greenshare.repository.SpeciesRepository;
+
+/**
+ * In-memory prefix trie over the common and scientific names of the enabled
+ * species, for the typeahead of the species picker. Names are folded to
+ * lower case without accents and every word of a name is a key, so
+ * "maracuja" and "doce" both complete "Maracujá doce". Nodes are immutable, a
+ * write copies only the path of its keys and reads never lock.
+ *
+ * @author joao.silva
+ */
+@Service
+public class SpeciesAutocomplete extends IsHelper {
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	@Autowired
+	SpeciesRepository speciesRepository;
+
+	private final Map<Long, SpeciesSuggestion> suggestions = new ConcurrentHashMap<Long, SpeciesSuggestion>();
+
+	private volatile Node root;
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Transactional(readOnly = true)
+	public synchronized void load() {
+		this.suggestions.clear();
+		Node newRoot = Node.EMPTY;
+		for (Species species : speciesRepository.findAll()) {
+			if (Boolean.TRUE.equals(species.getEnabled())) {
+				SpeciesSuggestion suggestion = new SpeciesSuggestion(species);
+				this.suggestions.put(species.getId(), suggestion);
+				for (String key : keys(suggestion)) {
+					newRoot = newRoot.insert(key, 0, species.getId());
+				}
+			}
+		}
+		this.root = newRoot;
+	}
+
+	/**
+	 * Adds, replaces or removes the species, disabled species are removed. Runs
+	 * once the current transaction commits, so a rollback leaves the trie as it
+	 * was
+	 */
+	public void put(Species species) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			putNow(species);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+			@Override
+			public void afterCommit() {
+				putNow(species);
+			}
+		});
+	}
+
+	private synchronized void putNow(Species species) {
+		Node newRoot = this.root;
+		if (isNull(newRoot) || isNull(species.getId())) {
+			return;
+		}
+		SpeciesSuggestion previous = this.suggestions.remove(species.getId());
+		if (isNotNull(previous)) {
+			for (String key : keys(previous)) {
+				newRoot = newRoot.remove(key, 0, species.getId());
+			}
+		}
+		if (Boolean.TRUE.equals(species.getEnabled())) {
+			SpeciesSuggestion suggestion = new SpeciesSuggestion(species);
+			for (String key : keys(suggestion)) {
+				newRoot = newRoot.insert(key, 0, species.getId());
+			}
+			this.suggestions.put(species.getId(), suggestion);
+		}
+		this.root = newRoot;
+	}
+
+	/**
+	 * Updates hasImage of the species whose images were saved without going
+	 * through {@link #put(Species)}
+	 */
+	public void markWithImage(Collection<Long> ids) {
+		for (Long id : ids) {
+			this.suggestions.computeIfPresent(id, (key, suggestion) -> suggestion.withImage());
+		}
+	}
+
+	/**
+	 * @return up to limit species with a name word starting with the text,
+	 *         shorter names first, or null if the trie is not loaded
+	 */
+	public List<SpeciesSuggestion> complete(String text, int limit) {
+		Node node = this.root;
+		if (isNull(node)) {
+			return null;
+		}
+		String prefix = fold(text);
+		List<SpeciesSuggestion> result = new ArrayList<SpeciesSuggestion>(limit);
+		if (prefix.isEmpty()) {
+			return result;
+		}
+		for (int i = 0; i < prefix.length() && isNotNull(node); i++) {
+			node = node.child(prefix.charAt(i));
+		}
+		if (isNull(node)) {
+			return result;
+		}
+		/* Breadth first, so the keys closest to the prefix come first */
+		Set<Long> ids = new LinkedHashSet<Long>();
+		Deque<Node> queue = new ArrayDeque<Node>();
+		queue.add(node);
+		while (!queue.isEmpty() && ids.size() < limit) {
+			Node current = queue.poll();
+			for (int i = 0; i < current.ids.length && ids.size() < limit; i++) {
+				ids.add(current.ids[i]);
+			}
+			queue.addAll(Arrays.asList(current.children));
+		}
+		for (Long id : ids) {
+			SpeciesSuggestion suggestion = this.suggestions.get(id);
+			if (isNotNull(suggestion)) {
+				result.add(suggestion);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the text in lower case, without accents and with the words
+	 *         separated by one space
+	 */
+	static String fold(String text) {
+		if (text == null) {
+			return "";
+		}
+		String withoutMarks = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		return SEPARATORS.matcher(withoutMarks.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+	}
+
+	/**
+	 * @return the folded names and each of their suffixes starting on a word
+	 */
+	private static Set<String> keys(SpeciesSuggestion suggestion) {
+		Set<String> keys = new LinkedHashSet<String>();
+		for (String name : new String[] { suggestion.getCommonName(), suggestion.getScientificName() }) {
+			String folded = fold(name);
+			for (int start = 0; start >= 0 && start < folded.length(); start = nextWord(folded, start)) {
+				keys.add(folded.substring(start));
+			}
+		}
+		return keys;
+	}
+
+	private static int nextWord(String folded, int start) {
+		int space = folded.indexOf(' ', start);
+		return space < 0 ? -1 : space + 1;
+	}
+
+	/**
+	 * Immutable node of the trie, children sorted by their character
+	 */
+	private static final class Node {
+
+		private static final Node EMPTY = new Node(new char[0], new Node[0], new long[0]);
+
+		private final char[] labels;
+
+		private final Node[] children;
+
+		/* Species whose key ends on this node, sorted */
+		private final long[] ids;
+
+		private Node(char[] labels, Node[] children, long[] ids) {
+			this.labels = labels;
+			this.children = children;
+			this.ids = ids;
+		}
+
+		private Node child(char label) {
+			int index = Arrays.binarySearch(this.labels, label);
+			return index < 0 ? null : this.children[index];
+		}
+
+		private boolean isEmpty() {
+			return this.ids.length == 0 && this.children.length == 0;
+		}
+
+		private Node insert(String key, int depth, long id) {
+			if (depth == key.length()) {
+				int index = Arrays.binarySearch(this.ids, id);
+				if (index >= 0) {
+					return this;
+				}
+				index = -index - 1;
+				long[] newIds = new long[this.ids.length + 1];
+				System.arraycopy(this.ids, 0, newIds, 0, index);
+				newIds[index] = id;
+				System.arraycopy(this.ids, index, newIds, index + 1, this.ids.length - index);
+				return new Node(this.labels, this.children, newIds);
+			}
+			char label = key.charAt(depth);
+			Node child = child(label);
+			return withChild(label, (child == null ? EMPTY : child).insert(key, depth + 1, id));
+		}
+
+		private Node remove(String key, int depth, long id) {
+			if (depth == key.length()) {
+				int index = Arrays.binarySearch(this.ids, id);
+				if (index < 0) {
+					return this;
+				}
+				long[] newIds = new long[this.ids.length - 1];
+				System.arraycopy(this.ids, 0, newIds, 0, index);
+				System.arraycopy(this.ids, index + 1, newIds, index, newIds.length - index);
+				return new Node(this.labels, this.children, newIds);
+			}
+			char label = key.charAt(depth);
+			Node child = child(label);
+			return child == null ? this : withChild(label, child.remove(key, depth + 1, id));
+		}
+
+		/**
+		 * @return a copy with the child of the label replaced, empty children
+		 *         are dropped
+		 */
+		private Node withChild(char label, Node child) {
+			int index = Arrays.binarySearch(this.labels, label);
+			if (index >= 0) {
+				if (!child.isEmpty()) {
+					Node[] newChildren = this.children.clone();
+					newChildren[index] = child;
+					return new Node(this.labels, newChildren, this.ids);
+				}
+				char[] newLabels = new char[this.labels.length - 1];
+				Node[] newChildren = new Node[this.children.length - 1];
+				System.arraycopy(this.labels, 0, newLabels, 0, index);
+				System.arraycopy(this.labels, index + 1, newLabels, index, newLabels.length - index);
+				System.arraycopy(this.children, 0, newChildren, 0, index);
+				System.arraycopy(this.children, index + 1, newChildren, index, newChildren.length - index);
+				return new Node(newLabels, newChildren, this.ids);
+			}
+			if (child.isEmpty()) {
+				return this;
+			}
+			index = -index - 1;
+			char[] newLabels = new char[this.labels.length + 1];
+			Node[] newChildren = new Node[this.children.length + 1];
+			System.arraycopy(this.labels, 0, newLabels, 0, index);
+			newLabels[index] = label;
+			System.arraycopy(this.labels, index, newLabels, index + 1, this.labels.length - index);
+			System.arraycopy(this.children, 0, newChildren, 0, index);
+			newChildren[index] = child;
+			System.arraycopy(this.children, index, newChildren, index + 1, this.children.length - index);
+			return new Node(newLabels, newChildren, this.ids);
+		}
+	}
+}
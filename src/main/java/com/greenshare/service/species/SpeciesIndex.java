@@ -0,0 +1,394 @@
+package com.greenshare.service.species;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.greenshare.entity.interfaces.BasicEntity;
+import com.greenshare.entity.offer.OfferFacets;
+import com.greenshare.entity.vegetable.SearchClass;
+import com.greenshare.entity.vegetable.Species;
+import com.greenshare.helpers.IsHelper;
+import com.greenshare.repository.SpeciesRepository;
+
+/**
+ * In-memory bitmap index of the filtered attributes of the species catalog.
+ * Each species has a position and each attribute value a {@link BitSet} of
+ * the positions having it, so the species part of a {@link SearchClass}
+ * resolves to the matching ids with a few bitwise operations. The index is
+ * immutable and replaced on each write, reads never lock.
+ *
+ * @author joao.silva
+ */
+@Service
+public class SpeciesIndex extends IsHelper {
+
+	@Value("${greenshare.search.species-index.max-ids:5000}")
+	private int maxIds;
+
+	@Autowired
+	SpeciesRepository speciesRepository;
+
+	private volatile Snapshot snapshot;
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Transactional(readOnly = true)
+	public void load() {
+		Snapshot newSnapshot = new Snapshot();
+		for (Species species : speciesRepository.findAll()) {
+			newSnapshot.put(species);
+		}
+		this.snapshot = newSnapshot;
+	}
+
+	/**
+	 * Adds or replaces the species on the index once the current transaction
+	 * commits, so a rollback leaves the index as it was
+	 */
+	public void put(Species species) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			putNow(species);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+			@Override
+			public void afterCommit() {
+				putNow(species);
+			}
+		});
+	}
+
+	private synchronized void putNow(Species species) {
+		Snapshot current = this.snapshot;
+		if (isNull(current) || isNull(species.getId())) {
+			return;
+		}
+		Snapshot newSnapshot = new Snapshot(current);
+		newSnapshot.put(species);
+		this.snapshot = newSnapshot;
+	}
+
+	/**
+	 * Resolves the species filters of the search
+	 *
+	 * @return the ids of the matching species, or null when the search has no
+	 *         species filter, the index is not loaded or too many species match
+	 *         to send as a list
+	 */
+	public List<Long> resolve(SearchClass searchClass) {
+		Snapshot current = this.snapshot;
+		if (isNull(current) || !hasSpeciesFilter(searchClass)) {
+			return null;
+		}
+		BitSet matches = current.match(searchClass);
+		if (matches.cardinality() > this.maxIds) {
+			return null;
+		}
+		List<Long> ids = new ArrayList<Long>(matches.cardinality());
+		for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+			ids.add(current.ids.get(i));
+		}
+		return ids;
+	}
+
+	/**
+	 * Counts the offers of each filter value from the number of active offers of
+	 * each species, without reading the offers
+	 *
+	 * @return the facets or null if the index is not loaded
+	 */
+	public OfferFacets countFacets(SearchClass searchClass, Map<Long, Long> offersBySpecies) {
+		Snapshot current = this.snapshot;
+		if (isNull(current)) {
+			return null;
+		}
+		return current.countFacets(searchClass, offersBySpecies);
+	}
+
+	/**
+	 * @return true if the search filters by any attribute of the species
+	 */
+	public static boolean hasSpeciesFilter(SearchClass searchClass) {
+		return (searchClass.species != null && searchClass.species.getId() != null)
+				|| (searchClass.growth != null && !searchClass.growth.isEmpty())
+				|| (searchClass.soil != null && !searchClass.soil.isEmpty())
+				|| (searchClass.climate != null && !searchClass.climate.isEmpty()) || searchClass.isMedicinal != null
+				|| searchClass.attractBirds != null || searchClass.attractBees != null
+				|| searchClass.isOrnamental != null || Boolean.FALSE.equals(searchClass.hasFlower)
+				|| Boolean.FALSE.equals(searchClass.hasFruit)
+				|| (searchClass.rootDepth != null && searchClass.rootDepth > 0)
+				|| (searchClass.averageHeight != null && searchClass.averageHeight > 0);
+	}
+
+	/**
+	 * Filter groups counted on the facets
+	 */
+	private enum Facet {
+		GROWTH, SOIL, CLIMATE, MEDICINAL, ATTRACT_BIRDS, ATTRACT_BEES, ORNAMENTAL, FLOWER, FRUIT;
+	}
+
+	/**
+	 * Index of one version of the catalog
+	 */
+	private static class Snapshot {
+
+		/* Species id of each position */
+		private final List<Long> ids;
+
+		private final Map<Long, Integer> positions;
+
+		private final BitSet all;
+
+		private final BitSet medicinal;
+
+		private final BitSet attractBirds;
+
+		private final BitSet attractBees;
+
+		private final BitSet ornamental;
+
+		private final BitSet hasFlower;
+
+		private final BitSet hasFruit;
+
+		private final Map<Long, BitSet> growths;
+
+		private final Map<Long, BitSet> soils;
+
+		private final Map<Long, BitSet> climates;
+
+		/* -1 for species without the value */
+		private int[] rootDepths;
+
+		private int[] averageHeights;
+
+		Snapshot() {
+			this.ids = new ArrayList<Long>();
+			this.positions = new HashMap<Long, Integer>();
+			this.all = new BitSet();
+			this.medicinal = new BitSet();
+			this.attractBirds = new BitSet();
+			this.attractBees = new BitSet();
+			this.ornamental = new BitSet();
+			this.hasFlower = new BitSet();
+			this.hasFruit = new BitSet();
+			this.growths = new HashMap<Long, BitSet>();
+			this.soils = new HashMap<Long, BitSet>();
+			this.climates = new HashMap<Long, BitSet>();
+			this.rootDepths = new int[16];
+			this.averageHeights = new int[16];
+		}
+
+		Snapshot(Snapshot snapshot) {
+			this.ids = new ArrayList<Long>(snapshot.ids);
+			this.positions = new HashMap<Long, Integer>(snapshot.positions);
+			this.all = (BitSet) snapshot.all.clone();
+			this.medicinal = (BitSet) snapshot.medicinal.clone();
+			this.attractBirds = (BitSet) snapshot.attractBirds.clone();
+			this.attractBees = (BitSet) snapshot.attractBees.clone();
+			this.ornamental = (BitSet) snapshot.ornamental.clone();
+			this.hasFlower = (BitSet) snapshot.hasFlower.clone();
+			this.hasFruit = (BitSet) snapshot.hasFruit.clone();
+			this.growths = copy(snapshot.growths);
+			this.soils = copy(snapshot.soils);
+			this.climates = copy(snapshot.climates);
+			this.rootDepths = snapshot.rootDepths.clone();
+			this.averageHeights = snapshot.averageHeights.clone();
+		}
+
+		void put(Species species) {
+			Integer position = this.positions.get(species.getId());
+			if (position == null) {
+				position = this.ids.size();
+				this.ids.add(species.getId());
+				this.positions.put(species.getId(), position);
+				if (position >= this.rootDepths.length) {
+					this.rootDepths = Arrays.copyOf(this.rootDepths, position * 2);
+					this.averageHeights = Arrays.copyOf(this.averageHeights, position * 2);
+				}
+			} else {
+				clear(position);
+			}
+			this.all.set(position);
+			this.medicinal.set(position, Boolean.TRUE.equals(species.getIsMedicinal()));
+			this.attractBirds.set(position, Boolean.TRUE.equals(species.getAttractBirds()));
+			this.attractBees.set(position, Boolean.TRUE.equals(species.getAttractBees()));
+			this.ornamental.set(position, Boolean.TRUE.equals(species.getIsOrnamental()));
+			this.hasFlower.set(position, species.getFlower() != null);
+			this.hasFruit.set(position, species.getFruit() != null);
+			if (species.getGrowth() != null) {
+				set(this.growths, species.getGrowth().getId(), position);
+			}
+			if (species.getSoils() != null) {
+				for (BasicEntity<?> soil : species.getSoils()) {
+					set(this.soils, soil.getId(), position);
+				}
+			}
+			if (species.getClimates() != null) {
+				for (BasicEntity<?> climate : species.getClimates()) {
+					set(this.climates, climate.getId(), position);
+				}
+			}
+			this.rootDepths[position] = species.getRootDepth() == null ? -1 : species.getRootDepth();
+			this.averageHeights[position] = species.getAverageHeight() == null ? -1 : species.getAverageHeight();
+		}
+
+		BitSet match(SearchClass searchClass) {
+			return match(searchClass, null);
+		}
+
+		/**
+		 * @param skip
+		 *            filter group left out of the match, null for none
+		 */
+		BitSet match(SearchClass searchClass, Facet skip) {
+			BitSet matches = (BitSet) this.all.clone();
+			if (searchClass.species != null && searchClass.species.getId() != null) {
+				Integer position = this.positions.get(searchClass.species.getId());
+				BitSet species = new BitSet();
+				if (position != null) {
+					species.set(position);
+				}
+				matches.and(species);
+			}
+			if (skip != Facet.GROWTH && searchClass.growth != null && !searchClass.growth.isEmpty()) {
+				matches.and(any(this.growths, searchClass.growth));
+			}
+			if (skip != Facet.SOIL && searchClass.soil != null && !searchClass.soil.isEmpty()) {
+				matches.and(any(this.soils, searchClass.soil));
+			}
+			if (skip != Facet.CLIMATE && searchClass.climate != null && !searchClass.climate.isEmpty()) {
+				matches.and(any(this.climates, searchClass.climate));
+			}
+			filter(matches, this.medicinal, skip == Facet.MEDICINAL ? null : searchClass.isMedicinal);
+			filter(matches, this.attractBirds, skip == Facet.ATTRACT_BIRDS ? null : searchClass.attractBirds);
+			filter(matches, this.attractBees, skip == Facet.ATTRACT_BEES ? null : searchClass.attractBees);
+			filter(matches, this.ornamental, skip == Facet.ORNAMENTAL ? null : searchClass.isOrnamental);
+			if (skip != Facet.FLOWER && Boolean.FALSE.equals(searchClass.hasFlower)) {
+				matches.andNot(this.hasFlower);
+			}
+			if (skip != Facet.FRUIT && Boolean.FALSE.equals(searchClass.hasFruit)) {
+				matches.andNot(this.hasFruit);
+			}
+			if (searchClass.rootDepth != null && searchClass.rootDepth > 0) {
+				filterMaximum(matches, this.rootDepths, searchClass.rootDepth);
+			}
+			if (searchClass.averageHeight != null && searchClass.averageHeight > 0) {
+				filterMaximum(matches, this.averageHeights, searchClass.averageHeight);
+			}
+			return matches;
+		}
+
+		OfferFacets countFacets(SearchClass searchClass, Map<Long, Long> offersBySpecies) {
+			long[] offers = new long[this.ids.size()];
+			for (int i = 0; i < offers.length; i++) {
+				Long count = offersBySpecies.get(this.ids.get(i));
+				offers[i] = count == null ? 0 : count;
+			}
+			OfferFacets offerFacets = new OfferFacets();
+			offerFacets.setTotal(sum(offers, match(searchClass), null));
+			countAll(offers, match(searchClass, Facet.GROWTH), this.growths, offerFacets.getGrowth());
+			countAll(offers, match(searchClass, Facet.SOIL), this.soils, offerFacets.getSoil());
+			countAll(offers, match(searchClass, Facet.CLIMATE), this.climates, offerFacets.getClimate());
+			offerFacets.setIsMedicinal(sum(offers, match(searchClass, Facet.MEDICINAL), this.medicinal));
+			offerFacets.setAttractBirds(sum(offers, match(searchClass, Facet.ATTRACT_BIRDS), this.attractBirds));
+			offerFacets.setAttractBees(sum(offers, match(searchClass, Facet.ATTRACT_BEES), this.attractBees));
+			offerFacets.setIsOrnamental(sum(offers, match(searchClass, Facet.ORNAMENTAL), this.ornamental));
+			BitSet withoutFlower = match(searchClass, Facet.FLOWER);
+			withoutFlower.andNot(this.hasFlower);
+			offerFacets.setWithoutFlower(sum(offers, withoutFlower, null));
+			BitSet withoutFruit = match(searchClass, Facet.FRUIT);
+			withoutFruit.andNot(this.hasFruit);
+			offerFacets.setWithoutFruit(sum(offers, withoutFruit, null));
+			return offerFacets;
+		}
+
+		private static void countAll(long[] offers, BitSet matches, Map<Long, BitSet> index, Map<Long, Long> counts) {
+			index.forEach((id, positions) -> {
+				long count = sum(offers, matches, positions);
+				if (count > 0) {
+					counts.put(id, count);
+				}
+			});
+		}
+
+		/**
+		 * @return the offers of the matching species that are on the positions,
+		 *         or of all the matching species when positions is null
+		 */
+		private static long sum(long[] offers, BitSet matches, BitSet positions) {
+			BitSet selected = matches;
+			if (positions != null) {
+				selected = (BitSet) matches.clone();
+				selected.and(positions);
+			}
+			long sum = 0;
+			for (int i = selected.nextSetBit(0); i >= 0 && i < offers.length; i = selected.nextSetBit(i + 1)) {
+				sum += offers[i];
+			}
+			return sum;
+		}
+
+		private void clear(int position) {
+			this.medicinal.clear(position);
+			this.attractBirds.clear(position);
+			this.attractBees.clear(position);
+			this.ornamental.clear(position);
+			this.hasFlower.clear(position);
+			this.hasFruit.clear(position);
+			this.growths.values().forEach(b -> b.clear(position));
+			this.soils.values().forEach(b -> b.clear(position));
+			this.climates.values().forEach(b -> b.clear(position));
+		}
+
+		private static void filter(BitSet matches, BitSet attribute, Boolean value) {
+			if (Boolean.TRUE.equals(value)) {
+				matches.and(attribute);
+			} else if (Boolean.FALSE.equals(value)) {
+				matches.andNot(attribute);
+			}
+		}
+
+		private static void filterMaximum(BitSet matches, int[] values, int maximum) {
+			for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+				if (values[i] < 0 || values[i] > maximum) {
+					matches.clear(i);
+				}
+			}
+		}
+
+		private static BitSet any(Map<Long, BitSet> index, List<? extends BasicEntity<?>> items) {
+			BitSet any = new BitSet();
+			for (BasicEntity<?> item : items) {
+				BitSet positions = index.get(item.getId());
+				if (positions != null) {
+					any.or(positions);
+				}
+			}
+			return any;
+		}
+
+		private static void set(Map<Long, BitSet> index, Long id, int position) {
+			index.computeIfAbsent(id, k -> new BitSet()).set(position);
+		}
+
+		private static Map<Long, BitSet> copy(Map<Long, BitSet> index) {
+			Map<Long, BitSet> copy = new HashMap<Long, BitSet>();
+			index.forEach((id, positions) -> copy.put(id, (BitSet) positions.clone()));
+			return copy;
+		}
+	}
+}
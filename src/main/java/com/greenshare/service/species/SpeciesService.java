@@ -27,4 +27,16 @@ public interface SpeciesService {
 
 	ResponseEntity<?> findAll();
 
+	/**
+	 * Full text search of the enabled species by names, description and
+	 * cultivation guide, see {@link com.greenshare.repository.TextSearchRepository}
+	 */
+	ResponseEntity<?> search(String text, Integer page, Integer size);
+
+	/**
+	 * Typeahead of the enabled species by the start of a word of their names,
+	 * see {@link com.greenshare.service.species.SpeciesAutocomplete}
+	 */
+	ResponseEntity<?> autocomplete(String text, Integer limit);
+
 }
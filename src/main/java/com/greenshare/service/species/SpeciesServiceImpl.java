@@ -3,10 +3,14 @@ package com.greenshare.service.species;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.greenshare.entity.Month;
 import com.greenshare.entity.vegetable.Climate;
@@ -15,12 +19,15 @@ import com.greenshare.entity.vegetable.Fruit;
 import com.greenshare.entity.vegetable.Growth;
 import com.greenshare.entity.vegetable.Soil;
 import com.greenshare.entity.vegetable.Species;
+import com.greenshare.entity.vegetable.SpeciesSuggestion;
 import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.ClimateRepository;
 import com.greenshare.repository.GrowthRepository;
 import com.greenshare.repository.MonthRepository;
 import com.greenshare.repository.SoilRepository;
 import com.greenshare.repository.SpeciesRepository;
+import com.greenshare.repository.TextSearchRepository;
+import com.greenshare.service.offer.OfferSearchIndexService;
 
 /**
  * Implementation of Species Service interface
@@ -30,6 +37,12 @@ import com.greenshare.repository.SpeciesRepository;
 @Service
 public class SpeciesServiceImpl extends IsHelper implements SpeciesService{
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(SpeciesServiceImpl.class);
+
+	private static final int MAX_PAGE_SIZE = 100;
+
+	private static final int MAX_SUGGESTIONS = 50;
+
 	@Autowired
     SpeciesRepository speciesRepository;
 
@@ -45,6 +58,18 @@ public class SpeciesServiceImpl extends IsHelper implements SpeciesService{
 	@Autowired
 	ClimateRepository climateRepository;
 
+	@Autowired
+	OfferSearchIndexService offerSearchIndexService;
+
+	@Autowired
+	SpeciesIndex speciesIndex;
+
+	@Autowired
+	TextSearchRepository textSearchRepository;
+
+	@Autowired
+	SpeciesAutocomplete speciesAutocomplete;
+
 	@Override
 	public ResponseEntity<?> save(Species species) {
 		if (isNotNull(species)) {
@@ -93,6 +118,8 @@ public class SpeciesServiceImpl extends IsHelper implements SpeciesService{
 					species.getClimates(), species.getSoils(), newFlower, newFruit);
 			if (species.isValid()) {
 				species = speciesRepository.save(species);
+				speciesIndex.put(species);
+				speciesAutocomplete.put(species);
 				return new ResponseEntity<Species>(species, HttpStatus.OK);
 			}
 			return new ResponseEntity<List<String>>(species.getValidationErrors(), HttpStatus.BAD_REQUEST);
@@ -116,12 +143,44 @@ public class SpeciesServiceImpl extends IsHelper implements SpeciesService{
 		return new ResponseEntity<Iterable<Species>>(specieList, HttpStatus.OK);
 	}
 	
+	@Override
+	public ResponseEntity<?> search(String text, Integer page, Integer size) {
+		String prefixQuery = TextSearchRepository.toPrefixQuery(text);
+		if (isNull(prefixQuery)) {
+			return new ResponseEntity<String>("Texto de pesquisa inválido.", HttpStatus.BAD_REQUEST);
+		}
+		if (isNull(page) || isNull(size) || page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+			return new ResponseEntity<String>("Paginação inválida.", HttpStatus.BAD_REQUEST);
+		}
+		try {
+			List<Long> ids = textSearchRepository.searchSpeciesIds(prefixQuery, page, size);
+			List<Species> retorno = TextSearchRepository.inOrder(ids, speciesRepository.findAll(ids));
+			return new ResponseEntity<List<Species>>(retorno, HttpStatus.OK);
+		} catch (DataAccessException e) {
+			LOGGER.warn("Full text search of species failed", e);
+			return new ResponseEntity<String>("Pesquisa textual indisponível.", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+	@Override
+	public ResponseEntity<?> autocomplete(String text, Integer limit) {
+		if (isNull(limit) || limit < 1 || limit > MAX_SUGGESTIONS) {
+			return new ResponseEntity<String>("Limite deve estar entre 1 e " + MAX_SUGGESTIONS + ".", HttpStatus.BAD_REQUEST);
+		}
+		List<SpeciesSuggestion> suggestions = speciesAutocomplete.complete(text, limit);
+		if (isNull(suggestions)) {
+			return new ResponseEntity<String>("Índice de espécies ainda não carregado.", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		return new ResponseEntity<List<SpeciesSuggestion>>(suggestions, HttpStatus.OK);
+	}
+
 	@Override
 	public ResponseEntity<?> delete(Long id) {
 		if(isNotNull(id)) {
 			Species speciesDB = speciesRepository.findOne(id);
 			speciesDB.disable();
-			speciesRepository.save(speciesDB);
+			speciesDB = speciesRepository.save(speciesDB);
+			speciesAutocomplete.put(speciesDB);
 			return new ResponseEntity<String>("Espécie desativada.", HttpStatus.OK);
 		}
 		return new ResponseEntity<String>("ID não pode ser nulo.", HttpStatus.BAD_REQUEST);
@@ -152,6 +211,8 @@ public class SpeciesServiceImpl extends IsHelper implements SpeciesService{
 			if(isNotNull(speciesDB)) {
 				speciesDB.enable();
 				speciesDB = speciesRepository.save(speciesDB);
+				speciesIndex.put(speciesDB);
+				speciesAutocomplete.put(speciesDB);
 				return new ResponseEntity<Species>(speciesDB, HttpStatus.OK);
 			}
 			return new ResponseEntity<String>("Espécie não encontrada.", HttpStatus.NOT_FOUND);
@@ -160,6 +221,7 @@ public class SpeciesServiceImpl extends IsHelper implements SpeciesService{
 	}
 
 	@Override
+	@Transactional
 	public ResponseEntity<?> update(Species species) {
 		if (isNotNull(species)) {
 			Species speciesDB = speciesRepository.findOne(species.getId());
@@ -167,6 +229,9 @@ public class SpeciesServiceImpl extends IsHelper implements SpeciesService{
 				speciesDB.update(species);
 				if (speciesDB.isValid()) {
 					speciesDB = speciesRepository.save(speciesDB);
+					offerSearchIndexService.indexSpecies(speciesDB);
+					speciesIndex.put(speciesDB);
+					speciesAutocomplete.put(speciesDB);
 					return new ResponseEntity<Species>(speciesDB, HttpStatus.OK);
 				}
 				return new ResponseEntity<List<String>>(speciesDB.getValidationErrors(), HttpStatus.BAD_REQUEST);
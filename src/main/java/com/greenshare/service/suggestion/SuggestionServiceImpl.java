@@ -29,6 +29,8 @@ import com.greenshare.repository.MonthRepository;
 import com.greenshare.repository.SoilRepository;
 import com.greenshare.repository.SpeciesRepository;
 import com.greenshare.repository.SuggestionRepository;
+import com.greenshare.service.species.SpeciesAutocomplete;
+import com.greenshare.service.species.SpeciesIndex;
 
 /**
  * Implementation of SuggestionService interface
@@ -62,13 +64,19 @@ public class SuggestionServiceImpl extends IsHelper implements SuggestionService
 	@Autowired
 	ClimateRepository climateRepository;
 
+	@Autowired
+	SpeciesIndex speciesIndex;
+
+	@Autowired
+	SpeciesAutocomplete speciesAutocomplete;
+
 	private static final int MAX_PAGE_SIZE = 100;
 
 	@Override
 	public ResponseEntity<?> delete(Long id) {
 		if (isNotNull(id)) {
 			Suggestion suggestionDB = suggestionRepository.findOne(id);
-			if (isNotNull(suggestionDB) && suggestionDB.getUser().getId() == getCurrentUserId()) {
+			if (isNotNull(suggestionDB) && suggestionDB.getUser().getId().equals(getCurrentUserId())) {
 				if (!suggestionDB.getSpecies().getEnabled()) {
 					suggestionRepository.delete(suggestionDB);
 					return new ResponseEntity<String>("Sugestão desativada", HttpStatus.OK);
@@ -89,7 +97,9 @@ public class SuggestionServiceImpl extends IsHelper implements SuggestionService
 				Species species = suggestionDB.getSpecies();
 				if (isNotNull(species) && !species.getEnabled()) {
 					species.enable();
-					speciesRepository.save(suggestionDB.getSpecies());
+					species = speciesRepository.save(species);
+					speciesIndex.put(species);
+					speciesAutocomplete.put(species);
 					return new ResponseEntity<String>("Sugestão ativada", HttpStatus.OK);
 				}
 				return new ResponseEntity<String>("Sugestão já está ativa.", HttpStatus.BAD_REQUEST);
@@ -150,6 +160,7 @@ public class SuggestionServiceImpl extends IsHelper implements SuggestionService
 			Suggestion newSuggestion = new Suggestion(getCurrentUser(), newSpecies);
 			if (newSuggestion.isValid()) {
 				newSuggestion = suggestionRepository.save(newSuggestion);
+				speciesIndex.put(newSuggestion.getSpecies());
 				return new ResponseEntity<Suggestion>(newSuggestion, HttpStatus.OK);
 			}
 			return new ResponseEntity<List<String>>(newSuggestion.getValidationErrors(), HttpStatus.BAD_REQUEST);
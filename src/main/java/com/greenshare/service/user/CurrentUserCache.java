@@ -0,0 +1,109 @@
+package com.greenshare.service.user;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Service;
+
+/**
+ * Short lived cache of the id of the user of each principal, so the ownership
+ * checks of {@link com.greenshare.helpers.UserUtils#getCurrentUserId()} don't
+ * query the user on every request. Inside a request the user itself is kept
+ * by {@link com.greenshare.helpers.UserUtils}, those hits are counted here
+ * too. Counters are exposed on the actuator metrics as current-user.cache.*
+ *
+ * @author joao.silva
+ */
+@Service
+public class CurrentUserCache implements PublicMetrics {
+
+	@Value("${greenshare.security.current-user.ttl-seconds:60}")
+	private long ttlSeconds;
+
+	@Value("${greenshare.security.current-user.max-entries:10000}")
+	private int maxEntries;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong requestHits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong invalidations = new AtomicLong();
+
+	/**
+	 * @return the cached id of the user of the email, or null
+	 */
+	public Long getId(String email) {
+		Entry entry = this.entries.get(email);
+		if (entry == null || entry.expiration < System.currentTimeMillis()) {
+			this.misses.incrementAndGet();
+			return null;
+		}
+		this.hits.incrementAndGet();
+		return entry.id;
+	}
+
+	public void put(String email, Long id) {
+		long now = System.currentTimeMillis();
+		if (this.entries.size() >= this.maxEntries) {
+			this.entries.values().removeIf(entry -> entry.expiration < now);
+			if (this.entries.size() >= this.maxEntries) {
+				this.entries.clear();
+			}
+		}
+		this.entries.put(email, new Entry(id, now + this.ttlSeconds * 1000));
+	}
+
+	/**
+	 * Counts a user found in the memo of the request
+	 */
+	public void requestHit() {
+		this.requestHits.incrementAndGet();
+	}
+
+	public void invalidate(String email) {
+		this.invalidations.incrementAndGet();
+		this.entries.remove(email);
+	}
+
+	public void invalidate(Long id) {
+		this.invalidations.incrementAndGet();
+		this.entries.values().removeIf(entry -> entry.id.equals(id));
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		long hits = this.hits.get();
+		long misses = this.misses.get();
+		metrics.add(new Metric<Long>("current-user.cache.hits", hits));
+		metrics.add(new Metric<Long>("current-user.cache.request-hits", this.requestHits.get()));
+		metrics.add(new Metric<Long>("current-user.cache.misses", misses));
+		metrics.add(new Metric<Double>("current-user.cache.hit-rate",
+				hits + misses == 0 ? 0.0 : (double) hits / (hits + misses)));
+		metrics.add(new Metric<Long>("current-user.cache.invalidations", this.invalidations.get()));
+		metrics.add(new Metric<Integer>("current-user.cache.entries", this.entries.size()));
+		return metrics;
+	}
+
+	private static class Entry {
+
+		private final Long id;
+
+		private final long expiration;
+
+		private Entry(Long id, long expiration) {
+			this.id = id;
+			this.expiration = expiration;
+		}
+	}
+}
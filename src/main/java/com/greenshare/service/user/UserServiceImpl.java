@@ -10,9 +10,12 @@ import org.springframework.stereotype.Service;
 import com.greenshare.entity.FlowerShop;
 import com.greenshare.entity.address.Address;
 import com.greenshare.entity.user.User;
+import com.greenshare.enumeration.PhotoType;
 import com.greenshare.helpers.IsHelper;
 import com.greenshare.repository.UserRepository;
+import com.greenshare.security.CredentialCache;
 import com.greenshare.service.address.AddressServiceImpl;
+import com.greenshare.service.image.ImageServiceImpl;
 
 /**
  * Implementation of {@link com.greenshare.service.user.UserService} interface
@@ -25,6 +28,12 @@ public class UserServiceImpl extends IsHelper implements UserService {
 	@Autowired
 	UserRepository userRepository;
 
+	@Autowired
+	ImageServiceImpl imageService;
+
+	@Autowired
+	CredentialCache credentialCache;
+
 	AddressServiceImpl addressService;
 
 	@Override
@@ -75,6 +84,8 @@ public class UserServiceImpl extends IsHelper implements UserService {
 				currentUser.setPassword(user.getPassword());
 				currentUser.encodePassword();
 				currentUser = userRepository.save(currentUser);
+				evictCurrentUser();
+				credentialCache.invalidate(currentUser.getEmail());
 				return new ResponseEntity<User>(currentUser, HttpStatus.OK);
 			}
 			return new ResponseEntity<String>("Senha inválida.", HttpStatus.BAD_REQUEST);
@@ -89,6 +100,7 @@ public class UserServiceImpl extends IsHelper implements UserService {
 			currentUser.setName(name);
 			if (currentUser.hasValidName()) {
 				currentUser = userRepository.save(currentUser);
+				evictCurrentUser();
 				return new ResponseEntity<User>(currentUser, HttpStatus.OK);
 			}
 			return new ResponseEntity<String>("Nome inválido.", HttpStatus.BAD_REQUEST);
@@ -129,6 +141,7 @@ public class UserServiceImpl extends IsHelper implements UserService {
 				if(isNullOrEmpty(userDB.getCpf())) {
 					userDB.setCpf(cpf);
 					if(userDB.isValid()) {
+						evictCurrentUser();
 						return new ResponseEntity<User>(userDB, HttpStatus.OK);
 					}
 					return new ResponseEntity<List<String>>(userDB.getValidationErrors(), HttpStatus.BAD_REQUEST);					
@@ -146,6 +159,9 @@ public class UserServiceImpl extends IsHelper implements UserService {
 			User userDB = userRepository.findOne(id);
 			if (isNotNull(userDB)) {
 				userRepository.delete(userDB.getId());
+				evictUser(userDB.getId());
+				credentialCache.invalidate(userDB.getEmail());
+				imageService.deleteImage(PhotoType.USER, userDB.getId());
 				return new ResponseEntity<String>("Usuário deletado.", HttpStatus.OK);
 			}
 			return new ResponseEntity<String>("Usuário não encontrado.", HttpStatus.NOT_FOUND);
@@ -158,6 +174,9 @@ public class UserServiceImpl extends IsHelper implements UserService {
 		User userDB = getCurrentUser();
 		if (isNotNull(userDB)) {
 			userRepository.delete(userDB.getId());
+			evictCurrentUser();
+			credentialCache.invalidate(userDB.getEmail());
+			imageService.deleteImage(PhotoType.USER, userDB.getId());
 			return new ResponseEntity<String>("Usuário deletado.", HttpStatus.OK);
 		}
 		return new ResponseEntity<String>("Usuário não encontrado.", HttpStatus.NOT_FOUND);
@@ -171,6 +190,7 @@ public class UserServiceImpl extends IsHelper implements UserService {
 				userDB.update(user);
 				if (userDB.isValid()) {
 					userDB = userRepository.save(userDB);
+					evictCurrentUser();
 					return new ResponseEntity<User>(userDB, HttpStatus.OK);
 				}
 				return new ResponseEntity<List<String>>(userDB.getValidationErrors(), HttpStatus.BAD_REQUEST);
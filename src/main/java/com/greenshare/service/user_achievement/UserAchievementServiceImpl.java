@@ -57,7 +57,7 @@ public class UserAchievementServiceImpl extends IsHelper implements UserAchievem
 	public ResponseEntity<?> delete(Long id) {
 		if (isNotNull(id)) {
 			UserAchievement userAchievementDB = userAchievementRepository.findOne(id);
-			if (isNotNull(userAchievementDB) && userAchievementDB.getUser().getId() == getCurrentUser().getId()) {
+			if (isNotNull(userAchievementDB) && userAchievementDB.getUser().getId().equals(getCurrentUserId())) {
 				userAchievementRepository.delete(id);
 				return new ResponseEntity<String>("Relação conquista usuário deletada.", HttpStatus.OK);
 			}
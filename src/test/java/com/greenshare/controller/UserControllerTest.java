@@ -31,6 +31,9 @@ import com.greenshare.repository.CityRepository;
 import com.greenshare.repository.CountryRepository;
 import com.greenshare.repository.StateRepository;
 import com.greenshare.repository.UserRepository;
+import com.greenshare.security.CredentialCache;
+import com.greenshare.service.image.ImageServiceImpl;
+import com.greenshare.service.user.CurrentUserCache;
 import com.greenshare.service.user.UserServiceImpl;
 import com.greenshare.utils.IntegrationTestUtil;
 
@@ -65,6 +68,15 @@ public class UserControllerTest {
 	
 	@MockBean
 	private CountryRepository countryRepository;
+	
+	@MockBean
+	private ImageServiceImpl imageService;
+	
+	@MockBean
+	private CurrentUserCache currentUserCache;
+	
+	@MockBean
+	private CredentialCache credentialCache;
 
 	private User validUser;
 	
@@ -0,0 +1,97 @@
+package com.greenshare.helpers;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.regex.Pattern;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test class for the {@link com.greenshare.helpers.EmailHelper}
+ *
+ * @author joao.silva
+ */
+public class EmailHelperTest {
+
+	private static final String[] VALID = { "jpedross1999@gmail.com", "joao.silva@empresa.com.br", "a+tag@x.io",
+			"o'brien@example.ie", "joão@exemplo.com.br", "x_y-z@sub.dom-ain.org", "\"john doe\"@example.com",
+			"\"a\\\"b\"@example.com", "a@[192.168.0.1]", "a@localhost", " a@example.com ", "1234567890@example.com" };
+
+	private static final String[] INVALID = { "", "eduardo@", "@example.com", "a..b@example.com", ".a@example.com",
+			"a.@example.com", "a@example..com", "a@example.com.", "a b@example.com", "a@b@example.com",
+			"Name <a@example.com>", "a@[1.2.3.4", "\"a@example.com", "a@exa mple.com", "a\r\n@example.com",
+			"a,b@example.com" };
+
+	/* Inputs that make backtracking validators try every split of the text */
+	private static final String[] PATHOLOGICAL = { "a.", "a ", "\"a\".", "a@a.", "a@[a].", "\\\"", "<a@a>,", "a\r\n " };
+
+	/* RFC 822 regex User validated with before EmailHelper */
+	private static Pattern rfc822;
+
+	@BeforeClass
+	public static void loadRfc822() throws IOException {
+		try (InputStream input = EmailHelperTest.class.getResourceAsStream("rfc822-email.regex");
+				Scanner scanner = new Scanner(input, StandardCharsets.UTF_8.name())) {
+			rfc822 = Pattern.compile(scanner.useDelimiter("\\A").next().trim());
+		}
+	}
+
+	@Test
+	public void acceptsRealWorldAddresses() {
+		for (String email : VALID) {
+			assertTrue(email, EmailHelper.isEmail(email));
+			assertTrue(email, rfc822.matcher(email).matches());
+		}
+	}
+
+	@Test
+	public void rejectsInvalidAddresses() {
+		assertFalse(EmailHelper.isEmail(null));
+		for (String email : INVALID) {
+			assertFalse(email, EmailHelper.isEmail(email));
+		}
+	}
+
+	/**
+	 * Every random text accepted must also be accepted by the RFC 822 regex,
+	 * the helper only rejects what the regex accepted beyond plain addresses
+	 */
+	@Test(timeout = 20000)
+	public void acceptsOnlyWhatTheRfc822RegexAccepted() {
+		String alphabet = "ab1.@\"\\[]() <>,;:\t\r\nã";
+		Random random = new Random(20171018);
+		StringBuilder text = new StringBuilder();
+		int accepted = 0;
+		for (int i = 0; i < 200000; i++) {
+			text.setLength(0);
+			int length = random.nextInt(40);
+			for (int j = 0; j < length; j++) {
+				text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			if (EmailHelper.isEmail(text)) {
+				accepted++;
+				assertTrue(text.toString(), rfc822.matcher(text).matches());
+			}
+		}
+		assertTrue(accepted > 0);
+	}
+
+	@Test(timeout = 5000)
+	public void validatesLongPathologicalTextInLinearTime() {
+		for (String piece : PATHOLOGICAL) {
+			StringBuilder text = new StringBuilder();
+			while (text.length() < 1000000) {
+				text.append(piece);
+			}
+			text.append('!');
+			assertFalse(EmailHelper.isEmail(text));
+		}
+	}
+}
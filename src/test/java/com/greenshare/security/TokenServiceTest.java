@@ -0,0 +1,131 @@
+package com.greenshare.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.greenshare.entity.user.User;
+
+/**
+ * Test class for the {@link com.greenshare.security.TokenService}
+ *
+ * @author joao.silva
+ */
+public class TokenServiceTest {
+
+	private static final String SECRET = "test-secret-of-at-least-32-bytes!";
+
+	private static final String EMAIL = "jpedross1999@gmail.com";
+
+	private TokenService tokenService;
+
+	private User user;
+
+	@Before
+	public void setUp() {
+		this.tokenService = newTokenService(SECRET);
+		this.user = new User("04303145076", "João Pedro", EMAIL, "12345678", false, null, "984401159", null);
+		this.user.encodePassword();
+	}
+
+	@Test
+	public void verifiesItsOwnTokens() {
+		assertEquals(EMAIL, tokenService.verifyAccessToken(tokenService.createAccessToken(user)));
+		String refreshToken = tokenService.createRefreshToken(user);
+		assertEquals(EMAIL, tokenService.verifyRefreshToken(refreshToken));
+		assertTrue(tokenService.hasStamp(refreshToken, user));
+	}
+
+	@Test
+	public void rejectsTamperedPayload() {
+		String token = tokenService.createAccessToken(user);
+		int dot = token.indexOf('.');
+		String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+		String forged = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(payload.replace(EMAIL, "admin@greenshare.com").getBytes(StandardCharsets.UTF_8));
+		assertNull(tokenService.verifyAccessToken(forged + token.substring(dot)));
+	}
+
+	@Test
+	public void rejectsTamperedSignature() {
+		String token = tokenService.createAccessToken(user);
+		/* Not the last character, whose low bits are padding */
+		int index = token.indexOf('.') + 1;
+		char changed = token.charAt(index) == 'A' ? 'B' : 'A';
+		assertNull(tokenService.verifyAccessToken(token.substring(0, index) + changed + token.substring(index + 1)));
+		assertNull(tokenService.verifyAccessToken(token.substring(0, token.indexOf('.') + 1)));
+		assertNull(tokenService.verifyAccessToken(token.substring(0, token.indexOf('.'))));
+	}
+
+	@Test
+	public void rejectsTokensOfAnotherSecret() {
+		String token = newTokenService("another-secret-of-at-least-32-bytes").createAccessToken(user);
+		assertNull(tokenService.verifyAccessToken(token));
+	}
+
+	@Test
+	public void rejectsRefreshTokenAsAccessToken() {
+		assertNull(tokenService.verifyAccessToken(tokenService.createRefreshToken(user)));
+		assertNull(tokenService.verifyRefreshToken(tokenService.createAccessToken(user)));
+	}
+
+	@Test
+	public void rejectsExpiredTokens() {
+		ReflectionTestUtils.setField(tokenService, "accessSeconds", -1L);
+		ReflectionTestUtils.setField(tokenService, "refreshSeconds", -1L);
+		assertNull(tokenService.verifyAccessToken(tokenService.createAccessToken(user)));
+		assertNull(tokenService.verifyRefreshToken(tokenService.createRefreshToken(user)));
+	}
+
+	@Test
+	public void rejectsTokensOverMaxLength() {
+		StringBuilder email = new StringBuilder();
+		while (email.length() < 1024) {
+			email.append('a');
+		}
+		email.append("@gmail.com");
+		User longUser = new User("04303145076", "João Pedro", email.toString(), "12345678", false, null, "984401159",
+				null);
+		String token = tokenService.createAccessToken(longUser);
+		assertTrue(token.length() > 1024);
+		assertNull(tokenService.verifyAccessToken(token));
+	}
+
+	@Test
+	public void rejectsRefreshTokenIssuedBeforePasswordChange() {
+		String refreshToken = tokenService.createRefreshToken(user);
+		user.setPassword("87654321");
+		user.encodePassword();
+		assertEquals(EMAIL, tokenService.verifyRefreshToken(refreshToken));
+		assertFalse(tokenService.hasStamp(refreshToken, user));
+		assertTrue(tokenService.hasStamp(tokenService.createRefreshToken(user), user));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void failsWithoutSecret() {
+		new TokenService("", false);
+	}
+
+	@Test
+	public void startsWithRandomSecretOnlyWhenAllowed() {
+		TokenService randomTokenService = new TokenService("", true);
+		ReflectionTestUtils.setField(randomTokenService, "accessSeconds", 900L);
+		assertEquals(EMAIL, randomTokenService.verifyAccessToken(randomTokenService.createAccessToken(user)));
+		assertNull(tokenService.verifyAccessToken(randomTokenService.createAccessToken(user)));
+	}
+
+	private static TokenService newTokenService(String secret) {
+		TokenService tokenService = new TokenService(secret, false);
+		ReflectionTestUtils.setField(tokenService, "accessSeconds", 900L);
+		ReflectionTestUtils.setField(tokenService, "refreshSeconds", 1209600L);
+		return tokenService;
+	}
+}